@@ -0,0 +1,167 @@
+package com.example.gamesales.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Immutable columns of game sales sorted by date of sale, with prefix sums of sale_price over all rows and per game_no.
+ * <p>
+ * The count and total sale price of any {@code [from, to]} range are two binary searches and a subtraction:
+ * {@code prefix[upper(to)] - prefix[lower(from)]}. Per game_no, {@code gameRows} holds the positions of the game's rows
+ * in date order with their own prefix sums. sale_price itself is not kept, it is the difference of two neighbouring prefix sums.
+ * <p>
+ * Dates are epoch microseconds of the local date time, as in {@link com.example.gamesales.batch.GameSalesBatch}.
+ */
+public final class SalesColumns {
+    static final SalesColumns EMPTY = build(new long[0], new double[0], new short[0], 0);
+
+    private final long[] dateOfSaleMicros;
+    private final short[] gameNo;
+    private final double[] salePricePrefix;
+    /** positions of the rows of each game_no, indexed by {@code gameNo - Short.MIN_VALUE}, null for games without rows */
+    private final int[][] gameRows;
+    private final double[][] gameSalePricePrefix;
+    private final int size;
+
+    private SalesColumns(long[] dateOfSaleMicros, short[] gameNo, double[] salePricePrefix, int[][] gameRows, double[][] gameSalePricePrefix, int size) {
+        this.dateOfSaleMicros = dateOfSaleMicros;
+        this.gameNo = gameNo;
+        this.salePricePrefix = salePricePrefix;
+        this.gameRows = gameRows;
+        this.gameSalePricePrefix = gameSalePricePrefix;
+        this.size = size;
+    }
+
+    /**
+     * Builds the prefix sums over the first {@code size} rows, which must already be sorted by date of sale.
+     */
+    public static SalesColumns build(long[] dateOfSaleMicros, double[] salePrice, short[] gameNo, int size) {
+        long[] dates = dateOfSaleMicros.length == size ? dateOfSaleMicros : Arrays.copyOf(dateOfSaleMicros, size);
+        short[] games = gameNo.length == size ? gameNo : Arrays.copyOf(gameNo, size);
+        double[] prefix = new double[size + 1];
+        int[] gameCounts = new int[1 << 16];
+        for (int row = 0; row < size; row++) {
+            prefix[row + 1] = prefix[row] + salePrice[row];
+            gameCounts[games[row] - Short.MIN_VALUE]++;
+        }
+        int[][] gameRows = new int[1 << 16][];
+        double[][] gamePrefix = new double[1 << 16][];
+        for (int game = 0; game < gameCounts.length; game++) {
+            if (gameCounts[game] > 0) {
+                gameRows[game] = new int[gameCounts[game]];
+                gamePrefix[game] = new double[gameCounts[game] + 1];
+            }
+        }
+        int[] filled = new int[1 << 16];
+        for (int row = 0; row < size; row++) {
+            int game = games[row] - Short.MIN_VALUE;
+            int position = filled[game]++;
+            gameRows[game][position] = row;
+            gamePrefix[game][position + 1] = gamePrefix[game][position] + salePrice[row];
+        }
+        return new SalesColumns(dates, games, prefix, gameRows, gamePrefix, size);
+    }
+
+    /**
+     * New columns with the rows of {@code delta} merged in date order.
+     */
+    public SalesColumns merge(SalesDelta delta) {
+        int deltaSize = delta.size();
+        Integer[] order = new Integer[deltaSize];
+        for (int i = 0; i < deltaSize; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(delta.getDateOfSaleMicros(a), delta.getDateOfSaleMicros(b)));
+
+        int mergedSize = size + deltaSize;
+        long[] dates = new long[mergedSize];
+        double[] salePrice = new double[mergedSize];
+        short[] games = new short[mergedSize];
+        int row = 0;
+        int next = 0;
+        for (int merged = 0; merged < mergedSize; merged++) {
+            if (next < deltaSize && (row >= size || delta.getDateOfSaleMicros(order[next]) < dateOfSaleMicros[row])) {
+                int deltaRow = order[next++];
+                dates[merged] = delta.getDateOfSaleMicros(deltaRow);
+                salePrice[merged] = delta.getSalePrice(deltaRow);
+                games[merged] = delta.getGameNo(deltaRow);
+            } else {
+                dates[merged] = dateOfSaleMicros[row];
+                salePrice[merged] = salePricePrefix[row + 1] - salePricePrefix[row];
+                games[merged] = gameNo[row];
+                row++;
+            }
+        }
+        return build(dates, salePrice, games, mergedSize);
+    }
+
+    /**
+     * Adds the count and sale price total of the rows with {@code fromMicros <= date <= toMicros} to {@code totals},
+     * of all games or of one game when {@code gameNo} is not null.
+     */
+    public void addTotals(long fromMicros, long toMicros, Short gameNo, SalesTotals totals) {
+        if (gameNo == null) {
+            int lower = lowerBound(fromMicros);
+            int upper = lowerBound(toMicros == Long.MAX_VALUE ? toMicros : toMicros + 1);
+            if (upper > lower) {
+                totals.add(upper - lower, salePricePrefix[upper] - salePricePrefix[lower]);
+            }
+            return;
+        }
+        int[] rows = gameRows[gameNo - Short.MIN_VALUE];
+        if (rows == null) {
+            return;
+        }
+        int lower = gameLowerBound(rows, fromMicros);
+        int upper = gameLowerBound(rows, toMicros == Long.MAX_VALUE ? toMicros : toMicros + 1);
+        if (upper > lower) {
+            double[] prefix = gameSalePricePrefix[gameNo - Short.MIN_VALUE];
+            totals.add(upper - lower, prefix[upper] - prefix[lower]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Bytes held by the arrays of these columns.
+     */
+    public long getMemoryBytes() {
+        long bytes = 8L * dateOfSaleMicros.length + 2L * gameNo.length + 8L * salePricePrefix.length + 16L * gameRows.length;
+        for (int game = 0; game < gameRows.length; game++) {
+            if (gameRows[game] != null) {
+                bytes += 4L * gameRows[game].length + 8L * gameSalePricePrefix[game].length;
+            }
+        }
+        return bytes;
+    }
+
+    /** first row with a date of sale not before {@code micros} */
+    private int lowerBound(long micros) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dateOfSaleMicros[mid] < micros) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int gameLowerBound(int[] rows, long micros) {
+        int low = 0;
+        int high = rows.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dateOfSaleMicros[rows[mid]] < micros) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
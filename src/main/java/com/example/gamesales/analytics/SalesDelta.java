@@ -0,0 +1,88 @@
+package com.example.gamesales.analytics;
+
+import com.example.gamesales.batch.GameSalesBatch;
+
+import java.util.Arrays;
+
+/**
+ * Rows appended since the last merge into {@link SalesColumns}, in arrival order. Range queries scan it linearly,
+ * it is kept small by merging it in the background once it reaches a threshold. Not thread safe.
+ */
+public final class SalesDelta {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] dateOfSaleMicros = new long[INITIAL_CAPACITY];
+    private double[] salePrice = new double[INITIAL_CAPACITY];
+    private short[] gameNo = new short[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Appends the rows of the batch.
+     *
+     * @return false and appends nothing if a game_no of the batch does not fit the short column
+     */
+    public boolean append(GameSalesBatch batch) {
+        for (int row = 0; row < batch.size(); row++) {
+            if (batch.getGameNo(row) < Short.MIN_VALUE || batch.getGameNo(row) > Short.MAX_VALUE) {
+                return false;
+            }
+        }
+        ensureCapacity(size + batch.size());
+        for (int row = 0; row < batch.size(); row++) {
+            dateOfSaleMicros[size] = batch.getDateOfSaleMicros(row);
+            salePrice[size] = batch.getSalePrice(row);
+            gameNo[size] = (short) batch.getGameNo(row);
+            size++;
+        }
+        return true;
+    }
+
+    void append(long dateOfSale, double price, short game) {
+        ensureCapacity(size + 1);
+        dateOfSaleMicros[size] = dateOfSale;
+        salePrice[size] = price;
+        gameNo[size] = game;
+        size++;
+    }
+
+    public void addTotals(long fromMicros, long toMicros, Short game, SalesTotals totals) {
+        long count = 0;
+        double total = 0;
+        for (int row = 0; row < size; row++) {
+            if (dateOfSaleMicros[row] >= fromMicros && dateOfSaleMicros[row] <= toMicros && (game == null || gameNo[row] == game)) {
+                count++;
+                total += salePrice[row];
+            }
+        }
+        totals.add(count, total);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getMemoryBytes() {
+        return 18L * dateOfSaleMicros.length;
+    }
+
+    long getDateOfSaleMicros(int row) {
+        return dateOfSaleMicros[row];
+    }
+
+    double getSalePrice(int row) {
+        return salePrice[row];
+    }
+
+    short getGameNo(int row) {
+        return gameNo[row];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > dateOfSaleMicros.length) {
+            int newCapacity = Math.max(capacity, dateOfSaleMicros.length * 2);
+            dateOfSaleMicros = Arrays.copyOf(dateOfSaleMicros, newCapacity);
+            salePrice = Arrays.copyOf(salePrice, newCapacity);
+            gameNo = Arrays.copyOf(gameNo, newCapacity);
+        }
+    }
+}
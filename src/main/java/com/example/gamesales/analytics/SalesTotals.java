@@ -0,0 +1,22 @@
+package com.example.gamesales.analytics;
+
+/**
+ * Running count and sale price total of a range query over {@link SalesColumns} and {@link SalesDelta}.
+ */
+public final class SalesTotals {
+    private long count;
+    private double salePrice;
+
+    void add(long rows, double salePriceTotal) {
+        count += rows;
+        salePrice += salePriceTotal;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSalePrice() {
+        return salePrice;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.gamesales.batch;
+
+import com.example.gamesales.entity.ImportCheckpointEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Record ranges already committed by an earlier run of an import job.
+ * <p>
+ * Checkpoints are merged into disjoint ranges. The range starting at record 1 is the committed prefix: a resumed job seeks
+ * straight to the end offset of that prefix, and only skips the records of the remaining ranges, which parallel imports
+ * commit out of order.
+ */
+public class CommittedRecordRanges {
+    private static final CommittedRecordRanges NONE = new CommittedRecordRanges(new long[0], new long[0], 1, 0, 0, 0, 0);
+
+    private final long[] firsts;
+    private final long[] lasts;
+    private final long resumeRecordNumber;
+    private final long resumeOffset;
+    private final int validRecordsCount;
+    private final int invalidRecordsCount;
+    private final int skippedRecordsCount;
+
+    private CommittedRecordRanges(long[] firsts, long[] lasts, long resumeRecordNumber, long resumeOffset, int validRecordsCount, int invalidRecordsCount, int skippedRecordsCount) {
+        this.firsts = firsts;
+        this.lasts = lasts;
+        this.resumeRecordNumber = resumeRecordNumber;
+        this.resumeOffset = resumeOffset;
+        this.validRecordsCount = validRecordsCount;
+        this.invalidRecordsCount = invalidRecordsCount;
+        this.skippedRecordsCount = skippedRecordsCount;
+    }
+
+    public static CommittedRecordRanges none() {
+        return NONE;
+    }
+
+    public static CommittedRecordRanges of(List<ImportCheckpointEntity> checkpoints) {
+        if (checkpoints.isEmpty()) {
+            return NONE;
+        }
+        List<ImportCheckpointEntity> sorted = new ArrayList<>(checkpoints);
+        sorted.sort(Comparator.comparingLong(ImportCheckpointEntity::getFirstRecordNumber));
+
+        long[] firsts = new long[sorted.size()];
+        long[] lasts = new long[sorted.size()];
+        long[] endOffsets = new long[sorted.size()];
+        int ranges = 0;
+        int validRecordsCount = 0;
+        int invalidRecordsCount = 0;
+        int skippedRecordsCount = 0;
+        for (ImportCheckpointEntity checkpoint : sorted) {
+            validRecordsCount += checkpoint.getValidRecordsCount();
+            invalidRecordsCount += checkpoint.getInvalidRecordsCount();
+            skippedRecordsCount += checkpoint.getSkippedRecordsCount();
+            if (ranges > 0 && checkpoint.getFirstRecordNumber() <= lasts[ranges - 1] + 1) {
+                if (checkpoint.getLastRecordNumber() > lasts[ranges - 1]) {
+                    lasts[ranges - 1] = checkpoint.getLastRecordNumber();
+                    endOffsets[ranges - 1] = checkpoint.getEndOffset();
+                }
+            } else {
+                firsts[ranges] = checkpoint.getFirstRecordNumber();
+                lasts[ranges] = checkpoint.getLastRecordNumber();
+                endOffsets[ranges] = checkpoint.getEndOffset();
+                ranges++;
+            }
+        }
+
+        long resumeRecordNumber = 1;
+        long resumeOffset = 0;
+        if (firsts[0] == 1) {
+            resumeRecordNumber = lasts[0] + 1;
+            resumeOffset = endOffsets[0];
+        }
+        return new CommittedRecordRanges(Arrays.copyOf(firsts, ranges), Arrays.copyOf(lasts, ranges),
+                resumeRecordNumber, resumeOffset, validRecordsCount, invalidRecordsCount, skippedRecordsCount);
+    }
+
+    public boolean contains(long recordNumber) {
+        int low = 0;
+        int high = firsts.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (lasts[mid] < recordNumber) {
+                low = mid + 1;
+            } else if (firsts[mid] > recordNumber) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * False when record 1 was not committed yet and the job has to start from the header.
+     */
+    public boolean hasCommittedPrefix() {
+        return resumeOffset > 0;
+    }
+
+    /**
+     * Number of the first record after the committed prefix.
+     */
+    public long getResumeRecordNumber() {
+        return resumeRecordNumber;
+    }
+
+    /**
+     * Byte offset of the first record after the committed prefix, 0 if no prefix was committed.
+     */
+    public long getResumeOffset() {
+        return resumeOffset;
+    }
+
+    public int getValidRecordsCount() {
+        return validRecordsCount;
+    }
+
+    public int getInvalidRecordsCount() {
+        return invalidRecordsCount;
+    }
+
+    public int getSkippedRecordsCount() {
+        return skippedRecordsCount;
+    }
+}
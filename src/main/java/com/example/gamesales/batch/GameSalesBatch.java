@@ -0,0 +1,410 @@
+package com.example.gamesales.batch;
+
+import com.example.gamesales.view.GameSalesView;
+import com.example.gamesales.view.InvalidRecordView;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable columnar import batch of game_sales rows.
+ * <p>
+ * Numeric columns live in primitive arrays, {@code date_of_sale} is stored as epoch micros of the local date time (read as UTC),
+ * and game_name/game_code bytes are appended to one growing string area. Arrays are allocated once per batch and reused after
+ * {@link #clear()}, so filling a recycled batch allocates nothing per row.
+ * <p>
+ * A batch is also the unit of checkpointing: it covers the csv records {@code [firstRecordNumber, lastRecordNumber]}
+ * stored in {@code [startOffset, endOffset)} of the source file, and carries the invalid records of that range,
+ * so the rows, the invalid records and the checkpoint of the range are committed together.
+ * <p>
+ * The csv {@code id} of every row is kept as its source id, {@link #NO_SOURCE_ID} when the column is not a number.
+ */
+public class GameSalesBatch {
+    public static final long NO_SOURCE_ID = Long.MIN_VALUE;
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final int capacity;
+    private final long[] sourceId;
+    private final int[] gameNo;
+    private final int[] type;
+    private final double[] costPrice;
+    private final double[] tax;
+    private final double[] salePrice;
+    private final long[] dateOfSaleMicros;
+    private final int[] gameNameOffset;
+    private final int[] gameNameLength;
+    private final int[] gameCodeOffset;
+    private final int[] gameCodeLength;
+    private final StringPool stringPool = new StringPool();
+    private final List<InvalidRecordView> invalidRecords = new ArrayList<>();
+    private byte[] stringArea;
+    private int stringAreaSize;
+    private int size;
+    private int skippedRecordsCount;
+    private long firstRecordNumber;
+    private long lastRecordNumber;
+    private long startOffset;
+    private long endOffset;
+
+    public GameSalesBatch(int capacity) {
+        this.capacity = capacity;
+        this.sourceId = new long[capacity];
+        this.gameNo = new int[capacity];
+        this.type = new int[capacity];
+        this.costPrice = new double[capacity];
+        this.tax = new double[capacity];
+        this.salePrice = new double[capacity];
+        this.dateOfSaleMicros = new long[capacity];
+        this.gameNameOffset = new int[capacity];
+        this.gameNameLength = new int[capacity];
+        this.gameCodeOffset = new int[capacity];
+        this.gameCodeLength = new int[capacity];
+        // game_name and game_code are short, 32 bytes per row avoids growing for typical data
+        this.stringArea = new byte[capacity * 32];
+    }
+
+    /**
+     * Starts a new row and returns its index. Column setters must be called for every column of the row.
+     */
+    public int addRow() {
+        if (isFull()) {
+            throw new IllegalStateException("batch is full");
+        }
+        return size++;
+    }
+
+    /**
+     * Drops the last row, e.g. after it failed validation.
+     */
+    public void removeLastRow() {
+        size--;
+        stringAreaSize = Math.min(gameNameOffset[size], gameCodeOffset[size]);
+    }
+
+    public int addRow(GameSalesView view) {
+        int row = addRow();
+        sourceId[row] = view.getSourceId() == null ? NO_SOURCE_ID : view.getSourceId();
+        gameNo[row] = view.getGameNo();
+        type[row] = view.getType();
+        costPrice[row] = view.getCostPrice();
+        tax[row] = view.getTax();
+        salePrice[row] = view.getSalePrice();
+        dateOfSaleMicros[row] = toEpochMicros(view.getDateOfSale());
+        byte[] gameName = view.getGameName() == null ? new byte[0] : view.getGameName().getBytes(StandardCharsets.UTF_8);
+        byte[] gameCode = view.getGameCode() == null ? new byte[0] : view.getGameCode().getBytes(StandardCharsets.UTF_8);
+        setGameName(row, ByteBuffer.wrap(gameName), 0, gameName.length);
+        setGameCode(row, ByteBuffer.wrap(gameCode), 0, gameCode.length);
+        return row;
+    }
+
+    public void clear() {
+        size = 0;
+        skippedRecordsCount = 0;
+        stringAreaSize = 0;
+        invalidRecords.clear();
+        firstRecordNumber = 0;
+        lastRecordNumber = -1;
+        startOffset = 0;
+        endOffset = 0;
+    }
+
+    /**
+     * Marks where in the source file the records of this batch start.
+     */
+    public void startRange(long firstRecordNumber, long startOffset) {
+        this.firstRecordNumber = firstRecordNumber;
+        this.startOffset = startOffset;
+    }
+
+    /**
+     * Marks the last record of this batch and the offset right after it.
+     */
+    public void endRange(long lastRecordNumber, long endOffset) {
+        this.lastRecordNumber = lastRecordNumber;
+        this.endOffset = endOffset;
+    }
+
+    public void addInvalidRecord(InvalidRecordView invalidRecordView) {
+        invalidRecords.add(invalidRecordView);
+    }
+
+    public List<InvalidRecordView> getInvalidRecords() {
+        return invalidRecords;
+    }
+
+    /**
+     * Keeps only the rows flagged in {@code keep}, in their order, and counts the others as skipped.
+     * Used by upsert imports to drop rows that are already stored unchanged.
+     */
+    public void retainRows(boolean[] keep) {
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (!keep[row]) {
+                continue;
+            }
+            if (kept != row) {
+                sourceId[kept] = sourceId[row];
+                gameNo[kept] = gameNo[row];
+                type[kept] = type[row];
+                costPrice[kept] = costPrice[row];
+                tax[kept] = tax[row];
+                salePrice[kept] = salePrice[row];
+                dateOfSaleMicros[kept] = dateOfSaleMicros[row];
+                // the string bytes stay where they are, only the references move
+                gameNameOffset[kept] = gameNameOffset[row];
+                gameNameLength[kept] = gameNameLength[row];
+                gameCodeOffset[kept] = gameCodeOffset[row];
+                gameCodeLength[kept] = gameCodeLength[row];
+            }
+            kept++;
+        }
+        skippedRecordsCount += size - kept;
+        size = kept;
+    }
+
+    /**
+     * Valid rows dropped by {@link #retainRows(boolean[])}.
+     */
+    public int getSkippedRecordsCount() {
+        return skippedRecordsCount;
+    }
+
+    /**
+     * 64 bit hash of the stored columns of a row, the source id excluded, to tell whether a re-imported row changed.
+     */
+    public long getRowHash(int row) {
+        long hash = 1;
+        hash = mixHash(hash, gameNo[row]);
+        hash = mixHash(hash, type[row]);
+        hash = mixHash(hash, Double.doubleToLongBits(costPrice[row]));
+        hash = mixHash(hash, Double.doubleToLongBits(tax[row]));
+        hash = mixHash(hash, Double.doubleToLongBits(salePrice[row]));
+        hash = mixHash(hash, dateOfSaleMicros[row]);
+        hash = mixHash(hash, gameNameLength[row]);
+        for (int i = gameNameOffset[row]; i < gameNameOffset[row] + gameNameLength[row]; i++) {
+            hash = mixHash(hash, stringArea[i]);
+        }
+        hash = mixHash(hash, gameCodeLength[row]);
+        for (int i = gameCodeOffset[row]; i < gameCodeOffset[row] + gameCodeLength[row]; i++) {
+            hash = mixHash(hash, stringArea[i]);
+        }
+        // final avalanche so that nearby inputs spread over all 64 bits
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * True when the batch holds neither valid rows nor invalid records, so there is nothing to commit.
+     */
+    public boolean hasNothingToCommit() {
+        return size == 0 && invalidRecords.isEmpty();
+    }
+
+    public long getFirstRecordNumber() {
+        return firstRecordNumber;
+    }
+
+    public long getLastRecordNumber() {
+        return lastRecordNumber;
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void setSourceId(int row, long value) {
+        sourceId[row] = value;
+    }
+
+    public void setGameNo(int row, int value) {
+        gameNo[row] = value;
+    }
+
+    public void setType(int row, int value) {
+        type[row] = value;
+    }
+
+    public void setCostPrice(int row, double value) {
+        costPrice[row] = value;
+    }
+
+    public void setTax(int row, double value) {
+        tax[row] = value;
+    }
+
+    public void setSalePrice(int row, double value) {
+        salePrice[row] = value;
+    }
+
+    public void setDateOfSaleMicros(int row, long value) {
+        dateOfSaleMicros[row] = value;
+    }
+
+    public void setGameName(int row, ByteBuffer source, int start, int end) {
+        gameNameOffset[row] = appendString(source, start, end);
+        gameNameLength[row] = end - start;
+    }
+
+    public void setGameCode(int row, ByteBuffer source, int start, int end) {
+        gameCodeOffset[row] = appendString(source, start, end);
+        gameCodeLength[row] = end - start;
+    }
+
+    public long getSourceId(int row) {
+        return sourceId[row];
+    }
+
+    public boolean hasSourceId(int row) {
+        return sourceId[row] != NO_SOURCE_ID;
+    }
+
+    public int getGameNo(int row) {
+        return gameNo[row];
+    }
+
+    public int getType(int row) {
+        return type[row];
+    }
+
+    public double getCostPrice(int row) {
+        return costPrice[row];
+    }
+
+    public double getTax(int row) {
+        return tax[row];
+    }
+
+    public double getSalePrice(int row) {
+        return salePrice[row];
+    }
+
+    public long getDateOfSaleMicros(int row) {
+        return dateOfSaleMicros[row];
+    }
+
+    public LocalDateTime getDateOfSale(int row) {
+        long micros = dateOfSaleMicros[row];
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, MICROS_PER_SECOND), (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Raw utf-8 bytes of game_name and game_code, for writers that copy them without decoding.
+     */
+    public byte[] getStringArea() {
+        return stringArea;
+    }
+
+    public int getGameNameOffset(int row) {
+        return gameNameOffset[row];
+    }
+
+    public int getGameNameLength(int row) {
+        return gameNameLength[row];
+    }
+
+    public int getGameCodeOffset(int row) {
+        return gameCodeOffset[row];
+    }
+
+    public int getGameCodeLength(int row) {
+        return gameCodeLength[row];
+    }
+
+    public String getGameName(int row) {
+        return stringPool.get(stringArea, gameNameOffset[row], gameNameLength[row]);
+    }
+
+    public String getGameCode(int row) {
+        return stringPool.get(stringArea, gameCodeOffset[row], gameCodeLength[row]);
+    }
+
+    public int getGameNameCharCount(int row) {
+        return utf16Length(gameNameOffset[row], gameNameLength[row]);
+    }
+
+    public int getGameCodeCharCount(int row) {
+        return utf16Length(gameCodeOffset[row], gameCodeLength[row]);
+    }
+
+    public boolean isGameNameBlank(int row) {
+        return isBlank(gameNameOffset[row], gameNameLength[row]);
+    }
+
+    public boolean isGameCodeBlank(int row) {
+        return isBlank(gameCodeOffset[row], gameCodeLength[row]);
+    }
+
+    public static long toEpochMicros(LocalDateTime localDateTime) {
+        return localDateTime.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND + localDateTime.getNano() / 1000;
+    }
+
+    private static long mixHash(long hash, long value) {
+        return Long.rotateLeft((hash ^ value) * HASH_MULTIPLIER, 29);
+    }
+
+    private int appendString(ByteBuffer source, int start, int end) {
+        int length = end - start;
+        if (stringAreaSize + length > stringArea.length) {
+            stringArea = Arrays.copyOf(stringArea, Math.max(stringArea.length * 2, stringAreaSize + length));
+        }
+        int offset = stringAreaSize;
+        for (int i = 0; i < length; i++) {
+            stringArea[offset + i] = source.get(start + i);
+        }
+        stringAreaSize += length;
+        return offset;
+    }
+
+    /**
+     * Same result as {@link String#length()} of the decoded UTF-8 bytes: continuation bytes are skipped and
+     * 4 byte sequences count as a surrogate pair.
+     */
+    private int utf16Length(int offset, int length) {
+        int chars = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int b = stringArea[i] & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                chars += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * ASCII whitespace check matching {@link org.apache.commons.lang3.StringUtils#isBlank(CharSequence)} for csv data;
+     * any non-ASCII character counts as content.
+     */
+    private boolean isBlank(int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            int b = stringArea[i] & 0xFF;
+            if (b >= 0x80 || !Character.isWhitespace(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.gamesales.batch;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recycles {@link GameSalesBatch} buffers between the parser stage and the insert workers.
+ * At most {@code maxBatches} buffers are ever created, a parser waiting in {@link #acquire(long, TimeUnit)} is back pressure.
+ */
+public class GameSalesBatchPool {
+    private final BlockingQueue<GameSalesBatch> freeBatches = new LinkedBlockingQueue<>();
+    private final AtomicInteger createdBatches = new AtomicInteger();
+    private final int batchCapacity;
+    private final int maxBatches;
+
+    public GameSalesBatchPool(int batchCapacity, int maxBatches) {
+        this.batchCapacity = batchCapacity;
+        this.maxBatches = maxBatches;
+    }
+
+    /**
+     * @return an empty batch, or null if none was released within the timeout
+     */
+    public GameSalesBatch acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        GameSalesBatch batch = freeBatches.poll();
+        if (batch != null) {
+            return batch;
+        }
+        if (createdBatches.incrementAndGet() <= maxBatches) {
+            return new GameSalesBatch(batchCapacity);
+        }
+        createdBatches.decrementAndGet();
+        return freeBatches.poll(timeout, unit);
+    }
+
+    public void release(GameSalesBatch batch) {
+        batch.clear();
+        freeBatches.offer(batch);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.gamesales.batch;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Small direct-mapped cache of decoded UTF-8 strings, so repeated game names and codes are bound as the same String instance
+ * instead of allocating a new one per row. A slot is simply overwritten on collision. Not thread safe, one pool per batch.
+ */
+class StringPool {
+    private static final int SLOTS = 4096;
+
+    private final byte[][] keys = new byte[SLOTS][];
+    private final String[] values = new String[SLOTS];
+
+    String get(byte[] area, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + area[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+        byte[] key = keys[slot];
+        if (key != null && equals(key, area, offset, length)) {
+            return values[slot];
+        }
+        String value = new String(area, offset, length, StandardCharsets.UTF_8);
+        byte[] newKey = new byte[length];
+        System.arraycopy(area, offset, newKey, 0, length);
+        keys[slot] = newKey;
+        values[slot] = value;
+        return value;
+    }
+
+    private static boolean equals(byte[] key, byte[] area, int offset, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != area[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
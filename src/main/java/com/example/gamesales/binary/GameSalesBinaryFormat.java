@@ -0,0 +1,80 @@
+package com.example.gamesales.binary;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.text.MessageFormat;
+
+/**
+ * Column-blocked binary layout of game_sales rows for machine-to-machine feeds, written by {@link GameSalesBinaryWriter}
+ * and read by {@link GameSalesBinaryReader}. All numbers are big-endian.
+ * <pre>
+ * file   := magic "GSB1", block*
+ * block  := int rowCount, int bodyLength, body
+ * body   := long[rowCount] sourceId      (Long.MIN_VALUE when the row has no id)
+ *           int[rowCount] gameNo, int[rowCount] type
+ *           double[rowCount] costPrice, double[rowCount] tax, double[rowCount] salePrice
+ *           long[rowCount] dateOfSale    (epoch micros of the local date time read as UTC)
+ *           dictionary gameName, int[rowCount] gameName index
+ *           dictionary gameCode, int[rowCount] gameCode index
+ * dictionary := int entryCount, int[entryCount] byte length, utf-8 bytes of all entries
+ * </pre>
+ * Dictionaries are per block, so every block can be decoded on its own.
+ */
+public final class GameSalesBinaryFormat {
+    static final byte[] MAGIC = {'G', 'S', 'B', '1'};
+    static final int BLOCK_HEADER_SIZE = 8;
+    /** bytes of the fixed width columns and the two dictionary indexes of one row */
+    static final int FIXED_BYTES_PER_ROW = 8 + 4 + 4 + 8 + 8 + 8 + 8 + 4 + 4;
+    static final int MAX_BODY_LENGTH = 256 * 1024 * 1024;
+
+    private GameSalesBinaryFormat() {
+    }
+
+    public static boolean hasMagic(byte[] head, int length) {
+        if (length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sums the row counts of the block headers, block bodies are skipped without being decoded.
+     */
+    public static long countRecords(InputStream inputStream) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        if (!hasMagic(magic, IOUtils.read(inputStream, magic))) {
+            throw new IOException("not a game sales binary file.");
+        }
+        byte[] header = new byte[BLOCK_HEADER_SIZE];
+        long records = 0;
+        int read;
+        while ((read = IOUtils.read(inputStream, header)) > 0) {
+            ByteBuffer blockHeader = readBlockHeader(header, read);
+            records += blockHeader.getInt();
+            IOUtils.skipFully(inputStream, blockHeader.getInt());
+        }
+        return records;
+    }
+
+    static ByteBuffer readBlockHeader(byte[] header, int read) throws IOException {
+        if (read < BLOCK_HEADER_SIZE) {
+            throw new EOFException("truncated block header.");
+        }
+        ByteBuffer blockHeader = ByteBuffer.wrap(header);
+        int rowCount = blockHeader.getInt(0);
+        int bodyLength = blockHeader.getInt(4);
+        if (rowCount < 0 || bodyLength < 0 || bodyLength > MAX_BODY_LENGTH || (long) rowCount * FIXED_BYTES_PER_ROW > bodyLength) {
+            throw new IOException(MessageFormat.format("corrupt block header, {0} rows in {1} bytes.", rowCount, bodyLength));
+        }
+        return blockHeader;
+    }
+}
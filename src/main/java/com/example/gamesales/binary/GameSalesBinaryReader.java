@@ -0,0 +1,233 @@
+package com.example.gamesales.binary;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Reads {@link GameSalesBinaryFormat} blocks from a stream.
+ * <p>
+ * Each block body is read into one reusable buffer and its columns are exposed as {@link LongBuffer}, {@link IntBuffer}
+ * and {@link DoubleBuffer} views of it, rows are copied from the views straight into a {@link GameSalesBatch}
+ * without any text parsing.
+ */
+public class GameSalesBinaryReader {
+    private static final DateTimeFormatter DATE_OF_SALE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    private final InputStream source;
+    private final byte[] header = new byte[GameSalesBinaryFormat.BLOCK_HEADER_SIZE];
+    private final Dictionary gameNames = new Dictionary();
+    private final Dictionary gameCodes = new Dictionary();
+    private byte[] bodyBytes = new byte[0];
+    private ByteBuffer body;
+    private long blockOffset;
+    private long nextBlockOffset;
+    private int rowCount;
+
+    private LongBuffer sourceIds;
+    private IntBuffer gameNos;
+    private IntBuffer types;
+    private DoubleBuffer costPrices;
+    private DoubleBuffer taxes;
+    private DoubleBuffer salePrices;
+    private LongBuffer datesOfSale;
+    private IntBuffer gameNameIndexes;
+    private IntBuffer gameCodeIndexes;
+
+    public GameSalesBinaryReader(InputStream source) {
+        this.source = source;
+    }
+
+    public void readMagic() throws IOException {
+        byte[] magic = new byte[GameSalesBinaryFormat.MAGIC.length];
+        if (!GameSalesBinaryFormat.hasMagic(magic, IOUtils.read(source, magic))) {
+            throw new IOException("not a game sales binary file.");
+        }
+        nextBlockOffset = magic.length;
+    }
+
+    /**
+     * Reads the next block.
+     *
+     * @return false once the input is exhausted
+     */
+    public boolean nextBlock() throws IOException {
+        int read = IOUtils.read(source, header);
+        if (read == 0) {
+            return false;
+        }
+        ByteBuffer blockHeader = GameSalesBinaryFormat.readBlockHeader(header, read);
+        blockOffset = nextBlockOffset;
+        rowCount = blockHeader.getInt(0);
+        int bodyLength = blockHeader.getInt(4);
+        if (bodyBytes.length < bodyLength) {
+            bodyBytes = new byte[bodyLength];
+        }
+        IOUtils.readFully(source, bodyBytes, 0, bodyLength);
+        nextBlockOffset = blockOffset + GameSalesBinaryFormat.BLOCK_HEADER_SIZE + bodyLength;
+        body = ByteBuffer.wrap(bodyBytes, 0, bodyLength);
+        try {
+            sourceIds = longColumn();
+            gameNos = intColumn();
+            types = intColumn();
+            costPrices = doubleColumn();
+            taxes = doubleColumn();
+            salePrices = doubleColumn();
+            datesOfSale = longColumn();
+            gameNames.read(body);
+            gameNameIndexes = intColumn();
+            gameCodes.read(body);
+            gameCodeIndexes = intColumn();
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new IOException(MessageFormat.format("corrupt block at offset {0}.", blockOffset), e);
+        }
+        return true;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Offset of the current block in the file.
+     */
+    public long getBlockOffset() {
+        return blockOffset;
+    }
+
+    /**
+     * Copies row {@code index} of the current block into a new row of the batch.
+     *
+     * @return the batch row, or -1 when a dictionary index of the row is out of range
+     */
+    public int decodeRow(int index, GameSalesBatch batch) {
+        int gameName = gameNameIndexes.get(index);
+        int gameCode = gameCodeIndexes.get(index);
+        if (!gameNames.contains(gameName) || !gameCodes.contains(gameCode)) {
+            return -1;
+        }
+        int row = batch.addRow();
+        batch.setSourceId(row, sourceIds.get(index));
+        batch.setGameNo(row, gameNos.get(index));
+        batch.setType(row, types.get(index));
+        batch.setCostPrice(row, costPrices.get(index));
+        batch.setTax(row, taxes.get(index));
+        batch.setSalePrice(row, salePrices.get(index));
+        batch.setDateOfSaleMicros(row, datesOfSale.get(index));
+        batch.setGameName(row, body, gameNames.start(gameName), gameNames.end(gameName));
+        batch.setGameCode(row, body, gameCodes.start(gameCode), gameCodes.end(gameCode));
+        return row;
+    }
+
+    /**
+     * Row {@code index} rendered as a csv line, kept as the raw line of an invalid record.
+     */
+    public byte[] toCsvLine(int index) {
+        StringBuilder line = new StringBuilder(96);
+        long sourceId = sourceIds.get(index);
+        if (sourceId != GameSalesBatch.NO_SOURCE_ID) {
+            line.append(sourceId);
+        }
+        line.append(',').append(gameNos.get(index)).append(',');
+        appendString(line, gameNames, gameNameIndexes.get(index));
+        line.append(',');
+        appendString(line, gameCodes, gameCodeIndexes.get(index));
+        line.append(',').append(types.get(index))
+                .append(',').append(costPrices.get(index))
+                .append(',').append(taxes.get(index))
+                .append(',').append(salePrices.get(index))
+                .append(',');
+        long micros = datesOfSale.get(index);
+        line.append(LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC).format(DATE_OF_SALE_FORMAT));
+        return line.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void appendString(StringBuilder line, Dictionary dictionary, int entry) {
+        if (!dictionary.contains(entry)) {
+            line.append('#').append(entry);
+            return;
+        }
+        String value = new String(bodyBytes, dictionary.start(entry), dictionary.end(entry) - dictionary.start(entry), StandardCharsets.UTF_8);
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        } else {
+            line.append(value);
+        }
+    }
+
+    private LongBuffer longColumn() {
+        LongBuffer column = body.slice().asLongBuffer();
+        column.limit(rowCount);
+        body.position(body.position() + rowCount * Long.BYTES);
+        return column;
+    }
+
+    private IntBuffer intColumn() {
+        IntBuffer column = body.slice().asIntBuffer();
+        column.limit(rowCount);
+        body.position(body.position() + rowCount * Integer.BYTES);
+        return column;
+    }
+
+    private DoubleBuffer doubleColumn() {
+        DoubleBuffer column = body.slice().asDoubleBuffer();
+        column.limit(rowCount);
+        body.position(body.position() + rowCount * Double.BYTES);
+        return column;
+    }
+
+    /**
+     * Entry boundaries of one block dictionary, as indexes into the block body.
+     */
+    private static class Dictionary {
+        private int[] starts = new int[1];
+        private int count;
+
+        void read(ByteBuffer body) {
+            count = body.getInt();
+            if (count < 0) {
+                throw new IllegalArgumentException("negative dictionary size");
+            }
+            if (count > body.remaining() / Integer.BYTES) {
+                throw new IllegalArgumentException("dictionary size exceeds the block");
+            }
+            if (starts.length < count + 1) {
+                starts = Arrays.copyOf(starts, count + 1);
+            }
+            starts[0] = body.position() + count * Integer.BYTES;
+            for (int i = 0; i < count; i++) {
+                int length = body.getInt();
+                if (length < 0) {
+                    throw new IllegalArgumentException("negative dictionary entry length");
+                }
+                starts[i + 1] = starts[i] + length;
+            }
+            body.position(starts[count]);
+        }
+
+        boolean contains(int entry) {
+            return entry >= 0 && entry < count;
+        }
+
+        int start(int entry) {
+            return starts[entry];
+        }
+
+        int end(int entry) {
+            return starts[entry + 1];
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.gamesales.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes game_sales rows in {@link GameSalesBinaryFormat} for producers that already hold typed data.
+ * Rows are buffered column by column and written as one block every {@code rowsPerBlock} rows, {@link #close()} writes the last one.
+ * <pre>
+ * try (GameSalesBinaryWriter writer = new GameSalesBinaryWriter(Files.newOutputStream(path))) {
+ *     writer.write(1L, 77, "vwwsztutmcxiwmrywkjo", "tfqqf", 1, 77.00, 0.09, 83.93, LocalDateTime.of(2024, 4, 19, 7, 31, 41));
+ * }
+ * </pre>
+ * Not thread safe.
+ */
+public class GameSalesBinaryWriter implements Closeable {
+    public static final int DEFAULT_ROWS_PER_BLOCK = 65536;
+
+    private final DataOutputStream outputStream;
+    private final int rowsPerBlock;
+    private final long[] sourceIds;
+    private final int[] gameNos;
+    private final int[] types;
+    private final double[] costPrices;
+    private final double[] taxes;
+    private final double[] salePrices;
+    private final long[] datesOfSale;
+    private final int[] gameNameIndexes;
+    private final int[] gameCodeIndexes;
+    private final BlockDictionary gameNames = new BlockDictionary();
+    private final BlockDictionary gameCodes = new BlockDictionary();
+    private int rows;
+
+    public GameSalesBinaryWriter(OutputStream outputStream) throws IOException {
+        this(outputStream, DEFAULT_ROWS_PER_BLOCK);
+    }
+
+    public GameSalesBinaryWriter(OutputStream outputStream, int rowsPerBlock) throws IOException {
+        if (rowsPerBlock <= 0) {
+            throw new IllegalArgumentException("rowsPerBlock must be positive");
+        }
+        this.outputStream = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+        this.rowsPerBlock = rowsPerBlock;
+        this.sourceIds = new long[rowsPerBlock];
+        this.gameNos = new int[rowsPerBlock];
+        this.types = new int[rowsPerBlock];
+        this.costPrices = new double[rowsPerBlock];
+        this.taxes = new double[rowsPerBlock];
+        this.salePrices = new double[rowsPerBlock];
+        this.datesOfSale = new long[rowsPerBlock];
+        this.gameNameIndexes = new int[rowsPerBlock];
+        this.gameCodeIndexes = new int[rowsPerBlock];
+        this.outputStream.write(GameSalesBinaryFormat.MAGIC);
+    }
+
+    /**
+     * @param sourceId the csv id of the row, null when it has none
+     */
+    public void write(Long sourceId, int gameNo, String gameName, String gameCode, int type, double costPrice, double tax, double salePrice, LocalDateTime dateOfSale) throws IOException {
+        long dateOfSaleMicros = dateOfSale.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateOfSale.getNano() / 1000;
+        write(sourceId == null ? Long.MIN_VALUE : sourceId, gameNo, gameName, gameCode, type, costPrice, tax, salePrice, dateOfSaleMicros);
+    }
+
+    /**
+     * @param sourceId         the csv id of the row, {@code Long.MIN_VALUE} when it has none
+     * @param dateOfSaleMicros epoch micros of the local date time of sale read as UTC
+     */
+    public void write(long sourceId, int gameNo, String gameName, String gameCode, int type, double costPrice, double tax, double salePrice, long dateOfSaleMicros) throws IOException {
+        sourceIds[rows] = sourceId;
+        gameNos[rows] = gameNo;
+        types[rows] = type;
+        costPrices[rows] = costPrice;
+        taxes[rows] = tax;
+        salePrices[rows] = salePrice;
+        datesOfSale[rows] = dateOfSaleMicros;
+        gameNameIndexes[rows] = gameNames.indexOf(gameName);
+        gameCodeIndexes[rows] = gameCodes.indexOf(gameCode);
+        if (++rows == rowsPerBlock) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes the rows buffered so far as a block and flushes the stream.
+     */
+    public void flush() throws IOException {
+        writeBlock();
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        long bodyLength = (long) rows * GameSalesBinaryFormat.FIXED_BYTES_PER_ROW + gameNames.getEncodedLength() + gameCodes.getEncodedLength();
+        if (bodyLength > GameSalesBinaryFormat.MAX_BODY_LENGTH) {
+            throw new IOException("block of " + bodyLength + " bytes is too large, use fewer rows per block.");
+        }
+        outputStream.writeInt(rows);
+        outputStream.writeInt((int) bodyLength);
+        for (int i = 0; i < rows; i++) {
+            outputStream.writeLong(sourceIds[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            outputStream.writeInt(gameNos[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            outputStream.writeInt(types[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            outputStream.writeDouble(costPrices[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            outputStream.writeDouble(taxes[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            outputStream.writeDouble(salePrices[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            outputStream.writeLong(datesOfSale[i]);
+        }
+        gameNames.write(outputStream);
+        for (int i = 0; i < rows; i++) {
+            outputStream.writeInt(gameNameIndexes[i]);
+        }
+        gameCodes.write(outputStream);
+        for (int i = 0; i < rows; i++) {
+            outputStream.writeInt(gameCodeIndexes[i]);
+        }
+        rows = 0;
+        gameNames.clear();
+        gameCodes.clear();
+    }
+
+    private static class BlockDictionary {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<byte[]> entries = new ArrayList<>();
+        private long bytes;
+
+        int indexOf(String value) {
+            String key = value == null ? "" : value;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                byte[] entry = key.getBytes(StandardCharsets.UTF_8);
+                index = entries.size();
+                indexes.put(key, index);
+                entries.add(entry);
+                bytes += entry.length;
+            }
+            return index;
+        }
+
+        long getEncodedLength() {
+            return Integer.BYTES + (long) entries.size() * Integer.BYTES + bytes;
+        }
+
+        void write(DataOutputStream outputStream) throws IOException {
+            outputStream.writeInt(entries.size());
+            for (byte[] entry : entries) {
+                outputStream.writeInt(entry.length);
+            }
+            for (byte[] entry : entries) {
+                outputStream.write(entry);
+            }
+        }
+
+        void clear() {
+            indexes.clear();
+            entries.clear();
+            bytes = 0;
+        }
+    }
+}
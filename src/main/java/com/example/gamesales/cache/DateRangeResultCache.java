@@ -0,0 +1,134 @@
+package com.example.gamesales.cache;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of query results, each tagged with the date_of_sale range the query reads.
+ * <p>
+ * Entries are dropped when rows inside their range are imported ({@link #invalidate}), when the cache holds more than
+ * {@code maxEntries} results, and optionally {@code ttlNanos} after they were cached. A result computed while an import
+ * committed is returned but not cached, it may have read the rows of only part of that import.
+ */
+public class DateRangeResultCache {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    // guarded by this, changes with every invalidation
+    private long generation;
+
+    /**
+     * @param ttlNanos 0 keeps entries until they are invalidated or evicted
+     */
+    public DateRangeResultCache(int maxEntries, long ttlNanos, LongSupplier nanoClock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns the cached result of {@code key}, or loads it outside the cache lock and caches it.
+     *
+     * @param from first date_of_sale the query reads, null for no lower bound
+     * @param to   last date_of_sale the query reads, null for no upper bound
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, LocalDateTime from, LocalDateTime to, Supplier<T> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (ttlNanos <= 0 || nanoClock.getAsLong() - entry.cachedAtNanos < ttlNanos) {
+                    hits.increment();
+                    return (T) entry.value;
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+            misses.increment();
+            loadGeneration = generation;
+        }
+        T value = loader.get();
+        synchronized (this) {
+            if (generation == loadGeneration && value != null) {
+                entries.put(key, new Entry(value, from, to, nanoClock.getAsLong()));
+                if (entries.size() > maxEntries) {
+                    Iterator<Entry> eldest = entries.values().iterator();
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Drops every result whose range overlaps {@code [from, to]}.
+     *
+     * @return number of dropped results
+     */
+    public synchronized int invalidate(LocalDateTime from, LocalDateTime to) {
+        generation++;
+        int dropped = 0;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if ((entry.from == null || !entry.from.isAfter(to)) && (entry.to == null || !entry.to.isBefore(from))) {
+                iterator.remove();
+                dropped++;
+            }
+        }
+        invalidations.add(dropped);
+        return dropped;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final long cachedAtNanos;
+
+        private Entry(Object value, LocalDateTime from, LocalDateTime to, long cachedAtNanos) {
+            this.value = value;
+            this.from = from;
+            this.to = to;
+            this.cachedAtNanos = cachedAtNanos;
+        }
+    }
+}
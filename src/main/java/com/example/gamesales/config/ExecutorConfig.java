@@ -3,17 +3,40 @@ package com.example.gamesales.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
 
 @Configuration
 public class ExecutorConfig {
     @Value("${com.example.gamesales.import.threadpoolsize:20}")
     private int threadPoolSize;
 
+    @Value("${com.example.gamesales.import.parsepoolsize:0}")
+    private int parsePoolSize;
+
     @Bean
+    @Primary
     public ExecutorService executorService() {
         return Executors.newFixedThreadPool(threadPoolSize);
     }
+
+    @Bean
+    public ForkJoinPool parsePool() {
+        // 0 means one parser thread per available core
+        return new ForkJoinPool(parsePoolSize > 0 ? parsePoolSize : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService progressScheduler() {
+        // periodic progress work of import jobs, short tasks only
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "import-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 }
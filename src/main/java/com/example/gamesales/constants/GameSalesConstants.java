@@ -12,11 +12,51 @@ public class GameSalesConstants {
     public static final String DATE_OF_SALE_COLUMN_NAME = "date_of_sale";
     public static final String SORT_DIR_DESC = "desc";
     public static final String SORT_DIR_ASC = "asc";
+    public static final String PAGINATION_OFFSET = "offset";
+    public static final String PAGINATION_KEYSET = "keyset";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String COUNT_STRATEGY_NONE = "none";
+    public static final String COUNT_STRATEGY_EXACT = "exact";
+    public static final String COUNT_STRATEGY_ESTIMATE = "estimate";
     public static final String CATEGORY_TOTAL_SALES = "totalSales";
     public static final String CATEGORY_TOTAL_GAMES_COUNT = "totalGamesCount";
     public static final String FROM = "from";
     public static final String TO = "to";
     public static final String CATEGORY = "category";
     public static final String ID = "id";
+    public static final String IMPORT_MODE_STREAMING = "streaming";
+    public static final String IMPORT_MODE_PARALLEL = "parallel";
+    public static final String GAME_SALES_TABLE = "game_sales";
+    /** data columns of game_sales in the order the sinks bind them */
+    public static final String GAME_SALES_COLUMNS = "game_no, game_name, game_code, type, cost_price, tax, sale_price, date_of_sale";
+    /** columns written by upserts, keyed on source_id */
+    public static final String GAME_SALES_UPSERT_COLUMNS = "source_id, row_hash, " + GAME_SALES_COLUMNS;
+    public static final String GAME_SALES_ON_DUPLICATE_KEY_UPDATE = " ON DUPLICATE KEY UPDATE row_hash = VALUES(row_hash), game_no = VALUES(game_no), game_name = VALUES(game_name),"
+            + " game_code = VALUES(game_code), type = VALUES(type), cost_price = VALUES(cost_price), tax = VALUES(tax), sale_price = VALUES(sale_price), date_of_sale = VALUES(date_of_sale)";
+    public static final String GAME_SALES_DAILY_TABLE = "game_sales_daily";
+    public static final String GAME_SALES_DAILY_PENDING_TABLE = "game_sales_daily_pending";
+    public static final String PUBLISH_MODE_DIRECT = "direct";
+    public static final String PUBLISH_MODE_STAGED = "staged";
+    public static final String IMPORT_ENGINE_JDBC = "jdbc";
+    public static final String IMPORT_ENGINE_MULTIROW = "multirow";
+    public static final String IMPORT_ENGINE_LOAD_DATA = "loaddata";
+    /** internal engine of upsert imports, not accepted as importEngine */
+    public static final String IMPORT_ENGINE_UPSERT = "upsert";
+    public static final String WRITE_MODE_APPEND = "append";
+    public static final String WRITE_MODE_UPSERT = "upsert";
+    public static final String COMPRESSION_NONE = "none";
+    public static final String COMPRESSION_GZIP = "gzip";
+    public static final String COMPRESSION_DEFLATE = "deflate";
+    public static final String FILE_FORMAT_CSV = "csv";
+    /** {@link com.example.gamesales.binary.GameSalesBinaryFormat} */
+    public static final String FILE_FORMAT_BINARY = "binary";
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_IN_PROGRESS = "IN_PROGRESS";
+    public static final String STATUS_PUBLISHING = "PUBLISHING";
+    public static final String STATUS_REBUILDING_INDEXES = "REBUILDING_INDEXES";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_ERROR = "ERROR";
+    public static final String STATUS_REJECTED = "REJECTED";
+    public static final String STATUS_FAILED = "FAILED";
     public static final String PARAMS_MAPPING_ERROR_ENCOUNTERED_CONTACT_ADMIN = "params mapping error encountered, contact admin.";
 }
@@ -0,0 +1,40 @@
+package com.example.gamesales.constants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reasons a csv record ends up in invalid_record, stored together as the bitmask {@code invalid_record.reason_mask}.
+ * A field bit is set both when the field cannot be parsed and when its value fails validation.
+ */
+public enum InvalidRecordReason {
+    SOURCE_ID,
+    GAME_NO,
+    GAME_NAME,
+    GAME_CODE,
+    TYPE,
+    COST_PRICE,
+    TAX,
+    SALE_PRICE,
+    DATE_OF_SALE,
+    /** the record could not be split into 9 columns, no field bit is set */
+    MALFORMED_RECORD;
+
+    public int getBit() {
+        return 1 << ordinal();
+    }
+
+    public boolean isSetIn(int reasonMask) {
+        return (reasonMask & getBit()) != 0;
+    }
+
+    public static List<InvalidRecordReason> fromMask(int reasonMask) {
+        List<InvalidRecordReason> reasons = new ArrayList<>();
+        for (InvalidRecordReason reason : values()) {
+            if (reason.isSetIn(reasonMask)) {
+                reasons.add(reason);
+            }
+        }
+        return reasons;
+    }
+}
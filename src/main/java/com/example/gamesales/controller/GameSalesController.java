@@ -2,43 +2,168 @@ package com.example.gamesales.controller;
 
 
 import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.entity.AnalyticsStatusEntity;
+import com.example.gamesales.entity.GameSalesCursorEntity;
+import com.example.gamesales.entity.GameSalesPageEntity;
 import com.example.gamesales.entity.GameSalesParamsEntity;
+import com.example.gamesales.entity.QueryCacheStatsEntity;
 import com.example.gamesales.entity.TotalSalesParamsEntity;
+import com.example.gamesales.entity.ValidationRuleStatsEntity;
+import com.example.gamesales.service.ChunkedUploadService;
+import com.example.gamesales.service.GameSalesRollupService;
 import com.example.gamesales.service.GameSalesService;
+import com.example.gamesales.service.ImportEventService;
+import com.example.gamesales.service.ImportService;
+import com.example.gamesales.service.InvalidRecordService;
+import com.example.gamesales.service.QueryResultCacheService;
+import com.example.gamesales.service.SalesAnalyticsService;
+import com.example.gamesales.task.AdaptiveBatchSettings;
 import com.example.gamesales.validators.ValidatorService;
 import com.example.gamesales.view.GameSalesView;
+import com.example.gamesales.view.ProgressTrackingView;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @Slf4j
 public class GameSalesController {
 
     private final GameSalesService gameSalesService;
+    private final ImportService importService;
+    private final ImportEventService importEventService;
+    private final InvalidRecordService invalidRecordService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final QueryResultCacheService queryResultCacheService;
+    private final GameSalesRollupService gameSalesRollupService;
     private final ValidatorService validatorService;
 
     @Autowired
-    public GameSalesController(GameSalesService gameSalesService, ValidatorService validatorService) {
+    public GameSalesController(GameSalesService gameSalesService, ImportService importService, ImportEventService importEventService, InvalidRecordService invalidRecordService, ChunkedUploadService chunkedUploadService, SalesAnalyticsService salesAnalyticsService,
+                              QueryResultCacheService queryResultCacheService, GameSalesRollupService gameSalesRollupService, ValidatorService validatorService) {
         this.gameSalesService = gameSalesService;
+        this.importService = importService;
+        this.importEventService = importEventService;
+        this.invalidRecordService = invalidRecordService;
+        this.chunkedUploadService = chunkedUploadService;
+        this.salesAnalyticsService = salesAnalyticsService;
+        this.queryResultCacheService = queryResultCacheService;
+        this.gameSalesRollupService = gameSalesRollupService;
         this.validatorService = validatorService;
     }
 
     @PostMapping("/import")
-    public ResponseEntity<String> importCsv(@RequestParam MultipartFile csvFile) {
+    public ResponseEntity<ProgressTrackingView> importCsv(@RequestParam MultipartFile csvFile,
+                                                          @RequestParam(required = false, defaultValue = GameSalesConstants.IMPORT_MODE_STREAMING) String importMode,
+                                                          @RequestParam(required = false, defaultValue = GameSalesConstants.IMPORT_ENGINE_JDBC) String importEngine,
+                                                          @RequestParam(required = false, defaultValue = GameSalesConstants.PUBLISH_MODE_DIRECT) String publishMode,
+                                                          @RequestParam(required = false, defaultValue = GameSalesConstants.WRITE_MODE_APPEND) String writeMode,
+                                                          @RequestParam(required = false, defaultValue = "false") boolean bulkLoad) {
         int totalRecordCount = validatorService.validateCsvFile(csvFile);
-        gameSalesService.save(csvFile, totalRecordCount);
-        return ResponseEntity.ok().body("csv import success.");
+        validatorService.validateImportMode(importMode);
+        validatorService.validateImportEngine(importEngine);
+        validatorService.validatePublishMode(publishMode);
+        validatorService.validateWriteMode(writeMode, importEngine);
+        ProgressTrackingView progressTrackingView = importService.submitImport(csvFile, totalRecordCount, importMode, importEngine, publishMode, writeMode, bulkLoad);
+        if (GameSalesConstants.STATUS_COMPLETED.equals(progressTrackingView.getStatus())) {
+            // the same file was imported before, nothing was queued
+            return ResponseEntity.ok().body(progressTrackingView);
+        }
+        return ResponseEntity.accepted().body(progressTrackingView);
+    }
+
+    @PostMapping("/import/chunked")
+    public ResponseEntity<ProgressTrackingView> initiateChunkedImport(@RequestParam(required = false, defaultValue = "0") int totalRecordsCount,
+                                                                      @RequestParam(required = false, defaultValue = GameSalesConstants.IMPORT_MODE_STREAMING) String importMode,
+                                                                      @RequestParam(required = false, defaultValue = GameSalesConstants.IMPORT_ENGINE_JDBC) String importEngine,
+                                                                      @RequestParam(required = false, defaultValue = GameSalesConstants.PUBLISH_MODE_DIRECT) String publishMode,
+                                                                      @RequestParam(required = false, defaultValue = GameSalesConstants.WRITE_MODE_APPEND) String writeMode,
+                                                                      @RequestParam(required = false, defaultValue = "false") boolean bulkLoad) {
+        validatorService.validateImportMode(importMode);
+        validatorService.validateImportEngine(importEngine);
+        validatorService.validatePublishMode(publishMode);
+        validatorService.validateWriteMode(writeMode, importEngine);
+        return ResponseEntity.accepted().body(importService.submitChunkedImport(totalRecordsCount, importMode, importEngine, publishMode, writeMode, bulkLoad));
+    }
+
+    @PostMapping(value = "/import/stream", consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, "text/csv"})
+    public ResponseEntity<ProgressTrackingView> importStream(InputStream body,
+                                                             @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false, defaultValue = "-1") long contentLength,
+                                                             @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+                                                             @RequestParam(required = false, defaultValue = GameSalesConstants.IMPORT_ENGINE_JDBC) String importEngine,
+                                                             @RequestParam(required = false, defaultValue = GameSalesConstants.PUBLISH_MODE_DIRECT) String publishMode,
+                                                             @RequestParam(required = false, defaultValue = GameSalesConstants.WRITE_MODE_APPEND) String writeMode) {
+        String compression = validatorService.validateContentEncoding(contentEncoding);
+        validatorService.validateImportEngine(importEngine);
+        validatorService.validatePublishMode(publishMode);
+        validatorService.validateWriteMode(writeMode, importEngine);
+        return ResponseEntity.accepted().body(importService.submitStreamedImport(body, contentLength, compression, importEngine, publishMode, writeMode));
+    }
+
+    @PutMapping("/import/{id}/chunks/{chunkNumber}")
+    public ResponseEntity<HashMap<String, Object>> uploadChunk(@PathVariable Long id, @PathVariable int chunkNumber, InputStream chunk) {
+        return ResponseEntity.ok().body(chunkedUploadService.storeChunk(id, chunkNumber, chunk));
+    }
+
+    @PostMapping("/import/{id}/complete")
+    public ResponseEntity<ProgressTrackingView> completeChunkedImport(@PathVariable Long id, @RequestParam int totalChunks) {
+        return ResponseEntity.ok().body(chunkedUploadService.complete(id, totalChunks));
+    }
+
+    @GetMapping("/import/validation-rules")
+    public ResponseEntity<List<ValidationRuleStatsEntity>> getValidationRuleStats() {
+        return ResponseEntity.ok().body(validatorService.getValidationRuleStats());
+    }
+
+    @GetMapping("/import/{id}")
+    public ResponseEntity<ProgressTrackingView> getImport(@PathVariable Long id) {
+        return ResponseEntity.ok().body(importService.getImport(id));
+    }
+
+    @GetMapping("/import/{id}/settings")
+    public ResponseEntity<AdaptiveBatchSettings> getImportSettings(@PathVariable Long id) {
+        return ResponseEntity.ok().body(importService.getImportSettings(id));
+    }
+
+    @GetMapping(value = "/import/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamImportEvents(@PathVariable Long id) {
+        return importEventService.subscribe(id);
+    }
+
+    @GetMapping("/import/{id}/validation-rules")
+    public ResponseEntity<List<ValidationRuleStatsEntity>> getImportValidationRuleStats(@PathVariable Long id) {
+        return ResponseEntity.ok().body(importService.getValidationRuleStats(id));
+    }
+
+    @GetMapping("/import/{id}/invalid-reasons")
+    public ResponseEntity<HashMap<String, Object>> getInvalidReasons(@PathVariable Long id) {
+        return ResponseEntity.ok().body(invalidRecordService.getReasonBreakdown(id));
+    }
+
+    @PostMapping("/import/{id}/resume")
+    public ResponseEntity<ProgressTrackingView> resumeImport(@PathVariable Long id) {
+        return ResponseEntity.accepted().body(importService.resumeImport(id));
     }
 
     @GetMapping("/getGameSales")
@@ -46,15 +171,56 @@ public class GameSalesController {
             @RequestParam(name = "params", required = false) String params,
             @PageableDefault(size = 100) Pageable pageable,
             @RequestParam(required = false, defaultValue = GameSalesConstants.DATE_OF_SALE_COLUMN_NAME) String sortField,
-            @RequestParam(required = false, defaultValue = GameSalesConstants.SORT_DIR_DESC) String sortDir) {
+            @RequestParam(required = false, defaultValue = GameSalesConstants.SORT_DIR_DESC) String sortDir,
+            @RequestParam(required = false, defaultValue = GameSalesConstants.PAGINATION_OFFSET) String pagination,
+            @RequestParam(required = false) String cursor) {
         GameSalesParamsEntity gameSalesParamsEntity = validatorService.validateGetGameSalesRequest(params, sortField, sortDir);
+        validatorService.validatePagination(pagination);
+        if (GameSalesConstants.PAGINATION_KEYSET.equalsIgnoreCase(pagination) || StringUtils.isNotBlank(cursor)) {
+            GameSalesCursorEntity gameSalesCursorEntity = StringUtils.isNotBlank(cursor) ? validatorService.validateCursor(cursor, sortField, sortDir) : null;
+            GameSalesPageEntity gameSalesPageEntity = gameSalesService.getGameSalesAfter(gameSalesParamsEntity, sortField, sortDir, gameSalesCursorEntity, pageable.getPageSize());
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (gameSalesPageEntity.getNextCursor() != null) {
+                response.header(GameSalesConstants.NEXT_CURSOR_HEADER, gameSalesPageEntity.getNextCursor());
+            }
+            return response.body(gameSalesPageEntity.getGameSales());
+        }
         return ResponseEntity.ok().body(gameSalesService.getGameSalesWith(gameSalesParamsEntity, sortField, sortDir, pageable.getPageNumber(), pageable.getPageSize()));
     }
 
+    @GetMapping("/getGameSalesPage")
+    public ResponseEntity<Slice<GameSalesView>> getGameSalesPage(
+            @RequestParam(name = "params", required = false) String params,
+            @PageableDefault(size = 100) Pageable pageable,
+            @RequestParam(required = false, defaultValue = GameSalesConstants.DATE_OF_SALE_COLUMN_NAME) String sortField,
+            @RequestParam(required = false, defaultValue = GameSalesConstants.SORT_DIR_DESC) String sortDir,
+            @RequestParam(required = false, defaultValue = GameSalesConstants.COUNT_STRATEGY_EXACT) String countStrategy) {
+        GameSalesParamsEntity gameSalesParamsEntity = validatorService.validateGetGameSalesRequest(params, sortField, sortDir);
+        validatorService.validateCountStrategy(countStrategy);
+        return ResponseEntity.ok().body(gameSalesService.getGameSalesPageWith(gameSalesParamsEntity, sortField, sortDir, pageable, countStrategy));
+    }
+
+    @GetMapping("/analytics/status")
+    public ResponseEntity<AnalyticsStatusEntity> getAnalyticsStatus() {
+        return ResponseEntity.ok().body(salesAnalyticsService.getStatus());
+    }
+
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<HashMap<String, Object>> rebuildRollup() {
+        HashMap<String, Object> response = new HashMap<>();
+        response.put("rollupRows", gameSalesRollupService.rebuild());
+        return ResponseEntity.ok().body(response);
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<QueryCacheStatsEntity> getQueryCacheStats() {
+        return ResponseEntity.ok().body(queryResultCacheService.getStats());
+    }
+
     @GetMapping("/getTotalSales")
-    public ResponseEntity<HashMap<String, Object>> getTotalSales(@RequestParam String params) {
+    public ResponseEntity<Map<String, Object>> getTotalSales(@RequestParam String params) {
         TotalSalesParamsEntity totalSalesParamsEntity = validatorService.validateTotalSalesRequest(params);
-        HashMap<String, Object> response = gameSalesService.getTotalSalesWith(totalSalesParamsEntity);
+        Map<String, Object> response = gameSalesService.getTotalSalesWith(totalSalesParamsEntity);
         return ResponseEntity.ok().body(response);
     }
 }
@@ -0,0 +1,24 @@
+package com.example.gamesales.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * State and memory use of the in-process sales analytics engine.
+ */
+@Getter
+@Setter
+@ToString
+public class AnalyticsStatusEntity {
+    private String state;
+    /** rows of the merged, sorted columns */
+    private long rows;
+    /** rows appended since the last merge */
+    private long deltaRows;
+    private long memoryBytes;
+    private LocalDateTime loadedAt;
+    private long loadMillis;
+}
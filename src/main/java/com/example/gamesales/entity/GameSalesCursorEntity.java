@@ -0,0 +1,20 @@
+package com.example.gamesales.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Position after the last row of a keyset page: the sort column value and id of that row, and the order the page was read in.
+ * Sent to clients as an opaque token, see {@link com.example.gamesales.util.GameSalesUtil#encodeCursor(GameSalesCursorEntity)}.
+ */
+@Getter
+@Setter
+@ToString
+public class GameSalesCursorEntity {
+    private String sortField;
+    private String sortDir;
+    private long id;
+    /** sort column value of the last row, as text */
+    private String value;
+}
@@ -0,0 +1,17 @@
+package com.example.gamesales.entity;
+
+import com.example.gamesales.view.GameSalesView;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A keyset page of game sales and the cursor of the page after it, null on the last page.
+ */
+@Getter
+@Setter
+public class GameSalesPageEntity {
+    private List<GameSalesView> gameSales;
+    private String nextCursor;
+}
@@ -0,0 +1,22 @@
+package com.example.gamesales.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * One committed batch of an import job, see the import_checkpoint table.
+ */
+@Getter
+@Setter
+@ToString
+public class ImportCheckpointEntity {
+    private Long progressTrackViewId;
+    private long firstRecordNumber;
+    private long lastRecordNumber;
+    private long startOffset;
+    private long endOffset;
+    private int validRecordsCount;
+    private int invalidRecordsCount;
+    private int skippedRecordsCount;
+}
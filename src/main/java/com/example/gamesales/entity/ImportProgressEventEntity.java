@@ -0,0 +1,26 @@
+package com.example.gamesales.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Payload of the progress events sent by GET /import/{id}/events.
+ */
+@Getter
+@Setter
+@ToString
+public class ImportProgressEventEntity {
+    private Long id;
+    private String status;
+    private Integer totalRecordsCount;
+    private Integer processedRecordsCount;
+    private Integer invalidRecordsCount;
+    private Integer skippedRecordsCount;
+    private Long totalBytes;
+    private Long processedBytes;
+    /** csv records per second of the current run, null while the job is not inserting */
+    private Double recordsPerSecond;
+    /** estimated seconds until every record is inserted, null when unknown */
+    private Long etaSeconds;
+}
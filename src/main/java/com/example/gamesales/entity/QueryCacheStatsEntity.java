@@ -0,0 +1,27 @@
+package com.example.gamesales.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Size and hit statistics of the query result cache since the application started.
+ */
+@Getter
+@Setter
+@ToString
+public class QueryCacheStatsEntity {
+    private boolean enabled;
+    private int entries;
+    private int maxEntries;
+    private long ttlMillis;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    /** results dropped because the cache was full */
+    private long evictions;
+    /** results dropped because they outlived the ttl */
+    private long expirations;
+    /** results dropped because an import committed rows in their date range */
+    private long invalidations;
+}
@@ -0,0 +1,16 @@
+package com.example.gamesales.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Sales count and total sale price over a date range, totalSales is null when no sale matched.
+ */
+@Getter
+@Setter
+@ToString
+public class SalesTotalsEntity {
+    private long salesCount;
+    private Double totalSales;
+}
@@ -0,0 +1,17 @@
+package com.example.gamesales.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Failure count of one configured validation rule.
+ */
+@Getter
+@Setter
+@ToString
+public class ValidationRuleStatsEntity {
+    private String rule;
+    private String reason;
+    private long failures;
+}
@@ -0,0 +1,18 @@
+package com.example.gamesales.parser;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Byte range of a csv file that starts and ends on a record boundary.
+ * {@code firstRecordNumber} is the csv record number of the first record inside the range, header excluded.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CsvChunk {
+    private final int start;
+    private final int end;
+    private final long firstRecordNumber;
+}
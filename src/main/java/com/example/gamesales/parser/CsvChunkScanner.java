@@ -0,0 +1,125 @@
+package com.example.gamesales.parser;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a csv buffer into {@link CsvChunk}s aligned to record boundaries.
+ * <p>
+ * A newline only ends a record when it is outside a quoted field, and whether a byte is quoted depends on every quote before it.
+ * Each fixed size slice is therefore scanned in parallel once for both possible starting quote states,
+ * and a cheap sequential pass over the per-slice summaries resolves the real state, the aligned boundary and the record number of every chunk.
+ * Blank lines are not counted as records, matching {@link org.apache.commons.csv.CSVParser} numbering.
+ */
+public class CsvChunkScanner {
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private CsvChunkScanner() {
+    }
+
+    public static List<CsvChunk> split(ByteBuffer buffer, int chunkSize, ExecutorService executorService) throws InterruptedException, ExecutionException {
+        return split(buffer, findHeaderEnd(buffer), 1, chunkSize, executorService);
+    }
+
+    /**
+     * Splits the data from {@code dataStart}, which must be a record boundary numbered {@code firstRecordNumber},
+     * e.g. the resume offset of an interrupted import.
+     */
+    public static List<CsvChunk> split(ByteBuffer buffer, int dataStart, long firstRecordNumber, int chunkSize, ExecutorService executorService) throws InterruptedException, ExecutionException {
+        int limit = buffer.limit();
+        List<Future<SliceSummary>> futures = new ArrayList<>();
+        for (int start = dataStart; start < limit; start += chunkSize) {
+            int sliceStart = start;
+            int sliceEnd = (int) Math.min((long) start + chunkSize, limit);
+            futures.add(executorService.submit((Callable<SliceSummary>) () -> summarise(buffer, sliceStart, sliceEnd)));
+        }
+
+        List<CsvChunk> chunks = new ArrayList<>();
+        int chunkStart = dataStart;
+        long chunkFirstRecordNumber = firstRecordNumber;
+        long recordsBefore = firstRecordNumber - 1;
+        int state = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            SliceSummary summary = futures.get(i).get();
+            if (i > 0 && summary.firstTerminator[state] >= 0) {
+                int boundary = summary.firstTerminator[state] + 1;
+                long boundaryRecordNumber = recordsBefore + summary.firstTerminatorRecords[state] + 1;
+                if (boundary > chunkStart) {
+                    chunks.add(new CsvChunk(chunkStart, boundary, chunkFirstRecordNumber));
+                    chunkStart = boundary;
+                    chunkFirstRecordNumber = boundaryRecordNumber;
+                }
+            }
+            recordsBefore += summary.records[state];
+            state ^= summary.quoteParity;
+        }
+        if (chunkStart < limit) {
+            chunks.add(new CsvChunk(chunkStart, limit, chunkFirstRecordNumber));
+        }
+        return chunks;
+    }
+
+    /**
+     * Position right after the header line, the header itself is never split.
+     */
+    private static int findHeaderEnd(ByteBuffer buffer) {
+        boolean quoted = false;
+        for (int i = 0; i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (b == QUOTE) {
+                quoted = !quoted;
+            } else if (b == LF && !quoted) {
+                return i + 1;
+            }
+        }
+        return buffer.limit();
+    }
+
+    private static SliceSummary summarise(ByteBuffer buffer, int start, int end) {
+        SliceSummary summary = new SliceSummary();
+        // quoted tracks starting state 0, starting state 1 is always its negation
+        boolean quoted = false;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == QUOTE) {
+                quoted = !quoted;
+            } else if (b == LF) {
+                int state = quoted ? 1 : 0;
+                if (!isBlankLine(buffer, i)) {
+                    summary.records[state]++;
+                }
+                if (summary.firstTerminator[state] < 0) {
+                    summary.firstTerminator[state] = i;
+                    summary.firstTerminatorRecords[state] = summary.records[state];
+                }
+            }
+        }
+        summary.quoteParity = quoted ? 1 : 0;
+        return summary;
+    }
+
+    private static boolean isBlankLine(ByteBuffer buffer, int newlineIndex) {
+        int previous = newlineIndex - 1;
+        if (previous >= 0 && buffer.get(previous) == CR) {
+            previous--;
+        }
+        return previous < 0 || buffer.get(previous) == LF;
+    }
+
+    /**
+     * Scan result of one slice, indexed by the quote state at the start of the slice (0 = unquoted, 1 = quoted).
+     */
+    private static class SliceSummary {
+        private final long[] records = new long[2];
+        private final int[] firstTerminator = {-1, -1};
+        private final long[] firstTerminatorRecords = new long[2];
+        private int quoteParity;
+    }
+}
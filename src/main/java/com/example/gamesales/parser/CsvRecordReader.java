@@ -0,0 +1,166 @@
+package com.example.gamesales.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Quote-aware csv record splitter working directly on bytes.
+ * <p>
+ * Reads either a range of an existing (memory-mapped) buffer or an {@link InputStream} through a reusable heap buffer,
+ * and exposes the current record as a {@code [recordStart, recordEnd)} range of {@link #getBuffer()} without line terminator.
+ * Nothing is allocated per record. Blank lines are skipped and not numbered, like {@link org.apache.commons.csv.CSVParser}.
+ */
+public class CsvRecordReader {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final InputStream source;
+    private ByteBuffer buffer;
+    private byte[] heapBuffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    /** absolute stream offset of buffer index 0 */
+    private long bufferOffset;
+
+    private int recordStart;
+    private int recordEnd;
+    private long recordNumber;
+    private long nextRecordOffset;
+
+    public CsvRecordReader(ByteBuffer source, int start, int end, long firstRecordNumber) {
+        this.source = null;
+        this.buffer = source;
+        this.position = start;
+        this.limit = end;
+        this.endOfInput = true;
+        this.recordNumber = firstRecordNumber - 1;
+        this.nextRecordOffset = start;
+    }
+
+    public CsvRecordReader(InputStream source) {
+        this(source, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvRecordReader(InputStream source, int bufferSize) {
+        this.source = source;
+        this.heapBuffer = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(heapBuffer);
+    }
+
+    /**
+     * Reads a stream already positioned at a record boundary {@code startOffset} of the file, e.g. when resuming an import.
+     * Offsets stay absolute to the file and the first record read is numbered {@code firstRecordNumber}.
+     */
+    public CsvRecordReader(InputStream source, long startOffset, long firstRecordNumber) {
+        this(source, DEFAULT_BUFFER_SIZE);
+        this.bufferOffset = startOffset;
+        this.nextRecordOffset = startOffset;
+        this.recordNumber = firstRecordNumber - 1;
+    }
+
+    /**
+     * Advances to the next non blank record.
+     *
+     * @return false once the input is exhausted
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int scan = position;
+            boolean quoted = false;
+            int terminator = -1;
+            while (terminator < 0) {
+                if (scan >= limit) {
+                    if (endOfInput) {
+                        break;
+                    }
+                    // keep the partial record and refill, scan restarts at the same relative position
+                    int consumed = position;
+                    fill();
+                    scan -= consumed;
+                    continue;
+                }
+                byte b = buffer.get(scan);
+                if (b == QUOTE) {
+                    quoted = !quoted;
+                } else if (b == LF && !quoted) {
+                    terminator = scan;
+                }
+                scan++;
+            }
+
+            if (terminator < 0 && position >= limit) {
+                return false;
+            }
+            int start = position;
+            int end = terminator < 0 ? limit : terminator;
+            position = terminator < 0 ? limit : terminator + 1;
+            if (end > start && buffer.get(end - 1) == CR) {
+                end--;
+            }
+            if (end > start) {
+                recordStart = start;
+                recordEnd = end;
+                recordNumber++;
+                nextRecordOffset = bufferOffset + position;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Consumes the header line so that the first data record is numbered 1.
+     */
+    public void skipHeader() throws IOException {
+        next();
+        recordNumber = 0;
+    }
+
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (position == 0 && remaining == heapBuffer.length) {
+            // a single record larger than the buffer, grow it
+            byte[] grown = new byte[heapBuffer.length * 2];
+            System.arraycopy(heapBuffer, 0, grown, 0, remaining);
+            heapBuffer = grown;
+            buffer = ByteBuffer.wrap(heapBuffer);
+        } else if (remaining > 0) {
+            System.arraycopy(heapBuffer, position, heapBuffer, 0, remaining);
+        }
+        bufferOffset += position;
+        position = 0;
+        limit = remaining;
+        int read = source.read(heapBuffer, limit, heapBuffer.length - limit);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int getRecordStart() {
+        return recordStart;
+    }
+
+    public int getRecordEnd() {
+        return recordEnd;
+    }
+
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Absolute offset right after the current record and its line terminator, i.e. where the next record starts.
+     */
+    public long getNextRecordOffset() {
+        return nextRecordOffset;
+    }
+}
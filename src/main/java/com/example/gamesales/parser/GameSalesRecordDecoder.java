@@ -0,0 +1,383 @@
+package com.example.gamesales.parser;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.InvalidRecordReason;
+import com.example.gamesales.view.GameSalesView;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+
+/**
+ * Decoder specialised for the fixed 9 column game_sales csv layout
+ * {@code id,game_no,game_name,game_code,type,cost_price,tax,sale_price,date_of_sale}.
+ * <p>
+ * The fast path reads integers, decimals and the fixed width {@code yyyy-MM-dd HH:mm:ss.SSSSSS} timestamp straight from the bytes
+ * into a columnar {@link GameSalesBatch}, the name and code bytes are copied without decoding. Records it does not understand (escaped quotes, exponents, extra columns, ...)
+ * are re-parsed with commons-csv by {@link #decodeFallback(String, GameSalesView)}, which reports the fields it cannot parse
+ * as {@link InvalidRecordReason} bits instead of failing the import.
+ * Instances hold per-thread scratch state and are not thread safe.
+ */
+public class GameSalesRecordDecoder {
+    public static final int COLUMN_COUNT = 9;
+    public static final DateTimeFormatter DATE_OF_SALE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    private static final CSVFormat FALLBACK_FORMAT = CSVFormat.DEFAULT.withTrim();
+    private static final int DATE_OF_SALE_LENGTH = 26;
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final int[] fieldStarts = new int[COLUMN_COUNT];
+    private final int[] fieldEnds = new int[COLUMN_COUNT];
+    private ByteBuffer buffer;
+    private boolean failed;
+
+    /**
+     * Decodes one record without its line terminator and appends it as a new row of {@code batch}.
+     *
+     * @return the new row index, or -1 if the record has to go through {@link #decodeFallback(String, GameSalesView)} instead
+     */
+    public int decode(ByteBuffer buffer, int start, int end, GameSalesBatch batch) {
+        this.buffer = buffer;
+        this.failed = false;
+        if (!split(start, end)) {
+            return -1;
+        }
+        long sourceId = parseSourceId(0);
+        int gameNo = parseInt(1);
+        int type = parseInt(4);
+        double costPrice = parseDecimal(5);
+        double tax = parseDecimal(6);
+        double salePrice = parseDecimal(7);
+        long dateOfSaleMicros = parseDateOfSaleMicros(8);
+        if (failed) {
+            return -1;
+        }
+        int row = batch.addRow();
+        batch.setSourceId(row, sourceId);
+        batch.setGameNo(row, gameNo);
+        batch.setGameName(row, buffer, fieldStarts[2], fieldEnds[2]);
+        batch.setGameCode(row, buffer, fieldStarts[3], fieldEnds[3]);
+        batch.setType(row, type);
+        batch.setCostPrice(row, costPrice);
+        batch.setTax(row, tax);
+        batch.setSalePrice(row, salePrice);
+        batch.setDateOfSaleMicros(row, dateOfSaleMicros);
+        return row;
+    }
+
+    /**
+     * Generic commons-csv decoding of a single record, used for rows with unusual quoting or number formats.
+     *
+     * @return 0 when every field was decoded into {@code view}, otherwise the {@link InvalidRecordReason} bits of the record
+     */
+    public static int decodeFallback(String line, GameSalesView view) {
+        try (CSVParser csvParser = new CSVParser(new StringReader(line), FALLBACK_FORMAT)) {
+            Iterator<CSVRecord> iterator = csvParser.iterator();
+            if (!iterator.hasNext()) {
+                return InvalidRecordReason.MALFORMED_RECORD.getBit();
+            }
+            return decodeRecord(iterator.next(), view);
+        } catch (IOException | UncheckedIOException | IllegalStateException e) {
+            // commons-csv reports broken quoting as an IOException, wrapped in an unchecked exception by its iterator
+            return InvalidRecordReason.MALFORMED_RECORD.getBit();
+        }
+    }
+
+    /**
+     * Decodes every field it can, a field that cannot be parsed sets its reason bit and is left unset on the view.
+     */
+    public static int decodeRecord(CSVRecord csvRecord, GameSalesView view) {
+        if (csvRecord.size() != COLUMN_COUNT) {
+            return InvalidRecordReason.MALFORMED_RECORD.getBit();
+        }
+        int reasons = 0;
+        // game_sales ids are generated, the csv id is kept as the source id and only upsert imports require it
+        view.setSourceId(toSourceId(csvRecord.get(0)));
+        try {
+            view.setGameNo(Integer.parseInt(csvRecord.get(1)));
+        } catch (NumberFormatException e) {
+            reasons |= InvalidRecordReason.GAME_NO.getBit();
+        }
+        view.setGameName(csvRecord.get(2));
+        view.setGameCode(csvRecord.get(3));
+        try {
+            view.setType(Integer.parseInt(csvRecord.get(4)));
+        } catch (NumberFormatException e) {
+            reasons |= InvalidRecordReason.TYPE.getBit();
+        }
+        try {
+            view.setCostPrice(Double.parseDouble(csvRecord.get(5)));
+        } catch (NumberFormatException e) {
+            reasons |= InvalidRecordReason.COST_PRICE.getBit();
+        }
+        try {
+            view.setTax(Double.parseDouble(csvRecord.get(6)));
+        } catch (NumberFormatException e) {
+            reasons |= InvalidRecordReason.TAX.getBit();
+        }
+        try {
+            view.setSalePrice(Double.parseDouble(csvRecord.get(7)));
+        } catch (NumberFormatException e) {
+            reasons |= InvalidRecordReason.SALE_PRICE.getBit();
+        }
+        try {
+            view.setDateOfSale(LocalDateTime.parse(csvRecord.get(8), DATE_OF_SALE_FORMATTER));
+        } catch (DateTimeParseException e) {
+            reasons |= InvalidRecordReason.DATE_OF_SALE.getBit();
+        }
+        return reasons;
+    }
+
+    /**
+     * Records field boundaries, trimmed and unquoted. Fails on anything but simple quoting or a column count other than 9.
+     */
+    private boolean split(int start, int end) {
+        int field = 0;
+        int i = start;
+        while (true) {
+            if (field == COLUMN_COUNT) {
+                return false;
+            }
+            int fieldStart;
+            int fieldEnd;
+            if (i < end && buffer.get(i) == '"') {
+                fieldStart = ++i;
+                while (i < end && buffer.get(i) != '"') {
+                    i++;
+                }
+                if (i == end) {
+                    return false;
+                }
+                fieldEnd = i++;
+                while (i < end && isWhitespace(buffer.get(i))) {
+                    i++;
+                }
+                if (i < end && buffer.get(i) != ',') {
+                    // escaped quote or text after the closing quote
+                    return false;
+                }
+            } else {
+                fieldStart = i;
+                while (i < end && buffer.get(i) != ',') {
+                    if (buffer.get(i) == '"') {
+                        return false;
+                    }
+                    i++;
+                }
+                fieldEnd = i;
+            }
+            // commons-csv trims unquoted and quoted values alike
+            while (fieldStart < fieldEnd && isWhitespace(buffer.get(fieldStart))) {
+                fieldStart++;
+            }
+            while (fieldEnd > fieldStart && isWhitespace(buffer.get(fieldEnd - 1))) {
+                fieldEnd--;
+            }
+            fieldStarts[field] = fieldStart;
+            fieldEnds[field] = fieldEnd;
+            field++;
+            if (i >= end) {
+                return field == COLUMN_COUNT;
+            }
+            // skip the delimiter
+            i++;
+        }
+    }
+
+    /**
+     * Lenient long parse of the csv id: anything but a plain integer gives {@link GameSalesBatch#NO_SOURCE_ID}
+     * instead of failing the record.
+     */
+    private long parseSourceId(int field) {
+        int i = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            return GameSalesBatch.NO_SOURCE_ID;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return GameSalesBatch.NO_SOURCE_ID;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private static Long toSourceId(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private int parseInt(int field) {
+        int i = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        if (i == end || end - i > 9) {
+            failed = true;
+            return 0;
+        }
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                failed = true;
+                return 0;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Plain decimal without exponent. Up to 15 significant digits the mantissa and the power of ten are both exact doubles,
+     * so a single division gives the correctly rounded result, identical to {@link Double#parseDouble(String)}.
+     */
+    private double parseDecimal(int field) {
+        int i = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        int digitsStart = i;
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                failed = true;
+                return 0;
+            }
+            if (mantissa != 0 || digit != 0) {
+                digits++;
+            }
+            mantissa = mantissa * 10 + digit;
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+        if (digits > MAX_EXACT_DIGITS || fractionDigits >= POWERS_OF_TEN.length || fractionDigits == 0
+                || (fractionDigits < 0 && end == digitsStart)) {
+            failed = true;
+            return 0;
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Epoch micros of the local date time read as UTC, computed from the civil date without creating a LocalDateTime.
+     */
+    private long parseDateOfSaleMicros(int field) {
+        int i = fieldStarts[field];
+        if (fieldEnds[field] - i != DATE_OF_SALE_LENGTH
+                || buffer.get(i + 4) != '-' || buffer.get(i + 7) != '-' || buffer.get(i + 10) != ' '
+                || buffer.get(i + 13) != ':' || buffer.get(i + 16) != ':' || buffer.get(i + 19) != '.') {
+            failed = true;
+            return 0;
+        }
+        int year = digits(i, 4);
+        int month = digits(i + 5, 2);
+        int day = digits(i + 8, 2);
+        int hour = digits(i + 11, 2);
+        int minute = digits(i + 14, 2);
+        int second = digits(i + 17, 2);
+        int micros = digits(i + 20, 6);
+        // year 0 is rejected by the yyyy (year-of-era) pattern, leave it to the formatter to report
+        if (failed || year == 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            failed = true;
+            return 0;
+        }
+        long seconds = daysFromCivil(year, month, day) * 86400L + hour * 3600L + minute * 60L + second;
+        return seconds * 1_000_000L + micros;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                failed = true;
+                return 0;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Same definition as {@link String#trim()}.
+     */
+    private static boolean isWhitespace(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+
+    public static String toLine(ByteBuffer buffer, int start, int end) {
+        return new String(toBytes(buffer, start, end), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Raw bytes of a record as they are in the file.
+     */
+    public static byte[] toBytes(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return bytes;
+    }
+}
@@ -3,13 +3,15 @@ package com.example.gamesales.repository;
 import com.example.gamesales.entity.GameSalesParamsEntity;
 import com.example.gamesales.entity.TotalSalesParamsEntity;
 import com.example.gamesales.view.GameSalesView;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 public interface GameSalesRepositoryCustom {
-    Page<GameSalesView> getGameSalesWithPage(GameSalesParamsEntity params, Pageable pageable);
+    List<GameSalesView> getGameSalesWith(GameSalesParamsEntity params, Pageable pageable, int maxResults);
+    Long getGameSalesCountWith(GameSalesParamsEntity params);
+    Long estimateGameSalesCountWith(GameSalesParamsEntity params);
     Long getTotalGamesCountWith(TotalSalesParamsEntity params);
     BigDecimal getTotalSalesWith(TotalSalesParamsEntity params);
 }
@@ -2,8 +2,32 @@ package com.example.gamesales.repository;
 
 import com.example.gamesales.view.ProgressTrackingView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProgressTrackingRepository extends JpaRepository<ProgressTrackingView, Long> {
+    List<ProgressTrackingView> findByStatusIn(Collection<String> statuses);
+
+    Optional<ProgressTrackingView> findFirstByFileFingerprintAndStatusInOrderByIdDesc(String fileFingerprint, Collection<String> statuses);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProgressTrackingView p SET p.totalProcessedRecordsCount = :validRecordsCount, p.invalidRecordsCount = :invalidRecordsCount,"
+            + " p.skippedRecordsCount = :skippedRecordsCount, p.processedBytes = :processedBytes WHERE p.id = :id")
+    int updateRecordCounts(@Param("id") Long id, @Param("validRecordsCount") int validRecordsCount,
+                           @Param("invalidRecordsCount") int invalidRecordsCount, @Param("skippedRecordsCount") int skippedRecordsCount,
+                           @Param("processedBytes") long processedBytes);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProgressTrackingView p SET p.fileFingerprint = :fileFingerprint WHERE p.id = :id")
+    int updateFileFingerprint(@Param("id") Long id, @Param("fileFingerprint") String fileFingerprint);
 }
@@ -8,10 +8,10 @@ import com.example.gamesales.util.GameSalesUtil;
 import com.example.gamesales.view.GameSalesView;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -23,37 +23,24 @@ import javax.persistence.criteria.Root;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 public class GameSalesRepositoryCustomImpl implements GameSalesRepositoryCustom {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Override
-    public Page<GameSalesView> getGameSalesWithPage(GameSalesParamsEntity params, Pageable pageable) {
+    public List<GameSalesView> getGameSalesWith(GameSalesParamsEntity params, Pageable pageable, int maxResults) {
         CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
 
         CriteriaQuery<GameSalesView> criteriaQuery = criteriaBuilder.createQuery(GameSalesView.class);
 
         Root<GameSalesView> criteriaRoot = criteriaQuery.from(GameSalesView.class);
-        List<Predicate> predicates = new ArrayList<>();
-
-
-        if (params.getFrom() != null) {
-            predicates.add(criteriaBuilder.greaterThanOrEqualTo(criteriaRoot.get(GameSalesConstants.DATE_OF_SALE), GameSalesUtil.convertToDate(params.getFrom())));
-        }
-
-        if (params.getTo() != null) {
-            predicates.add(criteriaBuilder.lessThanOrEqualTo(criteriaRoot.get(GameSalesConstants.DATE_OF_SALE), GameSalesUtil.convertToDate(params.getTo())));
-        }
-
-        if (params.getMaxPrice() != null) {
-            predicates.add(criteriaBuilder.lessThanOrEqualTo(criteriaRoot.get(GameSalesConstants.COST_PRICE), params.getMaxPrice()));
-        }
-
-        if (params.getMinPrice() != null) {
-            predicates.add(criteriaBuilder.greaterThanOrEqualTo(criteriaRoot.get(GameSalesConstants.COST_PRICE), params.getMinPrice()));
-        }
+        List<Predicate> predicates = getGameSalesPredicates(params, criteriaBuilder, criteriaRoot);
         criteriaQuery.where(criteriaBuilder.and(predicates.toArray(new Predicate[predicates.size()])));
 
         if (pageable.getSort().isEmpty()) {
@@ -63,15 +50,70 @@ public class GameSalesRepositoryCustomImpl implements GameSalesRepositoryCustom
         }
         Query query = entityManager.createQuery(criteriaQuery);
         query.setFirstResult((int) pageable.getOffset());
-        query.setMaxResults(pageable.getPageSize());
-        List<GameSalesView> result = query.getResultList();
+        query.setMaxResults(maxResults);
+        return query.getResultList();
+    }
 
+    @Override
+    public Long getGameSalesCountWith(GameSalesParamsEntity params) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
         CriteriaQuery<Long> countQuery = criteriaBuilder.createQuery(Long.class);
         Root<GameSalesView> countRoot = countQuery.from(GameSalesView.class);
+        List<Predicate> predicates = getGameSalesPredicates(params, criteriaBuilder, countRoot);
         countQuery.select(criteriaBuilder.count(countRoot)).where(criteriaBuilder.and(predicates.toArray(new Predicate[predicates.size()])));
-        Long count = entityManager.createQuery(countQuery).getSingleResult();
+        return entityManager.createQuery(countQuery).getSingleResult();
+    }
 
-        return new PageImpl<>(result, pageable, count);
+    @Override
+    public Long estimateGameSalesCountWith(GameSalesParamsEntity params) {
+        // the optimizer's row estimate for the same filters, from index dives on the date_of_sale range and index statistics
+        StringBuilder sql = new StringBuilder("EXPLAIN SELECT id FROM game_sales WHERE 1=1");
+        List<Object> args = new ArrayList<>();
+        if (params.getFrom() != null) {
+            sql.append(" AND date_of_sale >= ?");
+            args.add(params.getFrom());
+        }
+        if (params.getTo() != null) {
+            sql.append(" AND date_of_sale <= ?");
+            args.add(params.getTo());
+        }
+        if (params.getMaxPrice() != null) {
+            sql.append(" AND cost_price <= ?");
+            args.add(params.getMaxPrice());
+        }
+        if (params.getMinPrice() != null) {
+            sql.append(" AND cost_price >= ?");
+            args.add(params.getMinPrice());
+        }
+        Map<String, Object> plan = jdbcTemplate.queryForList(sql.toString(), args.toArray()).get(0);
+        Number rows = (Number) plan.get("rows");
+        Number filtered = (Number) plan.get("filtered");
+        if (rows == null) {
+            // no table access, e.g. an impossible range
+            return 0L;
+        }
+        return Math.round(rows.doubleValue() * (filtered == null ? 100 : filtered.doubleValue()) / 100);
+    }
+
+    private List<Predicate> getGameSalesPredicates(GameSalesParamsEntity params, CriteriaBuilder criteriaBuilder, Root<GameSalesView> root) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (params.getFrom() != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get(GameSalesConstants.DATE_OF_SALE), GameSalesUtil.convertToDate(params.getFrom())));
+        }
+
+        if (params.getTo() != null) {
+            predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get(GameSalesConstants.DATE_OF_SALE), GameSalesUtil.convertToDate(params.getTo())));
+        }
+
+        if (params.getMaxPrice() != null) {
+            predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get(GameSalesConstants.COST_PRICE), params.getMaxPrice()));
+        }
+
+        if (params.getMinPrice() != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get(GameSalesConstants.COST_PRICE), params.getMinPrice()));
+        }
+        return predicates;
     }
 
     @Override
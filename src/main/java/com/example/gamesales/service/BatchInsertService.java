@@ -1,66 +1,133 @@
 package com.example.gamesales.service;
 
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.GameSalesConstants;
 import com.example.gamesales.exception.ValidationException;
-import com.example.gamesales.view.GameSalesView;
+import com.example.gamesales.sink.GameSalesSink;
+import com.example.gamesales.util.GameSalesUtil;
 import com.example.gamesales.view.InvalidRecordView;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
+import java.text.MessageFormat;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class BatchInsertService {
     private final JdbcTemplate jdbcTemplate;
+    private final GameSalesRollupService gameSalesRollupService;
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final QueryResultCacheService queryResultCacheService;
+    private final Map<String, GameSalesSink> sinks = new HashMap<>();
+
+    @Value("${com.example.gamesales.import.invalid.compress:false}")
+    private boolean compressInvalidRecords;
+
+    @Value("${com.example.gamesales.import.invalid.compressminbytes:256}")
+    private int compressMinBytes;
 
     @Autowired
-    public BatchInsertService(JdbcTemplate jdbcTemplate) {
+    public BatchInsertService(JdbcTemplate jdbcTemplate, List<GameSalesSink> sinks, GameSalesRollupService gameSalesRollupService, SalesAnalyticsService salesAnalyticsService,
+                              QueryResultCacheService queryResultCacheService) {
         this.jdbcTemplate = jdbcTemplate;
+        this.gameSalesRollupService = gameSalesRollupService;
+        this.salesAnalyticsService = salesAnalyticsService;
+        this.queryResultCacheService = queryResultCacheService;
+        for (GameSalesSink sink : sinks) {
+            this.sinks.put(sink.getEngine(), sink);
+        }
+    }
+
+    public GameSalesSink getSink(String engine) {
+        GameSalesSink sink = sinks.get(engine);
+        if (sink == null) {
+            throw new ValidationException(MessageFormat.format("import engine {0} is not available.", engine));
+        }
+        return sink;
+    }
+
+    /**
+     * Writes the valid rows of the batch through the job's sink and inserts its invalid records and checkpoint in the same transaction,
+     * so a committed checkpoint always means the whole record range of the batch is in the database.
+     */
+    @Transactional
+    public void commitBatch(GameSalesBatch batch, GameSalesSink sink, String targetTable, Long progressTrackViewId) {
+        if (!batch.isEmpty()) {
+            if (GameSalesConstants.GAME_SALES_TABLE.equals(targetTable)) {
+                salesAnalyticsService.registerWrite(batch, GameSalesConstants.IMPORT_ENGINE_UPSERT.equals(sink.getEngine()));
+            }
+            if (!GameSalesConstants.GAME_SALES_TABLE.equals(targetTable)) {
+                // staged rows are added to the daily rollup when they are published
+                sink.write(batch, targetTable);
+            } else if (GameSalesConstants.IMPORT_ENGINE_UPSERT.equals(sink.getEngine())) {
+                Set<LocalDate> days = new HashSet<>(gameSalesRollupService.getReplacedDays(batch));
+                sink.write(batch, targetTable);
+                days.addAll(gameSalesRollupService.getDays(batch));
+                // recounted once when the job finishes instead of once per batch
+                gameSalesRollupService.markDaysPending(days);
+                queryResultCacheService.registerImport(days);
+            } else {
+                sink.write(batch, targetTable);
+                gameSalesRollupService.addBatch(batch);
+                queryResultCacheService.registerImport(gameSalesRollupService.getDays(batch));
+            }
+        }
+        if (!batch.getInvalidRecords().isEmpty()) {
+            batchInsertInvalidRecords(batch.getInvalidRecords(), progressTrackViewId);
+        }
+        insertCheckpoint(batch, progressTrackViewId);
     }
 
+    /**
+     * Stores the raw csv bytes of every invalid record with its reason bitmask, lines of at least {@code compressminbytes}
+     * are deflated when compression is enabled and that makes them smaller.
+     */
     @Transactional
-    public void batchInsertGameSales(List<GameSalesView> views) {
-        String sql = "INSERT INTO game_sales (game_no, game_name, game_code, type, cost_price, tax, sale_price, date_of_sale) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    public void batchInsertInvalidRecords(List<InvalidRecordView> views, Long progressTrackViewId) {
+        String sql = "INSERT INTO invalid_record (invalid_record_row_id, raw_line, compressed, reason_mask, created_on, progress_track_view_id) VALUES (?, ?, ?, ?, ?, ?)";
         List<Object[]> batchArgs = views.stream()
-                .map(view -> new Object[]{
-//                        view.getId(),
-                        view.getGameNo(),
-                        view.getGameName(),
-                        view.getGameCode(),
-                        view.getType(),
-                        view.getCostPrice(),
-                        view.getTax(),
-                        view.getSalePrice(),
-                        view.getDateOfSale()
+                .map(view -> {
+                    byte[] rawLine = view.getRawLine();
+                    byte[] compressedLine = compressInvalidRecords && rawLine.length >= compressMinBytes ? GameSalesUtil.deflate(rawLine) : null;
+                    boolean compressed = compressedLine != null && compressedLine.length < rawLine.length;
+                    return new Object[]{
+                            view.getInvalidRecordRowId(),
+                            compressed ? compressedLine : rawLine,
+                            compressed,
+                            view.getReasonMask(),
+                            view.getCreatedOn(),
+                            progressTrackViewId
+                    };
                 })
                 .collect(Collectors.toList());
         try {
             jdbcTemplate.batchUpdate(sql, batchArgs);
         } catch (Exception e) {
             log.error(e.getMessage(), e);
-            throw new ValidationException("An error occurred when inserting Game Sales Records into table. Please contact admin.");
+            // rolls the batch back with its checkpoint, so a resume retries these records instead of skipping them
+            throw new ValidationException("An error occurred when saving the invalid records. Please contact admin.");
         }
     }
 
-    @Transactional
-    public void batchInsertInvalidRecords(List<InvalidRecordView> views, Long progressTrackViewId) {
-        String sql = "INSERT INTO invalid_record (invalid_record_row_id, invalid_record_row_text, created_on, progress_track_view_id) VALUES (?, ?, ?, ?)";
-        List<Object[]> batchArgs = views.stream()
-                .map(view -> new Object[]{
-                        view.getInvalidRecordRowId(),
-                        view.getInvalidRecordRowText(),
-                        view.getCreatedOn(),
-                        progressTrackViewId
-                })
-                .collect(Collectors.toList());
+    private void insertCheckpoint(GameSalesBatch batch, Long progressTrackViewId) {
+        String sql = "INSERT INTO import_checkpoint (progress_track_view_id, first_record_number, last_record_number, start_offset, end_offset, valid_records_count, invalid_records_count, skipped_records_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         try {
-            jdbcTemplate.batchUpdate(sql, batchArgs);
+            jdbcTemplate.update(sql, progressTrackViewId, batch.getFirstRecordNumber(), batch.getLastRecordNumber(),
+                    batch.getStartOffset(), batch.getEndOffset(), batch.size(), batch.getInvalidRecords().size(), batch.getSkippedRecordsCount());
         } catch (Exception e) {
             log.error(e.getMessage(), e);
+            throw new ValidationException("An error occurred when saving the import checkpoint. Please contact admin.");
         }
     }
 }
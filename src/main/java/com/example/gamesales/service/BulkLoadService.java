@@ -0,0 +1,107 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.sink.BulkSessionGameSalesSink;
+import com.example.gamesales.sink.GameSalesSink;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk load mode for large imports into game_sales.
+ * <p>
+ * The secondary indexes of game_sales are dropped before the rows are written and rebuilt in a single ALTER TABLE at the end,
+ * instead of being maintained by every batch. Batches are written with bulk session settings. Dropping the indexes affects every
+ * reader and import, so only one bulk load runs at a time, other jobs asking for it run as normal imports.
+ */
+@Service
+@Slf4j
+public class BulkLoadService {
+    /** secondary indexes of game_sales as declared in schema.sql, in rebuild order */
+    private static final Map<String, String> SECONDARY_INDEXES = new LinkedHashMap<>();
+
+    static {
+        SECONDARY_INDEXES.put("idx_date_of_sale", "date_of_sale");
+        SECONDARY_INDEXES.put("idx_date_of_sale_sale_price", "date_of_sale, sale_price");
+        SECONDARY_INDEXES.put("idx_date_of_sale_sale_price_game_no", "date_of_sale, sale_price, game_no");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicReference<Long> bulkLoadJobId = new AtomicReference<>();
+
+    @Value("${com.example.gamesales.import.bulk.threshold:1000000}")
+    private int bulkLoadThreshold;
+
+    @Value("${com.example.gamesales.import.bulk.insertbuffersize:268435456}")
+    private long bulkInsertBufferSize;
+
+    @Autowired
+    public BulkLoadService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Bulk load only pays off when the index rebuild is cheap compared to maintaining the indexes row by row.
+     */
+    public boolean isAboveThreshold(int totalRecordsCount) {
+        return totalRecordsCount >= bulkLoadThreshold;
+    }
+
+    /**
+     * @return false when another job is already bulk loading
+     */
+    public boolean tryAcquire(Long progressTrackViewId) {
+        return bulkLoadJobId.compareAndSet(null, progressTrackViewId) || progressTrackViewId.equals(bulkLoadJobId.get());
+    }
+
+    public void release(Long progressTrackViewId) {
+        bulkLoadJobId.compareAndSet(progressTrackViewId, null);
+    }
+
+    /**
+     * @param upsert the rows carry source ids, uk_game_sales_source_id stays in place during a bulk load so unique checks stay on
+     */
+    public GameSalesSink withBulkSession(GameSalesSink sink, boolean upsert) {
+        return new BulkSessionGameSalesSink(sink, jdbcTemplate, bulkInsertBufferSize, upsert);
+    }
+
+    public void dropSecondaryIndexes() {
+        List<String> existing = getExistingSecondaryIndexes();
+        List<String> toDrop = SECONDARY_INDEXES.keySet().stream().filter(existing::contains).collect(Collectors.toList());
+        if (!toDrop.isEmpty()) {
+            log.info("dropping {} of {} before bulk load", toDrop, GameSalesConstants.GAME_SALES_TABLE);
+            jdbcTemplate.execute("ALTER TABLE " + GameSalesConstants.GAME_SALES_TABLE + " " + toDrop.stream()
+                    .map(index -> "DROP INDEX " + index)
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    /**
+     * Adds back every missing secondary index in one ALTER TABLE, i.e. one pass over the table.
+     */
+    public void rebuildSecondaryIndexes() {
+        List<String> existing = getExistingSecondaryIndexes();
+        List<String> toAdd = SECONDARY_INDEXES.entrySet().stream()
+                .filter(index -> !existing.contains(index.getKey()))
+                .map(index -> "ADD INDEX " + index.getKey() + " (" + index.getValue() + ")")
+                .collect(Collectors.toList());
+        if (!toAdd.isEmpty()) {
+            log.info("rebuilding {} secondary indexes of {}", toAdd.size(), GameSalesConstants.GAME_SALES_TABLE);
+            jdbcTemplate.execute("ALTER TABLE " + GameSalesConstants.GAME_SALES_TABLE + " " + String.join(", ", toAdd) + ", ALGORITHM = INPLACE, LOCK = NONE");
+        }
+    }
+
+    private List<String> getExistingSecondaryIndexes() {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT index_name FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name <> 'PRIMARY'",
+                String.class, GameSalesConstants.GAME_SALES_TABLE);
+    }
+}
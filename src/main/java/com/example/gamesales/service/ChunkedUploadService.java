@@ -0,0 +1,166 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.exception.ValidationException;
+import com.example.gamesales.task.ChunkedUpload;
+import com.example.gamesales.task.ChunkedUploadInputStream;
+import com.example.gamesales.view.ProgressTrackingView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receives the chunks of chunked uploads: an import is initiated without a file, its chunks are PUT one at a time, in any order
+ * and retried as needed, and the upload is completed with its chunk count. The import job reads the chunks in order while they
+ * arrive, so the file size is not capped by the multipart limit and a dropped connection only costs the chunk in flight.
+ * <p>
+ * The job is only submitted to the scheduler once chunk 0 arrived or the upload was completed, so an initiated upload that
+ * never sends data does not hold one of the scheduler's job slots. A job that started still waits up to {@code chunktimeoutms}
+ * for each later chunk while holding its slot, slow uploaders are better off sending all chunks before completing.
+ */
+@Service
+@Slf4j
+public class ChunkedUploadService {
+    private final ProgressTrackingService progressTrackingService;
+    private final Map<Long, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+    /** submissions of jobs whose upload has no readable data yet */
+    private final Map<Long, Runnable> pendingSubmissions = new ConcurrentHashMap<>();
+
+    @Value("${com.example.gamesales.import.spooldir:${java.io.tmpdir}/game-sales-imports}")
+    private String spoolDir;
+
+    @Value("${com.example.gamesales.import.upload.maxchunkbytes:67108864}")
+    private long maxChunkBytes;
+
+    @Value("${com.example.gamesales.import.upload.chunktimeoutms:600000}")
+    private long chunkTimeoutMillis;
+
+    @Autowired
+    public ChunkedUploadService(ProgressTrackingService progressTrackingService) {
+        this.progressTrackingService = progressTrackingService;
+    }
+
+    public File createUploadDirectory() throws IOException {
+        Path directory = Paths.get(spoolDir);
+        Files.createDirectories(directory);
+        return Files.createTempDirectory(directory, "game-sales-upload-").toFile();
+    }
+
+    public HashMap<String, Object> storeChunk(Long id, int chunkNumber, InputStream content) {
+        ProgressTrackingView progressTrackingView = getChunkedImport(id);
+        if (chunkNumber < 0) {
+            logAndThrowValidationException(MessageFormat.format("chunk number {0} is invalid, chunks are numbered from 0.", chunkNumber));
+        }
+        ChunkedUpload upload = getUpload(progressTrackingView);
+        boolean stored = false;
+        try {
+            stored = upload.addChunk(chunkNumber, content, maxChunkBytes);
+        } catch (IllegalArgumentException e) {
+            logAndThrowValidationException(MessageFormat.format("import {0} does not accept chunk {1}: {2}", id, chunkNumber, e.getMessage()));
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+            throw new ValidationException(MessageFormat.format("error storing chunk {0} of import {1}: {2}", chunkNumber, id, e.getMessage()));
+        }
+        if (upload.isReadable()) {
+            submitPending(id);
+        }
+        HashMap<String, Object> result = new HashMap<>();
+        result.put(GameSalesConstants.ID, id);
+        result.put("chunkNumber", chunkNumber);
+        result.put("alreadyReceived", !stored);
+        result.put("receivedChunksCount", upload.getReceivedChunksCount());
+        return result;
+    }
+
+    public ProgressTrackingView complete(Long id, int totalChunks) {
+        ProgressTrackingView progressTrackingView = getChunkedImport(id);
+        if (totalChunks <= 0) {
+            logAndThrowValidationException(MessageFormat.format("parameter totalChunks:{0} is invalid, an upload has at least one chunk.", totalChunks));
+        }
+        try {
+            getUpload(progressTrackingView).complete(totalChunks);
+        } catch (IllegalArgumentException e) {
+            logAndThrowValidationException(MessageFormat.format("import {0} cannot be completed: {1}", id, e.getMessage()));
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+            throw new ValidationException(MessageFormat.format("error completing upload of import {0}.", id));
+        }
+        log.info("upload of import {} completed with {} chunks", id, totalChunks);
+        submitPending(id);
+        return progressTrackingView;
+    }
+
+    /**
+     * Runs {@code submit} once the job can start reading the upload, right away when it already can.
+     * {@code submit} runs on the request thread that stored chunk 0 or completed the upload, its exceptions fail that request.
+     */
+    public void submitWhenReadable(ProgressTrackingView progressTrackingView, Runnable submit) {
+        pendingSubmissions.put(progressTrackingView.getId(), submit);
+        if (getUpload(progressTrackingView).isReadable()) {
+            submitPending(progressTrackingView.getId());
+        }
+    }
+
+    private void submitPending(Long id) {
+        // removed first, so concurrent chunk and complete requests submit the job only once
+        Runnable submit = pendingSubmissions.remove(id);
+        if (submit != null) {
+            submit.run();
+        }
+    }
+
+    /**
+     * The chunks of the import as one stream, reads block until the next chunk is received or fail after {@code chunktimeoutms}.
+     */
+    public InputStream openStream(ProgressTrackingView progressTrackingView) {
+        return new ChunkedUploadInputStream(getUpload(progressTrackingView), chunkTimeoutMillis);
+    }
+
+    /**
+     * Forgets the upload once its job completed and its directory is deleted.
+     */
+    public void release(Long id) {
+        uploads.remove(id);
+        pendingSubmissions.remove(id);
+    }
+
+    private ChunkedUpload getUpload(ProgressTrackingView progressTrackingView) {
+        return uploads.computeIfAbsent(progressTrackingView.getId(), id -> {
+            try {
+                // rebuilt from the directory after a restart
+                return ChunkedUpload.open(Paths.get(progressTrackingView.getSourceFilePath()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private ProgressTrackingView getChunkedImport(Long id) {
+        ProgressTrackingView progressTrackingView = progressTrackingService.getProgressView(id);
+        if (!Boolean.TRUE.equals(progressTrackingView.getChunkedUpload())) {
+            logAndThrowValidationException(MessageFormat.format("import {0} is not a chunked upload.", id));
+        }
+        if (GameSalesConstants.STATUS_COMPLETED.equals(progressTrackingView.getStatus()) || GameSalesConstants.STATUS_REJECTED.equals(progressTrackingView.getStatus())) {
+            logAndThrowValidationException(MessageFormat.format("import {0} with status {1} does not accept chunks anymore.", id, progressTrackingView.getStatus()));
+        }
+        return progressTrackingView;
+    }
+
+    private void logAndThrowValidationException(String errorMessage) {
+        log.error(errorMessage);
+        throw new ValidationException(errorMessage);
+    }
+}
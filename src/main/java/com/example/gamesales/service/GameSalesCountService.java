@@ -0,0 +1,123 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.entity.GameSalesParamsEntity;
+import com.example.gamesales.repository.GameSalesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Total counts of game sales pages.
+ * <p>
+ * Exact counts are cached per filter until an import commits rows into the filter's date range, see
+ * {@link QueryResultCacheService#registerImport}, and run on their own thread, so a page query and its count use separate
+ * connections at the same time. Estimates are the optimizer's row estimate for the filters.
+ */
+@Service
+@Slf4j
+public class GameSalesCountService {
+
+    @Value("${com.example.gamesales.query.count.cachesize:1000}")
+    private int cacheSize;
+
+    @Value("${com.example.gamesales.query.count.threads:4}")
+    private int countThreads;
+
+    private final GameSalesRepository gameSalesRepository;
+    /** bumped by every invalidation, a count read while an import batch committed is not cached */
+    private final AtomicLong dataVersion = new AtomicLong();
+    private Map<String, CachedCount> exactCounts;
+    private ExecutorService countExecutor;
+
+    @Autowired
+    public GameSalesCountService(GameSalesRepository gameSalesRepository) {
+        this.gameSalesRepository = gameSalesRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        exactCounts = new LinkedHashMap<String, CachedCount>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCount> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        AtomicInteger threadCount = new AtomicInteger();
+        countExecutor = Executors.newFixedThreadPool(countThreads, runnable -> {
+            Thread thread = new Thread(runnable, "game-sales-count-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Exact count of the rows matching the filters, from the cache or counted on a count thread.
+     */
+    public CompletableFuture<Long> getExactCount(GameSalesParamsEntity params) {
+        String key = getCacheKey(params);
+        CachedCount cached;
+        synchronized (exactCounts) {
+            cached = exactCounts.get(key);
+        }
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.count);
+        }
+        long version = dataVersion.get();
+        return CompletableFuture.supplyAsync(() -> {
+            Long count = gameSalesRepository.getGameSalesCountWith(params);
+            synchronized (exactCounts) {
+                if (dataVersion.get() == version) {
+                    exactCounts.put(key, new CachedCount(params.getFrom(), params.getTo(), count));
+                }
+            }
+            return count;
+        }, countExecutor);
+    }
+
+    public long getEstimatedCount(GameSalesParamsEntity params) {
+        return gameSalesRepository.estimateGameSalesCountWith(params);
+    }
+
+    /**
+     * Drops the cached counts whose date range overlaps {@code [from, to]}, called once an import batch or publish committed.
+     */
+    public void invalidate(LocalDateTime from, LocalDateTime to) {
+        synchronized (exactCounts) {
+            dataVersion.incrementAndGet();
+            exactCounts.values().removeIf(cached -> (cached.from == null || !cached.from.isAfter(to)) && (cached.to == null || !cached.to.isBefore(from)));
+        }
+    }
+
+    private String getCacheKey(GameSalesParamsEntity params) {
+        return params.getFrom() + "|" + params.getTo() + "|" + params.getMinPrice() + "|" + params.getMaxPrice();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        countExecutor.shutdownNow();
+    }
+
+    private static final class CachedCount {
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final long count;
+
+        private CachedCount(LocalDateTime from, LocalDateTime to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+    }
+}
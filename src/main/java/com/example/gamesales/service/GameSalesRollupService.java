@@ -0,0 +1,266 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.entity.SalesTotalsEntity;
+import com.example.gamesales.util.GameSalesUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Daily rollup of game_sales in {@code game_sales_daily}: sales count and sums of sale_price, cost_price and tax per day and game_no.
+ * <p>
+ * Imports keep it current: appended rows are added as deltas in the transaction that writes them. Rows of upsert imports may
+ * replace rows of other days, so the days they touch are recounted from game_sales instead, once per job: direct upsert batches
+ * only mark their days in {@code game_sales_daily_pending} and the job recounts them when it finishes, staged upserts recount
+ * when they are published. Totals of those days lag behind game_sales until then. Totals over a date range read the full days
+ * from the rollup and scan game_sales only for the partial days at the edges of the range.
+ * <p>
+ * Rows written outside of imports never reach the rollup, {@link #rebuild} aggregates it again from game_sales. It runs at
+ * startup when the rollup's sales count differs from game_sales, and on demand.
+ */
+@Service
+@Slf4j
+public class GameSalesRollupService {
+    private static final long MICROS_PER_DAY = 86_400_000_000L;
+    private static final int SOURCE_IDS_PER_QUERY = 1000;
+    private static final String ROLLUP_COLUMNS = "day, game_no, sales_count, sale_price, cost_price, tax";
+    private static final String AGGREGATE_COLUMNS = "DATE(date_of_sale), game_no, COUNT(*), SUM(sale_price), SUM(cost_price), SUM(tax)";
+    private static final String ADD_TO_ROLLUP = " ON DUPLICATE KEY UPDATE sales_count = sales_count + VALUES(sales_count), sale_price = sale_price + VALUES(sale_price),"
+            + " cost_price = cost_price + VALUES(cost_price), tax = tax + VALUES(tax)";
+
+    @Value("${com.example.gamesales.rollup.verifyonstartup:true}")
+    private boolean verifyOnStartup;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QueryResultCacheService queryResultCacheService;
+
+    @Autowired
+    public GameSalesRollupService(JdbcTemplate jdbcTemplate, QueryResultCacheService queryResultCacheService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queryResultCacheService = queryResultCacheService;
+    }
+
+    /**
+     * Rebuilds the rollup when its sales count does not match game_sales, e.g. after rows were generated with sql,
+     * otherwise recounts the days left pending by an upsert job that did not finish.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void verifyOnStartup() {
+        if (!verifyOnStartup) {
+            return;
+        }
+        Long storedRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + GameSalesConstants.GAME_SALES_TABLE, Long.class);
+        Long rolledUpRows = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(sales_count), 0) FROM " + GameSalesConstants.GAME_SALES_DAILY_TABLE, Long.class);
+        if (!storedRows.equals(rolledUpRows)) {
+            log.warn("daily rollup counts {} sales but game_sales holds {}, rebuilding it", rolledUpRows, storedRows);
+            rebuild();
+        } else {
+            recountPendingDays();
+        }
+    }
+
+    /**
+     * Aggregates the whole rollup again from game_sales in one transaction, readers keep seeing the old rollup until it commits.
+     *
+     * @return number of rollup rows
+     */
+    @Transactional
+    public int rebuild() {
+        long startNanos = System.nanoTime();
+        jdbcTemplate.update("DELETE FROM " + GameSalesConstants.GAME_SALES_DAILY_PENDING_TABLE);
+        jdbcTemplate.update("DELETE FROM " + GameSalesConstants.GAME_SALES_DAILY_TABLE);
+        int rows = jdbcTemplate.update("INSERT INTO " + GameSalesConstants.GAME_SALES_DAILY_TABLE + " (" + ROLLUP_COLUMNS + ") SELECT " + AGGREGATE_COLUMNS
+                + " FROM " + GameSalesConstants.GAME_SALES_TABLE + " GROUP BY DATE(date_of_sale), game_no");
+        queryResultCacheService.registerImport(LocalDateTime.MIN, LocalDateTime.MAX);
+        log.info("rebuilt the daily rollup with {} rows in {} ms", rows, (System.nanoTime() - startNanos) / 1_000_000);
+        return rows;
+    }
+
+    /**
+     * Adds the rows of an appended batch, to be called in the transaction that wrote them.
+     */
+    public void addBatch(GameSalesBatch batch) {
+        // sorted by day and game_no, so concurrent insert workers lock the rollup rows in the same order
+        Map<Long, double[]> totals = new TreeMap<>();
+        for (int row = 0; row < batch.size(); row++) {
+            long day = Math.floorDiv(batch.getDateOfSaleMicros(row), MICROS_PER_DAY);
+            double[] dayTotals = totals.computeIfAbsent(day << 32 | (batch.getGameNo(row) & 0xFFFFFFFFL), key -> new double[4]);
+            dayTotals[0]++;
+            dayTotals[1] += batch.getSalePrice(row);
+            dayTotals[2] += batch.getCostPrice(row);
+            dayTotals[3] += batch.getTax(row);
+        }
+        List<Object[]> batchArgs = totals.entrySet().stream()
+                .map(entry -> new Object[]{
+                        LocalDate.ofEpochDay(entry.getKey() >> 32),
+                        (int) entry.getKey().longValue(),
+                        (long) entry.getValue()[0],
+                        entry.getValue()[1],
+                        entry.getValue()[2],
+                        entry.getValue()[3]
+                })
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("INSERT INTO " + GameSalesConstants.GAME_SALES_DAILY_TABLE + " (" + ROLLUP_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)" + ADD_TO_ROLLUP, batchArgs);
+    }
+
+    /**
+     * Days of the batch rows.
+     */
+    public Collection<LocalDate> getDays(GameSalesBatch batch) {
+        TreeSet<LocalDate> days = new TreeSet<>();
+        for (int row = 0; row < batch.size(); row++) {
+            days.add(LocalDate.ofEpochDay(Math.floorDiv(batch.getDateOfSaleMicros(row), MICROS_PER_DAY)));
+        }
+        return days;
+    }
+
+    /**
+     * Days of the stored rows that the batch rows replace by source id, read before an upsert batch is written.
+     */
+    public Collection<LocalDate> getReplacedDays(GameSalesBatch batch) {
+        List<Long> sourceIds = new ArrayList<>();
+        for (int row = 0; row < batch.size(); row++) {
+            if (batch.hasSourceId(row)) {
+                sourceIds.add(batch.getSourceId(row));
+            }
+        }
+        TreeSet<LocalDate> days = new TreeSet<>();
+        for (int start = 0; start < sourceIds.size(); start += SOURCE_IDS_PER_QUERY) {
+            List<Long> chunk = sourceIds.subList(start, Math.min(start + SOURCE_IDS_PER_QUERY, sourceIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            days.addAll(jdbcTemplate.queryForList("SELECT DISTINCT DATE(date_of_sale) FROM " + GameSalesConstants.GAME_SALES_TABLE
+                    + " WHERE source_id IN (" + placeholders + ")", LocalDate.class, chunk.toArray()));
+        }
+        return days;
+    }
+
+    /**
+     * Days a staged job publishes rows into, and for upsert jobs also the days of the stored rows they replace.
+     */
+    public Collection<LocalDate> getStagedDays(String stagingTable, boolean upsert) {
+        String sql = "SELECT DISTINCT DATE(date_of_sale) FROM " + stagingTable;
+        if (upsert) {
+            sql += " UNION SELECT DISTINCT DATE(g.date_of_sale) FROM " + GameSalesConstants.GAME_SALES_TABLE + " g JOIN " + stagingTable + " s ON g.source_id = s.source_id";
+        }
+        return new TreeSet<>(jdbcTemplate.queryForList(sql, LocalDate.class));
+    }
+
+    /**
+     * Adds every row of a staging table, to be called in the transaction that publishes them.
+     */
+    public void addStagingTable(String stagingTable) {
+        jdbcTemplate.update("INSERT INTO " + GameSalesConstants.GAME_SALES_DAILY_TABLE + " (" + ROLLUP_COLUMNS + ") SELECT * FROM (SELECT " + AGGREGATE_COLUMNS
+                + " FROM " + stagingTable + " GROUP BY DATE(date_of_sale), game_no) staged" + ADD_TO_ROLLUP);
+    }
+
+    /**
+     * Marks the days of an upsert batch for {@link #recountPendingDays}, to be called in the transaction that wrote them.
+     */
+    public void markDaysPending(Collection<LocalDate> days) {
+        List<Object[]> batchArgs = new TreeSet<>(days).stream()
+                .map(day -> new Object[]{day})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("INSERT IGNORE INTO " + GameSalesConstants.GAME_SALES_DAILY_PENDING_TABLE + " (day) VALUES (?)", batchArgs);
+    }
+
+    /**
+     * Recounts every pending day, called when a direct upsert job finishes. Pending rows marked by batches that are still
+     * committing are locked by them, so a day is never unmarked before its last batch is counted.
+     */
+    @Transactional
+    public void recountPendingDays() {
+        List<LocalDate> days = jdbcTemplate.queryForList("SELECT day FROM " + GameSalesConstants.GAME_SALES_DAILY_PENDING_TABLE + " ORDER BY day FOR UPDATE", LocalDate.class);
+        if (days.isEmpty()) {
+            return;
+        }
+        recountDays(days);
+        jdbcTemplate.batchUpdate("DELETE FROM " + GameSalesConstants.GAME_SALES_DAILY_PENDING_TABLE + " WHERE day = ?",
+                days.stream().map(day -> new Object[]{day}).collect(Collectors.toList()));
+        queryResultCacheService.registerImport(days);
+        log.info("recounted {} pending days of the daily rollup", days.size());
+    }
+
+    /**
+     * Recounts the days from game_sales, in day order so concurrent workers lock them in the same order.
+     */
+    public void recountDays(Collection<LocalDate> days) {
+        for (LocalDate day : new TreeSet<>(days)) {
+            jdbcTemplate.update("DELETE FROM " + GameSalesConstants.GAME_SALES_DAILY_TABLE + " WHERE day = ?", day);
+            jdbcTemplate.update("INSERT INTO " + GameSalesConstants.GAME_SALES_DAILY_TABLE + " (" + ROLLUP_COLUMNS + ") SELECT " + AGGREGATE_COLUMNS
+                            + " FROM " + GameSalesConstants.GAME_SALES_TABLE + " WHERE date_of_sale >= ? AND date_of_sale < ? GROUP BY DATE(date_of_sale), game_no",
+                    day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        }
+    }
+
+    /**
+     * Sales count and total sale price of the rows with {@code from <= date_of_sale <= to}, optionally of one game_no.
+     */
+    public SalesTotalsEntity getTotals(LocalDateTime from, LocalDateTime to, Integer gameNo) {
+        LocalDate[] fullDays = GameSalesUtil.getFullDays(from, to);
+        SalesTotalsEntity totals = new SalesTotalsEntity();
+        if (!fullDays[0].isBefore(fullDays[1])) {
+            addScan(totals, from, to, true, gameNo);
+            return totals;
+        }
+        addRollup(totals, fullDays[0], fullDays[1], gameNo);
+        LocalDateTime fullDaysStart = fullDays[0].atStartOfDay();
+        LocalDateTime fullDaysEnd = fullDays[1].atStartOfDay();
+        if (from.isBefore(fullDaysStart)) {
+            addScan(totals, from, fullDaysStart, false, gameNo);
+        }
+        if (!to.isBefore(fullDaysEnd)) {
+            addScan(totals, fullDaysEnd, to, true, gameNo);
+        }
+        return totals;
+    }
+
+    private void addRollup(SalesTotalsEntity totals, LocalDate firstDay, LocalDate endDay, Integer gameNo) {
+        StringBuilder sql = new StringBuilder("SELECT SUM(sales_count), SUM(sale_price) FROM " + GameSalesConstants.GAME_SALES_DAILY_TABLE + " WHERE day >= ? AND day < ?");
+        List<Object> params = new ArrayList<>();
+        params.add(firstDay);
+        params.add(endDay);
+        addTotals(totals, sql, params, gameNo);
+    }
+
+    private void addScan(SalesTotalsEntity totals, LocalDateTime from, LocalDateTime to, boolean toInclusive, Integer gameNo) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*), SUM(sale_price) FROM " + GameSalesConstants.GAME_SALES_TABLE
+                + " WHERE date_of_sale >= ? AND date_of_sale " + (toInclusive ? "<= ?" : "< ?"));
+        List<Object> params = new ArrayList<>();
+        params.add(from);
+        params.add(to);
+        addTotals(totals, sql, params, gameNo);
+    }
+
+    private void addTotals(SalesTotalsEntity totals, StringBuilder sql, List<Object> params, Integer gameNo) {
+        if (gameNo != null) {
+            sql.append(" AND game_no = ?");
+            params.add(gameNo);
+        }
+        jdbcTemplate.query(sql.toString(), rs -> {
+            long salesCount = rs.getLong(1);
+            if (salesCount > 0) {
+                totals.setSalesCount(totals.getSalesCount() + salesCount);
+                totals.setTotalSales(totals.getTotalSales() == null ? rs.getDouble(2) : totals.getTotalSales() + rs.getDouble(2));
+            }
+        }, params.toArray());
+    }
+}
@@ -1,160 +1,76 @@
 package com.example.gamesales.service;
 
 import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.entity.GameSalesCursorEntity;
+import com.example.gamesales.entity.GameSalesPageEntity;
 import com.example.gamesales.entity.GameSalesParamsEntity;
+import com.example.gamesales.entity.SalesTotalsEntity;
 import com.example.gamesales.entity.TotalSalesParamsEntity;
-import com.example.gamesales.exception.ValidationException;
 import com.example.gamesales.repository.GameSalesRepository;
-import com.example.gamesales.task.BatchInsertGameSalesTaskExecutor;
-import com.example.gamesales.task.BatchInsertInvalidRecordsTaskExecutor;
-import com.example.gamesales.task.UpdateProgressStatusTask;
 import com.example.gamesales.util.GameSalesUtil;
-import com.example.gamesales.validators.ValidatorService;
 import com.example.gamesales.view.GameSalesView;
-import com.example.gamesales.view.InvalidRecordView;
-import com.example.gamesales.view.ProgressTrackingView;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
 public class GameSalesService {
     private final GameSalesRepository gameSalesRepository;
-    private final ExecutorService executorService;
     private final JdbcTemplate jdbcTemplate;
-    private final BatchInsertService batchInsertService;
-    private final ProgressTrackingService progressTrackingService;
-    private final ValidatorService validatorService;
+    private final GameSalesCountService gameSalesCountService;
+    private final GameSalesRollupService gameSalesRollupService;
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final QueryResultCacheService queryResultCacheService;
 
-    @Value("${com.example.gamesales.import.threadpoolsize:20}")
-    private int threadPoolSize;
-
-    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:10000}")
-    private int batchSize;
+    private static final RowMapper<GameSalesView> GAME_SALES_ROW_MAPPER = (rs, rowNum) -> {
+        GameSalesView gameSalesView = new GameSalesView();
+        gameSalesView.setId(rs.getLong(GameSalesConstants.ID));
+        gameSalesView.setGameNo(rs.getInt("game_no"));
+        gameSalesView.setGameName(rs.getString("game_name"));
+        gameSalesView.setGameCode(rs.getString("game_code"));
+        gameSalesView.setType(rs.getInt(GameSalesConstants.TYPE));
+        gameSalesView.setCostPrice(rs.getDouble("cost_price"));
+        gameSalesView.setTax(rs.getDouble(GameSalesConstants.TAX));
+        gameSalesView.setSalePrice(rs.getDouble("sale_price"));
+        gameSalesView.setDateOfSale(GameSalesUtil.convertTimestampToLocalDateTime(rs.getTimestamp("date_of_sale")));
+        return gameSalesView;
+    };
 
     @Autowired
-    public GameSalesService(GameSalesRepository gameSalesRepository, ExecutorService executorService, JdbcTemplate jdbcTemplate, BatchInsertService batchInsertService, ProgressTrackingService progressTrackingService, ValidatorService validatorService) {
+    public GameSalesService(GameSalesRepository gameSalesRepository, JdbcTemplate jdbcTemplate, GameSalesCountService gameSalesCountService, GameSalesRollupService gameSalesRollupService, SalesAnalyticsService salesAnalyticsService,
+                            QueryResultCacheService queryResultCacheService) {
         this.gameSalesRepository = gameSalesRepository;
-        this.executorService = executorService;
         this.jdbcTemplate = jdbcTemplate;
-        this.batchInsertService = batchInsertService;
-        this.progressTrackingService = progressTrackingService;
-        this.validatorService = validatorService;
-    }
-
-    public void save(MultipartFile csvFile, int totalRecordsCount) {
-
-        AtomicInteger validRecordsCount = new AtomicInteger();
-        AtomicInteger invalidRecordsCount = new AtomicInteger();
-
-        ProgressTrackingView progressTrackingView = progressTrackingService.initialiseProgressView(totalRecordsCount);
-
-        List<GameSalesView> validGameSalesViews = new ArrayList<>();
-        List<CSVRecord> invalidGameSalesRecords = new ArrayList<>();
-        try (BufferedReader fileReader = new BufferedReader(new InputStreamReader(csvFile.getInputStream(), StandardCharsets.UTF_8));
-             CSVParser csvParser = new CSVParser(fileReader, CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim())) {
-            Iterable<CSVRecord> csvRecords = csvParser.getRecords();
-
-            for (CSVRecord csvRecord : csvRecords) {
-                try {
-                    // separate valid and invalid records first.
-                    GameSalesView view = parseCsvLineToGameSalesView(csvRecord);
-                    if (validatorService.isValidData(view)) {
-                        validGameSalesViews.add(view);
-                    } else {
-                        invalidGameSalesRecords.add(csvRecord);
-                    }
-                } catch (NullPointerException | NumberFormatException | DateTimeParseException e) {
-                    log.error(e.getMessage(), e);
-                    throw new ValidationException("Error in parsing data in csv file.");
-                }
-            }
-
-            BatchInsertGameSalesTaskExecutor executor = new BatchInsertGameSalesTaskExecutor(executorService, batchInsertService, progressTrackingService);
-            List<Future<Void>> futures = executor.executeBatchGameSalesInserts(validGameSalesViews, batchSize, validRecordsCount, progressTrackingView);
-
-            if (!invalidGameSalesRecords.isEmpty()) {
-                BatchInsertInvalidRecordsTaskExecutor executor2 = new BatchInsertInvalidRecordsTaskExecutor(executorService, batchInsertService, progressTrackingService);
-                futures.addAll(executor2.executeBatchInvalidRecordInserts(mapToInvalidRecordViews(invalidGameSalesRecords), batchSize, invalidRecordsCount, progressTrackingView));
-            }
-
-            executorService.submit(new UpdateProgressStatusTask(futures, progressTrackingView, progressTrackingService));
-
-        } catch (IOException e) {
-            log.error(e.getMessage(), e);
-            progressTrackingView.setStatus("ERROR");
-            progressTrackingView.setEndTime(LocalDateTime.now());
-            progressTrackingService.updateProgress(progressTrackingView);
-            throw new ValidationException("error reading data from csv file.");
-        } finally {
-            executorService.shutdown();
-            // here
-            try {
-                if (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                executorService.shutdownNow();
-            }
-        }
-    }
-
-    private List<InvalidRecordView> mapToInvalidRecordViews(List<CSVRecord> csvRecords) {
-        List<InvalidRecordView> views = new ArrayList<>();
-        LocalDateTime now = LocalDateTime.now();
-        for (CSVRecord csvRecord : csvRecords) {
-            InvalidRecordView view = new InvalidRecordView();
-            view.setInvalidRecordRowId(csvRecord.getRecordNumber());
-            view.setInvalidRecordRowText(csvRecord.toString());
-            view.setCreatedOn(now);
-            views.add(view);
-        }
-        return views;
-    }
-
-    private GameSalesView parseCsvLineToGameSalesView(CSVRecord csvRecord) throws NullPointerException, NumberFormatException, DateTimeParseException {
-        GameSalesView view = new GameSalesView();
-//        view.setId(Long.parseLong(csvRecord.get(0)));
-        view.setGameNo(Integer.parseInt(csvRecord.get(1)));
-        view.setGameName(csvRecord.get(2));
-        view.setGameCode(csvRecord.get(3));
-        view.setType(Integer.parseInt(csvRecord.get(4)));
-        view.setCostPrice(Double.parseDouble(csvRecord.get(5)));
-        view.setTax(Double.parseDouble(csvRecord.get(6)));
-        view.setSalePrice(Double.parseDouble(csvRecord.get(7)));
-        view.setDateOfSale(LocalDateTime.parse(csvRecord.get(8), DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS")));
-        return view;
+        this.gameSalesCountService = gameSalesCountService;
+        this.gameSalesRollupService = gameSalesRollupService;
+        this.salesAnalyticsService = salesAnalyticsService;
+        this.queryResultCacheService = queryResultCacheService;
     }
 
-    public Page<GameSalesView> getGameSalesPageWith(GameSalesParamsEntity gameSalesParamsEntity, String sortField, String sortDir, Pageable pageable) {
+    /**
+     * Page of game sales with a total count as chosen by {@code countStrategy}: none returns a {@link Slice} that only knows whether
+     * there is a next page, exact counts on a separate connection while the page is read, estimate takes the optimizer's row estimate.
+     */
+    public Slice<GameSalesView> getGameSalesPageWith(GameSalesParamsEntity gameSalesParamsEntity, String sortField, String sortDir, Pageable pageable, String countStrategy) {
         if (StringUtils.isNotBlank(sortField)) {
             if (GameSalesConstants.SORT_DIR_DESC.equals(sortDir)) {
                 pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(sortField).descending());
@@ -162,18 +78,107 @@ public class GameSalesService {
                 pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(sortField).ascending());
             }
         }
-        return gameSalesRepository.getGameSalesWithPage(gameSalesParamsEntity, pageable);
+        GameSalesParamsEntity params = gameSalesParamsEntity == null ? new GameSalesParamsEntity() : gameSalesParamsEntity;
+        if (GameSalesConstants.COUNT_STRATEGY_EXACT.equalsIgnoreCase(countStrategy)) {
+            CompletableFuture<Long> count = gameSalesCountService.getExactCount(params);
+            List<GameSalesView> gameSales = gameSalesRepository.getGameSalesWith(params, pageable, pageable.getPageSize());
+            return new PageImpl<>(gameSales, pageable, count.join());
+        }
+        if (GameSalesConstants.COUNT_STRATEGY_ESTIMATE.equalsIgnoreCase(countStrategy)) {
+            List<GameSalesView> gameSales = gameSalesRepository.getGameSalesWith(params, pageable, pageable.getPageSize());
+            return new PageImpl<>(gameSales, pageable, gameSalesCountService.getEstimatedCount(params));
+        }
+        // one row more than the page tells whether there is a next page without counting
+        List<GameSalesView> gameSales = gameSalesRepository.getGameSalesWith(params, pageable, pageable.getPageSize() + 1);
+        boolean hasNext = gameSales.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? new ArrayList<>(gameSales.subList(0, pageable.getPageSize())) : gameSales, pageable, hasNext);
     }
 
+    /**
+     * Page of game sales from the query result cache, keyed on the parsed filters, sort and page.
+     */
     public List<GameSalesView> getGameSalesWith(GameSalesParamsEntity gameSalesParamsEntity, String sortField, String sortDirection, int page, int size) {
-        if (page < 1) {
-            page = 1;
-        }
+        int pageNumber = Math.max(page, 1);
+        String sortColumn = StringUtils.defaultIfBlank(sortField, GameSalesConstants.DATE_OF_SALE_COLUMN_NAME).toLowerCase();
+        boolean descending = StringUtils.equalsIgnoreCase(GameSalesConstants.SORT_DIR_DESC, sortDirection);
+        GameSalesParamsEntity params = gameSalesParamsEntity == null ? new GameSalesParamsEntity() : gameSalesParamsEntity;
+        String key = "sales|" + params.getFrom() + "|" + params.getTo() + "|" + params.getMinPrice() + "|" + params.getMaxPrice()
+                + "|" + sortColumn + "|" + descending + "|" + pageNumber + "|" + size;
+        return queryResultCacheService.get(key, params.getFrom(), params.getTo(),
+                () -> Collections.unmodifiableList(queryGameSales(params, sortColumn, descending, pageNumber, size)));
+    }
+
+    private List<GameSalesView> queryGameSales(GameSalesParamsEntity gameSalesParamsEntity, String sortField, boolean descending, int page, int size) {
         int offset = (page - 1) * size;
         // base query
         StringBuilder sql = new StringBuilder("SELECT * FROM game_sales WHERE 1=1");
         // List to hold the sql query parameters
         List<Object> params = new ArrayList<>();
+        appendFilters(gameSalesParamsEntity, sql, params);
+
+        sql.append(" ORDER BY ").append(sortField).append(descending ? " DESC" : " ASC");
+
+        sql.append(" LIMIT ? OFFSET ?");
+        params.add(size);
+        params.add(offset);
+        return jdbcTemplate.query(sql.toString(), GAME_SALES_ROW_MAPPER, params.toArray());
+    }
+
+    /**
+     * Keyset page: instead of skipping {@code offset} rows, seeks to the rows after the (sort column, id) of the cursor,
+     * so every page costs the same however deep it is. id breaks ties between rows with the same sort value.
+     * One row more than the page size is read to tell whether there is a next page.
+     *
+     * @param cursor position after the last row of the previous page, null for the first page
+     */
+    public GameSalesPageEntity getGameSalesAfter(GameSalesParamsEntity gameSalesParamsEntity, String sortField, String sortDirection, GameSalesCursorEntity cursor, int size) {
+        String sortColumn = StringUtils.defaultIfBlank(sortField, GameSalesConstants.DATE_OF_SALE_COLUMN_NAME).toLowerCase();
+        boolean descending = StringUtils.equalsIgnoreCase(GameSalesConstants.SORT_DIR_DESC, sortDirection);
+        String direction = descending ? " DESC" : " ASC";
+        StringBuilder sql = new StringBuilder("SELECT * FROM game_sales WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        appendFilters(gameSalesParamsEntity, sql, params);
+
+        if (cursor != null) {
+            if (GameSalesConstants.ID.equals(sortColumn)) {
+                sql.append(" AND id").append(descending ? " < ?" : " > ?");
+                params.add(cursor.getId());
+            } else {
+                // the outer bound is a range on the sort column index, InnoDB keeps id in every secondary index for the tie break
+                Object value = GameSalesUtil.parseSortValue(sortColumn, cursor.getValue());
+                sql.append(" AND ").append(sortColumn).append(descending ? " <= ?" : " >= ?")
+                        .append(" AND (").append(sortColumn).append(descending ? " < ?" : " > ?")
+                        .append(" OR id").append(descending ? " < ?" : " > ?").append(")");
+                params.add(value);
+                params.add(value);
+                params.add(cursor.getId());
+            }
+        }
+
+        sql.append(" ORDER BY ").append(sortColumn).append(direction);
+        if (!GameSalesConstants.ID.equals(sortColumn)) {
+            sql.append(", id").append(direction);
+        }
+        sql.append(" LIMIT ?");
+        params.add(size + 1);
+        List<GameSalesView> gameSales = jdbcTemplate.query(sql.toString(), GAME_SALES_ROW_MAPPER, params.toArray());
+
+        GameSalesPageEntity gameSalesPageEntity = new GameSalesPageEntity();
+        if (gameSales.size() > size) {
+            gameSales = new ArrayList<>(gameSales.subList(0, size));
+            GameSalesView last = gameSales.get(size - 1);
+            GameSalesCursorEntity nextCursor = new GameSalesCursorEntity();
+            nextCursor.setSortField(sortColumn);
+            nextCursor.setSortDir(descending ? GameSalesConstants.SORT_DIR_DESC : GameSalesConstants.SORT_DIR_ASC);
+            nextCursor.setId(last.getId());
+            nextCursor.setValue(getSortValue(last, sortColumn));
+            gameSalesPageEntity.setNextCursor(GameSalesUtil.encodeCursor(nextCursor));
+        }
+        gameSalesPageEntity.setGameSales(gameSales);
+        return gameSalesPageEntity;
+    }
+
+    private void appendFilters(GameSalesParamsEntity gameSalesParamsEntity, StringBuilder sql, List<Object> params) {
         if (gameSalesParamsEntity != null) {
             if (gameSalesParamsEntity.getFrom() != null) {
                 sql.append(" AND date_of_sale >= ?");
@@ -195,39 +200,43 @@ public class GameSalesService {
                 params.add(gameSalesParamsEntity.getMaxPrice());
             }
         }
+    }
 
-        if (StringUtils.isNotBlank(sortField)) {
-            sql.append(" ORDER BY ").append(sortField);
-        } else {
-            sql.append(" ORDER BY ").append(GameSalesConstants.DATE_OF_SALE_COLUMN_NAME);
-        }
-
-        if (StringUtils.equalsIgnoreCase(GameSalesConstants.SORT_DIR_DESC, sortDirection)) {
-            sql.append(" DESC");
-        } else {
-            sql.append(" ASC");
+    private static String getSortValue(GameSalesView gameSalesView, String sortColumn) {
+        switch (sortColumn) {
+            case GameSalesConstants.ID:
+                return String.valueOf(gameSalesView.getId());
+            case "game_no":
+                return String.valueOf(gameSalesView.getGameNo());
+            case "game_name":
+                return gameSalesView.getGameName();
+            case "game_code":
+                return gameSalesView.getGameCode();
+            case GameSalesConstants.TYPE:
+                return String.valueOf(gameSalesView.getType());
+            case "cost_price":
+                return String.valueOf(gameSalesView.getCostPrice());
+            case GameSalesConstants.TAX:
+                return String.valueOf(gameSalesView.getTax());
+            case "sale_price":
+                return String.valueOf(gameSalesView.getSalePrice());
+            default:
+                return gameSalesView.getDateOfSale().toString();
         }
-
-        sql.append(" LIMIT ? OFFSET ?");
-        params.add(size);
-        params.add(offset);
-        return jdbcTemplate.query(sql.toString(), params.toArray(), (rs, rowNum) -> {
-            GameSalesView gameSalesView = new GameSalesView();
-            gameSalesView.setId(rs.getLong(GameSalesConstants.ID));
-            gameSalesView.setGameNo(rs.getInt("game_no"));
-            gameSalesView.setGameName(rs.getString("game_name"));
-            gameSalesView.setGameCode(rs.getString("game_code"));
-            gameSalesView.setType(rs.getInt(GameSalesConstants.TYPE));
-            gameSalesView.setCostPrice(rs.getDouble("cost_price"));
-            gameSalesView.setTax(rs.getDouble(GameSalesConstants.TAX));
-            gameSalesView.setSalePrice(rs.getDouble("sale_price"));
-            gameSalesView.setDateOfSale(GameSalesUtil.convertTimestampToLocalDateTime(rs.getTimestamp("date_of_sale")));
-            return gameSalesView;
-        });
     }
 
+    /**
+     * Total sales or sales count from the query result cache, keyed on the parsed parameters.
+     */
+    public Map<String, Object> getTotalSalesWith(TotalSalesParamsEntity totalSalesParamsEntity) {
+        // gameNo is echoed in the response as requested, so it is part of the key as written
+        String key = "totals|" + totalSalesParamsEntity.getFrom() + "|" + totalSalesParamsEntity.getTo() + "|" + totalSalesParamsEntity.getCategory()
+                + "|" + StringUtils.defaultIfBlank(totalSalesParamsEntity.getGameNo(), null);
+        return queryResultCacheService.get(key, totalSalesParamsEntity.getFrom(), totalSalesParamsEntity.getTo(),
+                () -> Collections.unmodifiableMap(queryTotalSales(totalSalesParamsEntity)));
+    }
 
-    public HashMap<String, Object> getTotalSalesWith(TotalSalesParamsEntity totalSalesParamsEntity) {
+    private HashMap<String, Object> queryTotalSales(TotalSalesParamsEntity totalSalesParamsEntity) {
         HashMap<String, Object> response = new HashMap<>();
         if (totalSalesParamsEntity.getFrom() != null) {
             response.put(GameSalesConstants.FROM, totalSalesParamsEntity.getFrom());
@@ -243,16 +252,28 @@ public class GameSalesService {
             if (GameSalesConstants.CATEGORY_TOTAL_SALES.equals(totalSalesParamsEntity.getCategory())) {
                 if (StringUtils.isNotBlank(totalSalesParamsEntity.getGameNo())) {
                     response.put(GameSalesConstants.GAME_NO, totalSalesParamsEntity.getGameNo());
-                    response.put(GameSalesConstants.CATEGORY_TOTAL_SALES, gameSalesRepository.sqlFunctionCalcTotalSalesForGameNoBetween(totalSalesParamsEntity.getFrom(), totalSalesParamsEntity.getTo(), Integer.valueOf(totalSalesParamsEntity.getGameNo())));
+                    response.put(GameSalesConstants.CATEGORY_TOTAL_SALES, toBigDecimal(getTotals(totalSalesParamsEntity.getFrom(), totalSalesParamsEntity.getTo(), Integer.valueOf(totalSalesParamsEntity.getGameNo())).getTotalSales()));
 
                 } else {
-                    response.put(GameSalesConstants.CATEGORY_TOTAL_SALES, gameSalesRepository.sqlFunctionCalcTotalSalesBetween(totalSalesParamsEntity.getFrom(), totalSalesParamsEntity.getTo()));
+                    response.put(GameSalesConstants.CATEGORY_TOTAL_SALES, toBigDecimal(getTotals(totalSalesParamsEntity.getFrom(), totalSalesParamsEntity.getTo(), null).getTotalSales()));
                 }
             } else if (GameSalesConstants.CATEGORY_TOTAL_GAMES_COUNT.equals(totalSalesParamsEntity.getCategory())) {
-                response.put(GameSalesConstants.CATEGORY_TOTAL_GAMES_COUNT, gameSalesRepository.sqlFunctionGetCountForTotalGamesSoldBetween(totalSalesParamsEntity.getFrom(), totalSalesParamsEntity.getTo()));
+                response.put(GameSalesConstants.CATEGORY_TOTAL_GAMES_COUNT, getTotals(totalSalesParamsEntity.getFrom(), totalSalesParamsEntity.getTo(), null).getSalesCount());
             }
         }
         return response;
     }
 
+    /**
+     * Totals from the in-process analytics engine when it is enabled and loaded, from the daily rollup otherwise.
+     */
+    private SalesTotalsEntity getTotals(LocalDateTime from, LocalDateTime to, Integer gameNo) {
+        SalesTotalsEntity totals = salesAnalyticsService.getTotals(from, to, gameNo);
+        return totals != null ? totals : gameSalesRollupService.getTotals(from, to, gameNo);
+    }
+
+    private static BigDecimal toBigDecimal(Double value) {
+        return value == null ? null : BigDecimal.valueOf(value);
+    }
+
 }
@@ -0,0 +1,46 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.entity.ImportCheckpointEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Reads the checkpoints written by {@link BatchInsertService#commitBatch} for resuming import jobs.
+ */
+@Service
+@Slf4j
+public class ImportCheckpointService {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ImportCheckpointService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<ImportCheckpointEntity> getCheckpoints(Long progressTrackViewId) {
+        String sql = "SELECT * FROM import_checkpoint WHERE progress_track_view_id = ? ORDER BY first_record_number";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            ImportCheckpointEntity checkpoint = new ImportCheckpointEntity();
+            checkpoint.setProgressTrackViewId(rs.getLong("progress_track_view_id"));
+            checkpoint.setFirstRecordNumber(rs.getLong("first_record_number"));
+            checkpoint.setLastRecordNumber(rs.getLong("last_record_number"));
+            checkpoint.setStartOffset(rs.getLong("start_offset"));
+            checkpoint.setEndOffset(rs.getLong("end_offset"));
+            checkpoint.setValidRecordsCount(rs.getInt("valid_records_count"));
+            checkpoint.setInvalidRecordsCount(rs.getInt("invalid_records_count"));
+            checkpoint.setSkippedRecordsCount(rs.getInt("skipped_records_count"));
+            return checkpoint;
+        }, progressTrackViewId);
+    }
+
+    /**
+     * Checkpoints are only needed until the job completes.
+     */
+    public void deleteCheckpoints(Long progressTrackViewId) {
+        jdbcTemplate.update("DELETE FROM import_checkpoint WHERE progress_track_view_id = ?", progressTrackViewId);
+    }
+}
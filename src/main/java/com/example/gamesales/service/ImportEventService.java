@@ -0,0 +1,323 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.entity.ImportProgressEventEntity;
+import com.example.gamesales.task.ProgressAggregator;
+import com.example.gamesales.view.ProgressTrackingView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-sent progress events of import jobs.
+ * <p>
+ * Jobs are registered when they are queued, their events are built from the job's in-memory view and {@link ProgressAggregator},
+ * so subscribers never cause a database query while the job runs. Every {@code intervalms} each job with subscribers gets a
+ * {@code progress} event if its state changed, otherwise a heartbeat comment once the connection was idle for {@code heartbeatms}.
+ * The payload is serialised once per job and tick whatever the number of subscribers. A {@code finished} event with the final state
+ * ends the stream.
+ * <p>
+ * The scheduler only hands events to the subscribers, every subscriber writes on its own sender thread with at most one write in
+ * flight. A subscriber that is still writing keeps only the latest event, so a slow client skips intermediate progress and never
+ * blocks the scheduler, which also flushes progress_tracking, or the other subscribers.
+ */
+@Service
+@Slf4j
+public class ImportEventService {
+    private static final List<String> FINAL_STATUSES = Arrays.asList(GameSalesConstants.STATUS_COMPLETED, GameSalesConstants.STATUS_ERROR, GameSalesConstants.STATUS_REJECTED);
+    private static final String PROGRESS_EVENT = "progress";
+    private static final String FINISHED_EVENT = "finished";
+
+    private final ScheduledExecutorService progressScheduler;
+    private final ProgressAggregationService progressAggregationService;
+    private final ProgressTrackingService progressTrackingService;
+    private final ObjectMapper objectMapper;
+    private final Map<Long, LiveJob> liveJobs = new ConcurrentHashMap<>();
+    private ExecutorService eventSender;
+
+    @Value("${com.example.gamesales.import.events.intervalms:1000}")
+    private long intervalMillis;
+
+    @Value("${com.example.gamesales.import.events.heartbeatms:15000}")
+    private long heartbeatMillis;
+
+    @Value("${com.example.gamesales.import.events.timeoutms:1800000}")
+    private long timeoutMillis;
+
+    @Autowired
+    public ImportEventService(ScheduledExecutorService progressScheduler, ProgressAggregationService progressAggregationService, ProgressTrackingService progressTrackingService, ObjectMapper objectMapper) {
+        this.progressScheduler = progressScheduler;
+        this.progressAggregationService = progressAggregationService;
+        this.progressTrackingService = progressTrackingService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        // servlet writes block on slow clients, threads are only created for subscribers with a write in flight
+        eventSender = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "import-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        progressScheduler.scheduleWithFixedDelay(this::publishAll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        eventSender.shutdownNow();
+    }
+
+    /**
+     * Makes a queued job's view, which the job updates in place, the source of its events.
+     */
+    public void register(ProgressTrackingView progressTrackingView) {
+        liveJobs.put(progressTrackingView.getId(), new LiveJob(progressTrackingView));
+    }
+
+    /**
+     * Streams the events of a job. A job that is not queued or running in this instance gets its stored state as a single
+     * {@code finished} event.
+     */
+    public SseEmitter subscribe(Long id) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        LiveJob liveJob = liveJobs.get(id);
+        if (liveJob == null) {
+            return sendStoredState(emitter, id);
+        }
+        Subscriber subscriber = new Subscriber(emitter, liveJob.subscribers);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        // the current state right away, the next ones as it changes
+        subscriber.offer(PROGRESS_EVENT, toJson(toEvent(liveJob.view, progressAggregationService.getAggregator(id))), false);
+        liveJob.subscribers.add(subscriber);
+        if (liveJobs.get(id) != liveJob) {
+            // the job finished while subscribing and its last subscribers were already completed, the stored state follows the first event
+            liveJob.subscribers.remove(subscriber);
+            subscriber.offer(FINISHED_EVENT, toJson(toEvent(progressTrackingService.getProgressView(id), Optional.empty())), true);
+        }
+        return emitter;
+    }
+
+    private SseEmitter sendStoredState(SseEmitter emitter, Long id) {
+        ProgressTrackingView progressTrackingView = progressTrackingService.getProgressView(id);
+        send(emitter, FINISHED_EVENT, toJson(toEvent(progressTrackingView, Optional.empty())));
+        emitter.complete();
+        return emitter;
+    }
+
+    private void publishAll() {
+        long now = System.currentTimeMillis();
+        for (LiveJob liveJob : liveJobs.values()) {
+            try {
+                publish(liveJob, now);
+            } catch (Exception e) {
+                // keep the scheduled task alive for the other jobs
+                log.error("unable to publish events of import {}", liveJob.view.getId(), e);
+            }
+        }
+    }
+
+    private void publish(LiveJob liveJob, long now) {
+        ProgressTrackingView view = liveJob.view;
+        boolean finished = FINAL_STATUSES.contains(view.getStatus());
+        if (finished) {
+            liveJobs.remove(view.getId(), liveJob);
+        }
+        if (liveJob.subscribers.isEmpty()) {
+            return;
+        }
+        ImportProgressEventEntity event = toEvent(view, finished ? Optional.empty() : progressAggregationService.getAggregator(view.getId()));
+        String json = toJson(event);
+        if (finished) {
+            for (Subscriber subscriber : liveJob.subscribers) {
+                subscriber.offer(FINISHED_EVENT, json, true);
+            }
+            return;
+        }
+        // rates change every tick, only counts and status make an event worth sending
+        String state = event.getStatus() + ':' + event.getProcessedRecordsCount() + ':' + event.getInvalidRecordsCount() + ':' + event.getSkippedRecordsCount();
+        if (!state.equals(liveJob.lastState)) {
+            liveJob.lastState = state;
+            liveJob.lastSentMillis = now;
+            sendToAll(liveJob, PROGRESS_EVENT, json);
+        } else if (now - liveJob.lastSentMillis >= heartbeatMillis) {
+            liveJob.lastSentMillis = now;
+            sendToAll(liveJob, null, null);
+        }
+    }
+
+    private void sendToAll(LiveJob liveJob, String eventName, String json) {
+        for (Subscriber subscriber : liveJob.subscribers) {
+            subscriber.offer(eventName, json, false);
+        }
+    }
+
+    /**
+     * Sends an event, or a heartbeat comment when {@code eventName} is null. False when the subscriber is gone.
+     */
+    private boolean send(SseEmitter emitter, String eventName, String json) {
+        try {
+            if (eventName == null) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } else {
+                emitter.send(SseEmitter.event().name(eventName).data(json, MediaType.APPLICATION_JSON));
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("dropping import events subscriber: {}", e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private ImportProgressEventEntity toEvent(ProgressTrackingView view, Optional<ProgressAggregator> aggregator) {
+        ImportProgressEventEntity event = new ImportProgressEventEntity();
+        event.setId(view.getId());
+        event.setStatus(view.getStatus());
+        event.setTotalRecordsCount(view.getTotalRecordsCount());
+        event.setTotalBytes(view.getTotalBytes());
+        if (aggregator.isPresent()) {
+            ProgressAggregator progress = aggregator.get();
+            event.setProcessedRecordsCount(progress.getValidRecordsCount());
+            event.setInvalidRecordsCount(progress.getInvalidRecordsCount());
+            event.setSkippedRecordsCount(progress.getSkippedRecordsCount());
+            event.setProcessedBytes(progress.getProcessedBytes());
+            double recordsPerSecond = progress.getRecordsPerSecond();
+            event.setRecordsPerSecond(recordsPerSecond);
+            double bytesPerSecond = progress.getBytesPerSecond();
+            if (recordsPerSecond > 0 && view.getTotalRecordsCount() != null && view.getTotalRecordsCount() > 0) {
+                long remaining = Math.max(0, view.getTotalRecordsCount() - progress.getValidRecordsCount() - progress.getInvalidRecordsCount() - progress.getSkippedRecordsCount());
+                event.setEtaSeconds((long) Math.ceil(remaining / recordsPerSecond));
+            } else if (bytesPerSecond > 0 && view.getTotalBytes() != null) {
+                // streamed uploads are not counted up front, their progress is measured in bytes
+                long remaining = Math.max(0, view.getTotalBytes() - progress.getProcessedBytes());
+                event.setEtaSeconds((long) Math.ceil(remaining / bytesPerSecond));
+            }
+        } else {
+            event.setProcessedRecordsCount(view.getTotalProcessedRecordsCount());
+            event.setInvalidRecordsCount(view.getInvalidRecordsCount());
+            event.setSkippedRecordsCount(view.getSkippedRecordsCount());
+            event.setProcessedBytes(view.getProcessedBytes());
+        }
+        return event;
+    }
+
+    private String toJson(ImportProgressEventEntity event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class LiveJob {
+        private final ProgressTrackingView view;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private String lastState;
+        private long lastSentMillis;
+
+        LiveJob(ProgressTrackingView view) {
+            this.view = view;
+            this.lastSentMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * One emitter and the latest event it has not written yet, written on {@link #eventSender}.
+     */
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final List<Subscriber> subscribers;
+        // guarded by this
+        private boolean pending;
+        private String pendingEventName;
+        private String pendingJson;
+        private boolean pendingComplete;
+        private boolean sending;
+        private boolean closed;
+
+        Subscriber(SseEmitter emitter, List<Subscriber> subscribers) {
+            this.emitter = emitter;
+            this.subscribers = subscribers;
+        }
+
+        /**
+         * Replaces the unwritten event, a heartbeat never replaces an event and nothing replaces the final one.
+         */
+        synchronized void offer(String eventName, String json, boolean complete) {
+            if (closed || (pending && (pendingComplete || eventName == null))) {
+                return;
+            }
+            pending = true;
+            pendingEventName = eventName;
+            pendingJson = json;
+            pendingComplete = complete;
+            if (!sending) {
+                sending = true;
+                eventSender.execute(this::drain);
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                pending = false;
+            }
+            subscribers.remove(this);
+        }
+
+        private void drain() {
+            while (true) {
+                String eventName;
+                String json;
+                boolean complete;
+                synchronized (this) {
+                    if (!pending || closed) {
+                        sending = false;
+                        return;
+                    }
+                    eventName = pendingEventName;
+                    json = pendingJson;
+                    complete = pendingComplete;
+                    pending = false;
+                }
+                if (!send(emitter, eventName, json)) {
+                    synchronized (this) {
+                        sending = false;
+                    }
+                    close();
+                    return;
+                }
+                if (complete) {
+                    emitter.complete();
+                    synchronized (this) {
+                        sending = false;
+                    }
+                    close();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.exception.ImportRejectedException;
+import com.example.gamesales.exception.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.text.MessageFormat;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs import jobs off the request thread for the life of the application.
+ * <p>
+ * At most {@code maxconcurrent} jobs parse at the same time, up to {@code maxqueued} more wait in a FIFO queue and anything beyond
+ * that is rejected. The shared insert pool is split evenly between the concurrent jobs, so one large upload cannot starve the others.
+ */
+@Service
+@Slf4j
+public class ImportSchedulerService {
+
+    @Value("${com.example.gamesales.import.threadpoolsize:20}")
+    private int threadPoolSize;
+
+    @Value("${com.example.gamesales.import.maxconcurrent:2}")
+    private int maxConcurrentImports;
+
+    @Value("${com.example.gamesales.import.maxqueued:10}")
+    private int maxQueuedImports;
+
+    private final Set<Long> activeJobIds = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor jobExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        jobExecutor = new ThreadPoolExecutor(maxConcurrentImports, maxConcurrentImports, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedImports),
+                runnable -> new Thread(runnable, "import-job-" + threadCount.incrementAndGet()));
+    }
+
+    public void submit(Long jobId, Runnable job) {
+        if (!activeJobIds.add(jobId)) {
+            throw new ValidationException(MessageFormat.format("import {0} is already queued or running.", jobId));
+        }
+        try {
+            jobExecutor.execute(() -> {
+                try {
+                    job.run();
+                } finally {
+                    activeJobIds.remove(jobId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            activeJobIds.remove(jobId);
+            String importQueueFull = MessageFormat.format("import queue is full ({0} running, {1} queued), job {2} rejected. please retry later.",
+                    jobExecutor.getActiveCount(), jobExecutor.getQueue().size(), jobId);
+            log.error(importQueueFull);
+            throw new ImportRejectedException(importQueueFull);
+        }
+    }
+
+    /**
+     * True while the job is queued or running in this application instance.
+     */
+    public boolean isActive(Long jobId) {
+        return activeJobIds.contains(jobId);
+    }
+
+    /**
+     * Fair share of the insert pool for a single job.
+     */
+    public int getInsertWorkersPerJob() {
+        return Math.max(1, threadPoolSize / maxConcurrentImports);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdown();
+        try {
+            if (!jobExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                jobExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            jobExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,788 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.batch.CommittedRecordRanges;
+import com.example.gamesales.binary.GameSalesBinaryReader;
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.constants.InvalidRecordReason;
+import com.example.gamesales.entity.ValidationRuleStatsEntity;
+import com.example.gamesales.exception.ImportRejectedException;
+import com.example.gamesales.exception.ValidationException;
+import com.example.gamesales.parser.CsvChunk;
+import com.example.gamesales.parser.CsvChunkScanner;
+import com.example.gamesales.parser.CsvRecordReader;
+import com.example.gamesales.parser.GameSalesRecordDecoder;
+import com.example.gamesales.sink.GameSalesSink;
+import com.example.gamesales.task.AdaptiveBatchController;
+import com.example.gamesales.task.AdaptiveBatchSettings;
+import com.example.gamesales.task.ImportPipeline;
+import com.example.gamesales.task.ProgressAggregator;
+import com.example.gamesales.task.StreamedUpload;
+import com.example.gamesales.task.StreamedUploadInputStream;
+import com.example.gamesales.task.UpdateProgressStatusTask;
+import com.example.gamesales.util.GameSalesUtil;
+import com.example.gamesales.validators.ValidatorService;
+import com.example.gamesales.view.GameSalesView;
+import com.example.gamesales.view.InvalidRecordView;
+import com.example.gamesales.view.ProgressTrackingView;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Csv import jobs: the upload is spooled to a local file on the request thread, parsing and inserting run as a job
+ * on the {@link ImportSchedulerService} and the job is followed through its progress_tracking row.
+ * <p>
+ * Every committed batch leaves a checkpoint, and the spooled file is kept until the job completes, so a job interrupted
+ * by a failure or a restart continues from its committed batches instead of importing the file again.
+ */
+@Service
+@Slf4j
+public class ImportService {
+    private static final List<String> INTERRUPTED_STATUSES = Arrays.asList(GameSalesConstants.STATUS_QUEUED,
+            GameSalesConstants.STATUS_IN_PROGRESS, GameSalesConstants.STATUS_PUBLISHING, GameSalesConstants.STATUS_REBUILDING_INDEXES);
+    /** an upload matching a job in one of these statuses is already in game_sales or on its way there */
+    private static final List<String> DEDUPLICATED_STATUSES = Arrays.asList(GameSalesConstants.STATUS_QUEUED,
+            GameSalesConstants.STATUS_IN_PROGRESS, GameSalesConstants.STATUS_PUBLISHING, GameSalesConstants.STATUS_REBUILDING_INDEXES, GameSalesConstants.STATUS_COMPLETED);
+    private static final List<String> RESUMABLE_STATUSES = Arrays.asList(GameSalesConstants.STATUS_QUEUED,
+            GameSalesConstants.STATUS_IN_PROGRESS, GameSalesConstants.STATUS_PUBLISHING, GameSalesConstants.STATUS_REBUILDING_INDEXES, GameSalesConstants.STATUS_ERROR, GameSalesConstants.STATUS_FAILED);
+
+    private final ExecutorService executorService;
+    private final ForkJoinPool parsePool;
+    private final BatchInsertService batchInsertService;
+    private final ProgressTrackingService progressTrackingService;
+    private final ProgressAggregationService progressAggregationService;
+    private final ImportEventService importEventService;
+    private final ImportSchedulerService importSchedulerService;
+    private final ImportCheckpointService importCheckpointService;
+    private final StagingTableService stagingTableService;
+    private final BulkLoadService bulkLoadService;
+    private final ValidatorService validatorService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final GameSalesRollupService gameSalesRollupService;
+    private final SalesAnalyticsService salesAnalyticsService;
+
+    private final Map<Long, ImportPipeline> runningPipelines = new ConcurrentHashMap<>();
+    private final Map<Long, StreamedUpload> streamedUploads = new ConcurrentHashMap<>();
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:2500}")
+    private int batchSize;
+
+    @Value("${com.example.gamesales.import.parallel.chunksize:8388608}")
+    private int parseChunkSize;
+
+    @Value("${com.example.gamesales.import.queuecapacity:4}")
+    private int queueCapacity;
+
+    @Value("${com.example.gamesales.import.insertworkers:8}")
+    private int insertWorkers;
+
+    @Value("${com.example.gamesales.import.adaptive.enabled:true}")
+    private boolean adaptiveBatchingEnabled;
+
+    @Value("${com.example.gamesales.import.adaptive.minbatchsize:500}")
+    private int minBatchSize;
+
+    @Value("${com.example.gamesales.import.adaptive.maxbatchsize:10000}")
+    private int maxBatchSize;
+
+    @Value("${com.example.gamesales.import.adaptive.targetlatencyms:1000}")
+    private long targetBatchLatencyMillis;
+
+    @Value("${com.example.gamesales.import.spooldir:${java.io.tmpdir}/game-sales-imports}")
+    private String spoolDir;
+
+    @Value("${com.example.gamesales.import.upload.streamtimeoutms:600000}")
+    private long streamTimeoutMillis;
+
+    @Value("${com.example.gamesales.import.resumeonstartup:true}")
+    private boolean resumeOnStartup;
+
+    @Autowired
+    public ImportService(ExecutorService executorService, ForkJoinPool parsePool, BatchInsertService batchInsertService, ProgressTrackingService progressTrackingService, ProgressAggregationService progressAggregationService, ImportEventService importEventService, ImportSchedulerService importSchedulerService, ImportCheckpointService importCheckpointService, StagingTableService stagingTableService, BulkLoadService bulkLoadService, ValidatorService validatorService, ChunkedUploadService chunkedUploadService,
+                         GameSalesRollupService gameSalesRollupService, SalesAnalyticsService salesAnalyticsService) {
+        this.executorService = executorService;
+        this.parsePool = parsePool;
+        this.batchInsertService = batchInsertService;
+        this.progressTrackingService = progressTrackingService;
+        this.progressAggregationService = progressAggregationService;
+        this.importEventService = importEventService;
+        this.importSchedulerService = importSchedulerService;
+        this.importCheckpointService = importCheckpointService;
+        this.stagingTableService = stagingTableService;
+        this.bulkLoadService = bulkLoadService;
+        this.validatorService = validatorService;
+        this.chunkedUploadService = chunkedUploadService;
+        this.gameSalesRollupService = gameSalesRollupService;
+        this.salesAnalyticsService = salesAnalyticsService;
+    }
+
+    /**
+     * Queues an import of the uploaded csv and returns its job right away.
+     * The upload is fingerprinted while it is spooled, a file that was already imported, or is being imported,
+     * returns that job instead of being imported a second time.
+     */
+    public ProgressTrackingView submitImport(MultipartFile csvFile, int totalRecordsCount, String importMode, String importEngine, String publishMode, String writeMode, boolean bulkLoad) {
+        File spooledFile;
+        String compression;
+        String fileFormat;
+        MessageDigest digest = newFingerprintDigest();
+        try {
+            compression = GameSalesUtil.detectCompression(csvFile);
+            fileFormat = GameSalesUtil.detectFileFormat(csvFile, compression);
+            // compressed uploads are spooled as they are and only inflated while parsing
+            spooledFile = GameSalesUtil.spoolToTempFile(csvFile, Paths.get(spoolDir), digest);
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+            throw new ValidationException("error reading data from csv file.");
+        }
+        String fileFingerprint = GameSalesUtil.toHex(digest.digest());
+        Optional<ProgressTrackingView> earlierImport = progressTrackingService.getLatestProgressViewWithFingerprint(fileFingerprint, DEDUPLICATED_STATUSES);
+        if (earlierImport.isPresent()) {
+            log.info("csv file {} matches import {}, skipping import", fileFingerprint, earlierImport.get().getId());
+            deleteQuietly(spooledFile);
+            return earlierImport.get();
+        }
+
+        ProgressTrackingView progressTrackingView = new ProgressTrackingView();
+        progressTrackingView.setImportMode(importMode);
+        progressTrackingView.setImportEngine(importEngine);
+        progressTrackingView.setPublishMode(publishMode);
+        progressTrackingView.setWriteMode(writeMode);
+        progressTrackingView.setBulkLoad(bulkLoad && bulkLoadService.isAboveThreshold(totalRecordsCount));
+        progressTrackingView.setSourceFilePath(spooledFile.getAbsolutePath());
+        progressTrackingView.setFileFingerprint(fileFingerprint);
+        progressTrackingView.setCompression(compression);
+        progressTrackingView.setFileFormat(fileFormat);
+        if (GameSalesConstants.COMPRESSION_NONE.equals(compression)) {
+            progressTrackingView.setTotalBytes(spooledFile.length());
+        }
+        progressTrackingService.initialiseProgressView(progressTrackingView, totalRecordsCount, GameSalesConstants.STATUS_QUEUED);
+        try {
+            importSchedulerService.submit(progressTrackingView.getId(), () -> runImport(progressTrackingView));
+        } catch (ImportRejectedException e) {
+            deleteQuietly(spooledFile);
+            progressTrackingService.finishProgress(progressTrackingView, GameSalesConstants.STATUS_REJECTED);
+            throw e;
+        }
+        importEventService.register(progressTrackingView);
+        return progressTrackingView;
+    }
+
+    /**
+     * Imports a csv sent as the raw request body in a single pass: the job is queued first, then the body is spooled on the
+     * request thread while the job parses the spool file right behind it, so rows are inserted while the upload is still running
+     * and nothing counts the records up front. Returns once the whole body was received.
+     *
+     * @param contentLength size of the body, -1 when unknown
+     * @param compression   compression of the body as given by its Content-Encoding
+     */
+    public ProgressTrackingView submitStreamedImport(InputStream body, long contentLength, String compression, String importEngine, String publishMode, String writeMode) {
+        Path spoolPath;
+        try {
+            Files.createDirectories(Paths.get(spoolDir));
+            spoolPath = Files.createTempFile(Paths.get(spoolDir), "game-sales-import-", ".csv");
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+            throw new ValidationException("error creating spool file.");
+        }
+        ProgressTrackingView progressTrackingView = new ProgressTrackingView();
+        progressTrackingView.setImportMode(GameSalesConstants.IMPORT_MODE_STREAMING);
+        progressTrackingView.setImportEngine(importEngine);
+        progressTrackingView.setPublishMode(publishMode);
+        progressTrackingView.setWriteMode(writeMode);
+        progressTrackingView.setBulkLoad(false);
+        progressTrackingView.setSourceFilePath(spoolPath.toAbsolutePath().toString());
+        progressTrackingView.setCompression(compression);
+        progressTrackingView.setFileFormat(GameSalesConstants.FILE_FORMAT_CSV);
+        progressTrackingView.setStreamedUpload(true);
+        if (contentLength >= 0 && GameSalesConstants.COMPRESSION_NONE.equals(compression)) {
+            // offsets are offsets into the inflated csv, the length of a compressed body cannot be compared with them
+            progressTrackingView.setTotalBytes(contentLength);
+        }
+        progressTrackingService.initialiseProgressView(progressTrackingView, 0, GameSalesConstants.STATUS_QUEUED);
+        StreamedUpload upload = new StreamedUpload(spoolPath);
+        streamedUploads.put(progressTrackingView.getId(), upload);
+        try {
+            importSchedulerService.submit(progressTrackingView.getId(), () -> runImport(progressTrackingView));
+        } catch (ImportRejectedException e) {
+            streamedUploads.remove(progressTrackingView.getId());
+            deleteQuietly(spoolPath.toFile());
+            progressTrackingService.finishProgress(progressTrackingView, GameSalesConstants.STATUS_REJECTED);
+            throw e;
+        }
+        importEventService.register(progressTrackingView);
+
+        MessageDigest digest = newFingerprintDigest();
+        try {
+            try (InputStream inputStream = new DigestInputStream(body, digest);
+                 FileChannel channel = FileChannel.open(spoolPath, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[1 << 16];
+                int read;
+                while ((read = inputStream.read(buffer)) >= 0) {
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                    upload.append(read);
+                }
+            }
+            // the fingerprint marks the upload as received completely, an import without one is not resumed
+            progressTrackingService.updateFileFingerprint(progressTrackingView, GameSalesUtil.toHex(digest.digest()));
+        } catch (IOException e) {
+            // the job fails reading the upload, the partial file cannot be resumed
+            log.error("upload of import {} failed", progressTrackingView.getId(), e);
+            upload.fail(e);
+            deleteQuietly(spoolPath.toFile());
+            throw new ValidationException(MessageFormat.format("upload of import {0} failed: {1}", progressTrackingView.getId(), e.getMessage()));
+        } catch (RuntimeException e) {
+            // the job would otherwise wait for the rest of the upload while holding its scheduler slot
+            log.error("upload of import {} failed", progressTrackingView.getId(), e);
+            upload.fail(new IOException(e.getMessage(), e));
+            deleteQuietly(spoolPath.toFile());
+            throw e;
+        }
+        upload.complete();
+        return progressTrackingView;
+    }
+
+    /**
+     * Queues an import whose file is sent afterwards in chunks through {@link ChunkedUploadService}.
+     * The job is submitted once chunk 0 arrives or the upload is completed and parses the chunks as they arrive, it always runs streaming and is not fingerprinted.
+     */
+    public ProgressTrackingView submitChunkedImport(int totalRecordsCount, String importMode, String importEngine, String publishMode, String writeMode, boolean bulkLoad) {
+        File uploadDirectory;
+        try {
+            uploadDirectory = chunkedUploadService.createUploadDirectory();
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+            throw new ValidationException("error creating upload directory.");
+        }
+        ProgressTrackingView progressTrackingView = new ProgressTrackingView();
+        progressTrackingView.setImportMode(importMode);
+        progressTrackingView.setImportEngine(importEngine);
+        progressTrackingView.setPublishMode(publishMode);
+        progressTrackingView.setWriteMode(writeMode);
+        progressTrackingView.setBulkLoad(bulkLoad && bulkLoadService.isAboveThreshold(totalRecordsCount));
+        progressTrackingView.setSourceFilePath(uploadDirectory.getAbsolutePath());
+        progressTrackingView.setCompression(GameSalesConstants.COMPRESSION_NONE);
+        progressTrackingView.setFileFormat(GameSalesConstants.FILE_FORMAT_CSV);
+        progressTrackingView.setChunkedUpload(true);
+        progressTrackingService.initialiseProgressView(progressTrackingView, totalRecordsCount, GameSalesConstants.STATUS_QUEUED);
+        importEventService.register(progressTrackingView);
+        chunkedUploadService.submitWhenReadable(progressTrackingView, () -> {
+            try {
+                importSchedulerService.submit(progressTrackingView.getId(), () -> runImport(progressTrackingView));
+            } catch (ImportRejectedException e) {
+                deleteQuietly(uploadDirectory);
+                chunkedUploadService.release(progressTrackingView.getId());
+                progressTrackingService.finishProgress(progressTrackingView, GameSalesConstants.STATUS_REJECTED);
+                throw e;
+            }
+        });
+        return progressTrackingView;
+    }
+
+    public ProgressTrackingView getImport(Long id) {
+        return progressTrackingService.getProgressView(id);
+    }
+
+    /**
+     * Current batch size and in-flight limit of a running job.
+     */
+    public AdaptiveBatchSettings getImportSettings(Long id) {
+        ImportPipeline pipeline = runningPipelines.get(id);
+        if (pipeline == null) {
+            String notRunning = MessageFormat.format("import {0} is not inserting records.", id);
+            log.error(notRunning);
+            throw new ValidationException(notRunning);
+        }
+        return pipeline.getBatchSettings();
+    }
+
+    /**
+     * Failures per validation rule of a running job.
+     */
+    public List<ValidationRuleStatsEntity> getValidationRuleStats(Long id) {
+        ImportPipeline pipeline = runningPipelines.get(id);
+        if (pipeline == null) {
+            String notRunning = MessageFormat.format("import {0} is not inserting records.", id);
+            log.error(notRunning);
+            throw new ValidationException(notRunning);
+        }
+        return validatorService.getValidationRuleStats(pipeline.getRuleFailures());
+    }
+
+    /**
+     * Queues an interrupted or failed job again, it continues after its last committed batches.
+     */
+    public ProgressTrackingView resumeImport(Long id) {
+        ProgressTrackingView progressTrackingView = progressTrackingService.getProgressView(id);
+        if (!RESUMABLE_STATUSES.contains(progressTrackingView.getStatus()) || importSchedulerService.isActive(id)) {
+            String notResumable = MessageFormat.format("import {0} with status {1} cannot be resumed.", id, progressTrackingView.getStatus());
+            log.error(notResumable);
+            throw new ValidationException(notResumable);
+        }
+        if (Boolean.TRUE.equals(progressTrackingView.getStreamedUpload()) && progressTrackingView.getFileFingerprint() == null) {
+            String uploadIncomplete = MessageFormat.format("upload of import {0} did not complete, please import the csv again.", id);
+            log.error(uploadIncomplete);
+            throw new ValidationException(uploadIncomplete);
+        }
+        if (progressTrackingView.getSourceFilePath() == null || !Files.exists(Paths.get(progressTrackingView.getSourceFilePath()))) {
+            String sourceFileMissing = MessageFormat.format("source file of import {0} is no longer available, please import the csv again.", id);
+            log.error(sourceFileMissing);
+            throw new ValidationException(sourceFileMissing);
+        }
+        if (!GameSalesConstants.STATUS_REBUILDING_INDEXES.equals(progressTrackingView.getStatus())) {
+            progressTrackingView.setStatus(GameSalesConstants.STATUS_QUEUED);
+            progressTrackingService.updateProgress(progressTrackingView);
+        }
+        importEventService.register(progressTrackingView);
+        if (Boolean.TRUE.equals(progressTrackingView.getChunkedUpload())) {
+            // like a new chunked import, it only takes a job slot once the upload has data to read
+            chunkedUploadService.submitWhenReadable(progressTrackingView, () -> importSchedulerService.submit(id, () -> runImport(progressTrackingView)));
+        } else {
+            importSchedulerService.submit(id, () -> runImport(progressTrackingView));
+        }
+        return progressTrackingView;
+    }
+
+    /**
+     * Jobs still queued or in progress when the application stopped are resumed once it is up again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedImports() {
+        if (!resumeOnStartup) {
+            return;
+        }
+        List<ProgressTrackingView> interrupted = progressTrackingService.getProgressViewsWithStatus(INTERRUPTED_STATUSES);
+        for (ProgressTrackingView progressTrackingView : interrupted) {
+            try {
+                log.info("resuming interrupted import {}", progressTrackingView.getId());
+                resumeImport(progressTrackingView.getId());
+            } catch (ValidationException | ImportRejectedException e) {
+                progressTrackingService.finishProgress(progressTrackingView, GameSalesConstants.STATUS_ERROR);
+            }
+        }
+    }
+
+    private void runImport(ProgressTrackingView progressTrackingView) {
+        File spooledFile = new File(progressTrackingView.getSourceFilePath());
+        boolean staged = GameSalesConstants.PUBLISH_MODE_STAGED.equals(progressTrackingView.getPublishMode());
+        boolean upsert = GameSalesConstants.WRITE_MODE_UPSERT.equals(progressTrackingView.getWriteMode());
+        boolean chunked = Boolean.TRUE.equals(progressTrackingView.getChunkedUpload());
+        boolean bulkLoad = Boolean.TRUE.equals(progressTrackingView.getBulkLoad()) && bulkLoadService.tryAcquire(progressTrackingView.getId());
+        if (Boolean.TRUE.equals(progressTrackingView.getBulkLoad()) && !bulkLoad) {
+            log.warn("another bulk load is running, import {} runs as a normal import", progressTrackingView.getId());
+            progressTrackingView.setBulkLoad(false);
+        }
+        // every batch was committed and published before the job was interrupted, only the indexes are left
+        boolean rebuildOnly = GameSalesConstants.STATUS_REBUILDING_INDEXES.equals(progressTrackingView.getStatus());
+
+        ImportPipeline pipeline = null;
+        ProgressAggregator progressAggregator = null;
+        String targetTable = GameSalesConstants.GAME_SALES_TABLE;
+        try {
+            if (rebuildOnly) {
+                new UpdateProgressStatusTask(Collections.emptyList(), progressTrackingView, progressTrackingService)
+                        .addFinishingStep(GameSalesConstants.STATUS_REBUILDING_INDEXES, bulkLoadService::rebuildSecondaryIndexes)
+                        .call();
+            } else {
+                CommittedRecordRanges committed = CommittedRecordRanges.of(importCheckpointService.getCheckpoints(progressTrackingView.getId()));
+                if (committed.hasCommittedPrefix()) {
+                    log.info("import {} resumes at record {}, byte offset {}", progressTrackingView.getId(), committed.getResumeRecordNumber(), committed.getResumeOffset());
+                }
+                progressTrackingView.setStatus(GameSalesConstants.STATUS_IN_PROGRESS);
+                progressTrackingView.setTotalProcessedRecordsCount(committed.getValidRecordsCount());
+                progressTrackingView.setInvalidRecordsCount(committed.getInvalidRecordsCount());
+                progressTrackingView.setSkippedRecordsCount(committed.getSkippedRecordsCount());
+                if (progressTrackingView.getStartTime() == null) {
+                    progressTrackingView.setStartTime(LocalDateTime.now());
+                }
+                progressTrackingService.updateProgress(progressTrackingView);
+
+                if (staged) {
+                    targetTable = stagingTableService.createStagingTable(progressTrackingView.getId());
+                } else if (bulkLoad) {
+                    bulkLoadService.dropSecondaryIndexes();
+                }
+                GameSalesSink sink = batchInsertService.getSink(upsert ? GameSalesConstants.IMPORT_ENGINE_UPSERT
+                        : StringUtils.defaultIfBlank(progressTrackingView.getImportEngine(), GameSalesConstants.IMPORT_ENGINE_JDBC));
+                if (bulkLoad) {
+                    sink = bulkLoadService.withBulkSession(sink, upsert);
+                }
+                // the scheduler caps concurrent jobs, so this is this job's fair share of the shared insert pool
+                int workers = Math.min(insertWorkers, importSchedulerService.getInsertWorkersPerJob());
+                AdaptiveBatchController batchController = new AdaptiveBatchController(adaptiveBatchingEnabled, batchSize,
+                        adaptiveBatchingEnabled ? minBatchSize : batchSize, adaptiveBatchingEnabled ? maxBatchSize : batchSize, 1, workers, targetBatchLatencyMillis);
+                progressAggregator = progressAggregationService.start(progressTrackingView);
+                pipeline = new ImportPipeline(executorService, batchInsertService, sink, targetTable, progressTrackingService, progressTrackingView, progressAggregator, batchController,
+                        validatorService.newRuleFailureCounters(), queueCapacity, parsePool.getParallelism());
+                runningPipelines.put(progressTrackingView.getId(), pipeline);
+                pipeline.start();
+                String compression = StringUtils.defaultIfBlank(progressTrackingView.getCompression(), GameSalesConstants.COMPRESSION_NONE);
+                boolean compressed = !GameSalesConstants.COMPRESSION_NONE.equals(compression);
+                if (compressed && GameSalesConstants.IMPORT_MODE_PARALLEL.equalsIgnoreCase(progressTrackingView.getImportMode())) {
+                    log.info("import {} is {} compressed and cannot be split into chunks, importing it streaming", progressTrackingView.getId(), compression);
+                }
+                boolean binary = GameSalesConstants.FILE_FORMAT_BINARY.equals(progressTrackingView.getFileFormat());
+                StreamedUpload streamedUpload = streamedUploads.get(progressTrackingView.getId());
+                if (chunked) {
+                    importChunked(progressTrackingView, pipeline, committed, upsert);
+                } else if (streamedUpload != null) {
+                    importStreamedUpload(streamedUpload, compression, pipeline, committed, upsert);
+                } else if (binary) {
+                    importBinary(spooledFile, compression, pipeline, committed, upsert);
+                } else if (!compressed && GameSalesConstants.IMPORT_MODE_PARALLEL.equalsIgnoreCase(progressTrackingView.getImportMode())) {
+                    importParallel(spooledFile, pipeline, committed, upsert);
+                } else {
+                    importStreaming(spooledFile, compression, pipeline, committed, upsert);
+                }
+
+                // runs on the job thread so insert pool threads are only used for inserts
+                UpdateProgressStatusTask updateProgressStatusTask = new UpdateProgressStatusTask(pipeline.finish(), progressTrackingView, progressTrackingService, progressAggregator);
+                if (staged) {
+                    String stagingTable = targetTable;
+                    String publishedStatus = bulkLoad ? GameSalesConstants.STATUS_REBUILDING_INDEXES : GameSalesConstants.STATUS_COMPLETED;
+                    updateProgressStatusTask.addFinishingStep(GameSalesConstants.STATUS_PUBLISHING, () -> {
+                        if (bulkLoad) {
+                            bulkLoadService.dropSecondaryIndexes();
+                        }
+                        stagingTableService.publish(progressTrackingView.getId(), stagingTable, publishedStatus, upsert);
+                    });
+                }
+                if (bulkLoad) {
+                    updateProgressStatusTask.addFinishingStep(GameSalesConstants.STATUS_REBUILDING_INDEXES, bulkLoadService::rebuildSecondaryIndexes);
+                }
+                if (upsert && !staged) {
+                    // the batches only marked their days, the rollup is recounted once for the whole job, with the date index in place
+                    updateProgressStatusTask.addFinishingStep(GameSalesConstants.STATUS_PUBLISHING, gameSalesRollupService::recountPendingDays);
+                }
+                updateProgressStatusTask.call();
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            if (pipeline != null) {
+                pipeline.abort();
+            }
+            if (progressAggregator != null) {
+                progressAggregator.close();
+            }
+            progressTrackingService.finishProgress(progressTrackingView, GameSalesConstants.STATUS_ERROR);
+        } finally {
+            runningPipelines.remove(progressTrackingView.getId());
+            streamedUploads.remove(progressTrackingView.getId());
+            if (bulkLoad) {
+                if (!GameSalesConstants.STATUS_COMPLETED.equals(progressTrackingView.getStatus())) {
+                    // do not leave the live table without indexes, a resumed job drops them again
+                    rebuildIndexesQuietly();
+                }
+                bulkLoadService.release(progressTrackingView.getId());
+            }
+            if (upsert && !staged && !GameSalesConstants.STATUS_COMPLETED.equals(progressTrackingView.getStatus())) {
+                // a failed worker ends the job without the finishing steps, its committed batches still marked their days
+                recountPendingDaysQuietly();
+            }
+            if (upsert && !staged) {
+                // the batches only marked the engine stale, it is reloaded once for the whole job
+                salesAnalyticsService.reloadIfStale();
+            }
+        }
+        // the file, checkpoints and staging table are kept for a resume unless the job completed
+        if (GameSalesConstants.STATUS_COMPLETED.equals(progressTrackingView.getStatus())) {
+            deleteQuietly(spooledFile);
+            if (chunked) {
+                chunkedUploadService.release(progressTrackingView.getId());
+            }
+            importCheckpointService.deleteCheckpoints(progressTrackingView.getId());
+            if (staged) {
+                stagingTableService.dropStagingTable(StagingTableService.getStagingTableName(progressTrackingView.getId()));
+            }
+        }
+    }
+
+    /**
+     * Reads the spooled file sequentially, seeking past the committed prefix of a resumed job.
+     * A compressed file is inflated as it is read, its offsets are offsets into the inflated csv, so resuming inflates and
+     * discards the committed prefix instead of seeking.
+     */
+    private void importStreaming(File spooledFile, String compression, ImportPipeline pipeline, CommittedRecordRanges committed, boolean requireSourceId) throws IOException {
+        if (!GameSalesConstants.COMPRESSION_NONE.equals(compression)) {
+            try (InputStream inputStream = GameSalesUtil.decompress(Files.newInputStream(spooledFile.toPath()), compression)) {
+                IOUtils.skipFully(inputStream, committed.getResumeOffset());
+                parseRecords(newStreamReader(inputStream, committed), pipeline, committed, requireSourceId);
+            }
+            return;
+        }
+        try (SeekableByteChannel channel = Files.newByteChannel(spooledFile.toPath(), StandardOpenOption.READ);
+             InputStream inputStream = Channels.newInputStream(channel.position(committed.getResumeOffset()))) {
+            parseRecords(newStreamReader(inputStream, committed), pipeline, committed, requireSourceId);
+        }
+    }
+
+    /**
+     * Parses the chunks of a chunked upload in order while they are received. Offsets are offsets into the chunks
+     * read back to back, a resumed job seeks past its committed prefix chunk by chunk.
+     */
+    private void importChunked(ProgressTrackingView progressTrackingView, ImportPipeline pipeline, CommittedRecordRanges committed, boolean requireSourceId) throws IOException {
+        try (InputStream inputStream = chunkedUploadService.openStream(progressTrackingView)) {
+            long remaining = committed.getResumeOffset();
+            while (remaining > 0) {
+                long skipped = inputStream.skip(remaining);
+                if (skipped <= 0) {
+                    throw new EOFException(MessageFormat.format("upload of import {0} ends before its committed offset {1}.", progressTrackingView.getId(), committed.getResumeOffset()));
+                }
+                remaining -= skipped;
+            }
+            parseRecords(newStreamReader(inputStream, committed), pipeline, committed, requireSourceId);
+        }
+    }
+
+    /**
+     * Parses the spool file of a raw body upload right behind the request thread writing it.
+     * The job of a streamed upload only runs while the upload is live on its first run, a resumed job reads the complete file.
+     */
+    private void importStreamedUpload(StreamedUpload upload, String compression, ImportPipeline pipeline, CommittedRecordRanges committed, boolean requireSourceId) throws IOException {
+        try (InputStream inputStream = GameSalesUtil.decompress(new StreamedUploadInputStream(upload, streamTimeoutMillis), compression)) {
+            parseRecords(newStreamReader(inputStream, committed), pipeline, committed, requireSourceId);
+        }
+    }
+
+    /**
+     * Decodes a {@link com.example.gamesales.binary.GameSalesBinaryFormat} file block by block, rows are copied from the
+     * column views of each block into the batches and validated like csv records.
+     * Checkpoints number rows like csv records, a resumed job reads the file from the start and skips blocks in the committed prefix.
+     */
+    private void importBinary(File spooledFile, String compression, ImportPipeline pipeline, CommittedRecordRanges committed, boolean requireSourceId) throws IOException {
+        try (InputStream inputStream = GameSalesUtil.decompress(Files.newInputStream(spooledFile.toPath()), compression)) {
+            GameSalesBinaryReader reader = new GameSalesBinaryReader(inputStream);
+            reader.readMagic();
+            LocalDateTime createdOn = LocalDateTime.now();
+            LongAdder[] ruleFailures = pipeline.getRuleFailures();
+            GameSalesBatch batch = pipeline.acquireBatch();
+            batch.startRange(committed.getResumeRecordNumber(), 0);
+            long recordNumber = 0;
+            while (reader.nextBlock()) {
+                if (recordNumber + reader.getRowCount() < committed.getResumeRecordNumber()) {
+                    recordNumber += reader.getRowCount();
+                    continue;
+                }
+                for (int i = 0; i < reader.getRowCount(); i++) {
+                    recordNumber++;
+                    if (committed.contains(recordNumber)) {
+                        continue;
+                    }
+                    int reasons;
+                    int row = reader.decodeRow(i, batch);
+                    if (row < 0) {
+                        reasons = InvalidRecordReason.MALFORMED_RECORD.getBit();
+                    } else {
+                        reasons = validatorService.getInvalidReasons(batch, row, ruleFailures);
+                        if (requireSourceId && !batch.hasSourceId(row)) {
+                            reasons |= InvalidRecordReason.SOURCE_ID.getBit();
+                        }
+                        if (reasons != 0) {
+                            batch.removeLastRow();
+                        }
+                    }
+                    if (reasons != 0) {
+                        batch.addInvalidRecord(mapToInvalidRecordView(reader.toCsvLine(i), reasons, recordNumber, createdOn));
+                    }
+
+                    if (pipeline.isBatchComplete(batch)) {
+                        batch.endRange(recordNumber, reader.getBlockOffset());
+                        pipeline.offerBatch(batch);
+                        batch = pipeline.acquireBatch();
+                        batch.startRange(recordNumber + 1, reader.getBlockOffset());
+                    }
+                }
+            }
+            batch.endRange(recordNumber, reader.getBlockOffset());
+            pipeline.offerBatch(batch);
+        }
+    }
+
+    private CsvRecordReader newStreamReader(InputStream inputStream, CommittedRecordRanges committed) throws IOException {
+        if (committed.hasCommittedPrefix()) {
+            return new CsvRecordReader(inputStream, committed.getResumeOffset(), committed.getResumeRecordNumber());
+        }
+        CsvRecordReader reader = new CsvRecordReader(inputStream);
+        reader.skipHeader();
+        return reader;
+    }
+
+    /**
+     * Memory-maps the spooled file and parses record aligned chunks of it on the parse pool.
+     * Record numbers are offset per chunk so invalid_record_row_id matches the streaming import.
+     */
+    private void importParallel(File spooledFile, ImportPipeline pipeline, CommittedRecordRanges committed, boolean requireSourceId) throws IOException {
+        try (FileChannel channel = FileChannel.open(spooledFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                log.warn("csv file of {} bytes is too large to be mapped, falling back to streaming import.", channel.size());
+                importStreaming(spooledFile, GameSalesConstants.COMPRESSION_NONE, pipeline, committed, requireSourceId);
+                return;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            List<CsvChunk> chunks = committed.hasCommittedPrefix()
+                    ? CsvChunkScanner.split(buffer, (int) committed.getResumeOffset(), committed.getResumeRecordNumber(), parseChunkSize, parsePool)
+                    : CsvChunkScanner.split(buffer, parseChunkSize, parsePool);
+            log.info("parsing {} bytes in {} chunks", channel.size(), chunks.size());
+
+            List<Future<Void>> futures = new ArrayList<>();
+            for (CsvChunk chunk : chunks) {
+                futures.add(parsePool.submit(() -> parseChunk(buffer, chunk, pipeline, committed, requireSourceId)));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValidationException("csv import interrupted.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Void parseChunk(ByteBuffer buffer, CsvChunk chunk, ImportPipeline pipeline, CommittedRecordRanges committed, boolean requireSourceId) throws IOException {
+        parseRecords(new CsvRecordReader(buffer, chunk.getStart(), chunk.getEnd(), chunk.getFirstRecordNumber()), pipeline, committed, requireSourceId);
+        return null;
+    }
+
+    /**
+     * @param requireSourceId upsert imports key rows on the csv id, a row without a numeric id is an invalid record
+     */
+    private void parseRecords(CsvRecordReader reader, ImportPipeline pipeline, CommittedRecordRanges committed, boolean requireSourceId) throws IOException {
+        GameSalesBatch batch = pipeline.acquireBatch();
+        batch.startRange(reader.getRecordNumber() + 1, reader.getNextRecordOffset());
+        LocalDateTime createdOn = LocalDateTime.now();
+        GameSalesRecordDecoder decoder = new GameSalesRecordDecoder();
+        LongAdder[] ruleFailures = pipeline.getRuleFailures();
+
+        // records are pulled one at a time from the reader so only the pooled batches are held in memory
+        while (reader.next()) {
+            if (committed.contains(reader.getRecordNumber())) {
+                // committed out of order by an earlier run of a parallel import
+                continue;
+            }
+            ByteBuffer buffer = reader.getBuffer();
+            // separate valid and invalid records first, records that cannot be parsed are invalid records too
+            int reasons = 0;
+            int row = decoder.decode(buffer, reader.getRecordStart(), reader.getRecordEnd(), batch);
+            if (row < 0) {
+                GameSalesView view = new GameSalesView();
+                reasons = GameSalesRecordDecoder.decodeFallback(GameSalesRecordDecoder.toLine(buffer, reader.getRecordStart(), reader.getRecordEnd()), view);
+                if (reasons == 0) {
+                    row = batch.addRow(view);
+                }
+            }
+            if (row >= 0) {
+                reasons = validatorService.getInvalidReasons(batch, row, ruleFailures);
+                if (requireSourceId && !batch.hasSourceId(row)) {
+                    reasons |= InvalidRecordReason.SOURCE_ID.getBit();
+                }
+                if (reasons != 0) {
+                    batch.removeLastRow();
+                }
+            }
+            if (reasons != 0) {
+                batch.addInvalidRecord(mapToInvalidRecordView(GameSalesRecordDecoder.toBytes(buffer, reader.getRecordStart(), reader.getRecordEnd()), reasons, reader.getRecordNumber(), createdOn));
+            }
+
+            if (pipeline.isBatchComplete(batch)) {
+                batch.endRange(reader.getRecordNumber(), reader.getNextRecordOffset());
+                pipeline.offerBatch(batch);
+                batch = pipeline.acquireBatch();
+                batch.startRange(reader.getRecordNumber() + 1, reader.getNextRecordOffset());
+            }
+        }
+        batch.endRange(reader.getRecordNumber(), reader.getNextRecordOffset());
+        pipeline.offerBatch(batch);
+    }
+
+    private static MessageDigest newFingerprintDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every jre ships sha-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private InvalidRecordView mapToInvalidRecordView(byte[] rawLine, int reasonMask, long recordNumber, LocalDateTime createdOn) {
+        InvalidRecordView view = new InvalidRecordView();
+        view.setInvalidRecordRowId(recordNumber);
+        view.setRawLine(rawLine);
+        view.setReasonMask(reasonMask);
+        view.setCreatedOn(createdOn);
+        return view;
+    }
+
+    private void rebuildIndexesQuietly() {
+        try {
+            bulkLoadService.rebuildSecondaryIndexes();
+        } catch (Exception e) {
+            log.error("unable to rebuild game_sales indexes after a failed bulk load", e);
+        }
+    }
+
+    private void recountPendingDaysQuietly() {
+        try {
+            gameSalesRollupService.recountPendingDays();
+        } catch (Exception e) {
+            log.error("unable to recount the pending days of the daily rollup after a failed upsert import", e);
+        }
+    }
+
+    private void deleteQuietly(File file) {
+        try {
+            if (file.isDirectory()) {
+                // upload directory of a chunked upload
+                FileUtils.deleteDirectory(file);
+            }
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            log.warn("unable to delete spooled file {}", file, e);
+        }
+    }
+}
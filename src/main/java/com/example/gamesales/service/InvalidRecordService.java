@@ -0,0 +1,54 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.constants.InvalidRecordReason;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the invalid records of import jobs.
+ */
+@Service
+@Slf4j
+public class InvalidRecordService {
+    private final JdbcTemplate jdbcTemplate;
+    private final ProgressTrackingService progressTrackingService;
+
+    @Autowired
+    public InvalidRecordService(JdbcTemplate jdbcTemplate, ProgressTrackingService progressTrackingService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.progressTrackingService = progressTrackingService;
+    }
+
+    /**
+     * Number of invalid records of the job per {@link InvalidRecordReason}, a record with several reasons counts for each of them.
+     * Grouped on reason_mask through the (progress_track_view_id, reason_mask) index, the raw lines are not read.
+     */
+    public HashMap<String, Object> getReasonBreakdown(Long progressTrackViewId) {
+        progressTrackingService.getProgressView(progressTrackViewId);
+        Map<String, Long> reasons = new LinkedHashMap<>();
+        for (InvalidRecordReason reason : InvalidRecordReason.values()) {
+            reasons.put(reason.name(), 0L);
+        }
+        long[] invalidRecordsCount = new long[1];
+        jdbcTemplate.query("SELECT reason_mask, COUNT(*) FROM invalid_record WHERE progress_track_view_id = ? GROUP BY reason_mask", rs -> {
+            int reasonMask = rs.getInt(1);
+            long count = rs.getLong(2);
+            invalidRecordsCount[0] += count;
+            for (InvalidRecordReason reason : InvalidRecordReason.fromMask(reasonMask)) {
+                reasons.merge(reason.name(), count, Long::sum);
+            }
+        }, progressTrackViewId);
+
+        HashMap<String, Object> response = new LinkedHashMap<>();
+        response.put("id", progressTrackViewId);
+        response.put("invalidRecordsCount", invalidRecordsCount[0]);
+        response.put("reasons", reasons);
+        return response;
+    }
+}
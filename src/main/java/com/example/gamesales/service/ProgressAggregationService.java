@@ -0,0 +1,87 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.repository.ProgressTrackingRepository;
+import com.example.gamesales.task.ProgressAggregator;
+import com.example.gamesales.view.ProgressTrackingView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link ProgressAggregator} of every running import job and flushes the dirty ones to progress_tracking
+ * every {@code flushintervalms}, one UPDATE per job.
+ */
+@Service
+@Slf4j
+public class ProgressAggregationService {
+    private final ScheduledExecutorService progressScheduler;
+    private final ProgressTrackingRepository progressTrackingRepository;
+    private final Map<Long, ProgressAggregator> aggregators = new ConcurrentHashMap<>();
+
+    @Value("${com.example.gamesales.import.progress.flushintervalms:1000}")
+    private long flushIntervalMillis;
+
+    @Autowired
+    public ProgressAggregationService(ScheduledExecutorService progressScheduler, ProgressTrackingRepository progressTrackingRepository) {
+        this.progressScheduler = progressScheduler;
+        this.progressTrackingRepository = progressTrackingRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        progressScheduler.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the aggregator of a job that starts inserting, the job closes it once its inserts are done.
+     */
+    public ProgressAggregator start(ProgressTrackingView progressTrackingView) {
+        ProgressAggregator aggregator = new ProgressAggregator(progressTrackingView, this::closeAggregator);
+        aggregators.put(progressTrackingView.getId(), aggregator);
+        return aggregator;
+    }
+
+    public Optional<ProgressAggregator> getAggregator(Long progressTrackViewId) {
+        return Optional.ofNullable(aggregators.get(progressTrackViewId));
+    }
+
+    private void flushAll() {
+        for (ProgressAggregator aggregator : aggregators.values()) {
+            try {
+                if (aggregator.takeDirty()) {
+                    flush(aggregator, false);
+                }
+            } catch (Exception e) {
+                // keep the scheduled task alive, the next flush or the final one writes the counts
+                log.error("unable to flush progress of import {}", aggregator.getProgressTrackViewId(), e);
+            }
+        }
+    }
+
+    private void closeAggregator(ProgressAggregator aggregator) {
+        aggregators.remove(aggregator.getProgressTrackViewId(), aggregator);
+        flush(aggregator, true);
+    }
+
+    /**
+     * Serialised per aggregator, and periodic flushes of a closed aggregator are dropped,
+     * so a periodic flush that read older counts cannot land after the final one.
+     */
+    private void flush(ProgressAggregator aggregator, boolean last) {
+        synchronized (aggregator) {
+            if (!last && aggregator.isClosed()) {
+                return;
+            }
+            progressTrackingRepository.updateRecordCounts(aggregator.getProgressTrackViewId(), aggregator.getValidRecordsCount(),
+                    aggregator.getInvalidRecordsCount(), aggregator.getSkippedRecordsCount(), aggregator.getProcessedBytes());
+        }
+    }
+}
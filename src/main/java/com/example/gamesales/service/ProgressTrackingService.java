@@ -11,6 +11,9 @@ import org.springframework.stereotype.Service;
 import javax.transaction.Transactional;
 import java.text.MessageFormat;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 @Slf4j
@@ -23,17 +26,51 @@ public class ProgressTrackingService {
         this.progressTrackingRepository = progressTrackingRepository;
     }
 
-    public ProgressTrackingView initialiseProgressView(int totalRecordsCount) {
-        ProgressTrackingView progressTrackingView = new ProgressTrackingView();
+    /**
+     * Saves a new job, the caller fills in the import options (mode, engine, source file...) beforehand.
+     */
+    public ProgressTrackingView initialiseProgressView(ProgressTrackingView progressTrackingView, int totalRecordsCount, String status) {
         progressTrackingView.setTotalRecordsCount(totalRecordsCount);
-        progressTrackingView.setStartTime(LocalDateTime.now());
         progressTrackingView.setTotalProcessedRecordsCount(0);
         progressTrackingView.setInvalidRecordsCount(0);
-        progressTrackingView.setStatus("IN_PROGRESS");
+        progressTrackingView.setSkippedRecordsCount(0);
+        progressTrackingView.setStatus(status);
         progressTrackingRepository.save(progressTrackingView);
         return progressTrackingView;
     }
 
+    public ProgressTrackingView getProgressView(Long id) {
+        return progressTrackingRepository.findById(id).orElseThrow(() -> {
+            String unableToFindRecordWithId = MessageFormat.format("Unable to find import with id {0}", id);
+            return new ValidationException(unableToFindRecordWithId);
+        });
+    }
+
+    public List<ProgressTrackingView> getProgressViewsWithStatus(Collection<String> statuses) {
+        return progressTrackingRepository.findByStatusIn(statuses);
+    }
+
+    public Optional<ProgressTrackingView> getLatestProgressViewWithFingerprint(String fileFingerprint, Collection<String> statuses) {
+        return progressTrackingRepository.findFirstByFileFingerprintAndStatusInOrderByIdDesc(fileFingerprint, statuses);
+    }
+
+    /**
+     * Records the fingerprint of an upload that was received after its job was created.
+     */
+    public void updateFileFingerprint(ProgressTrackingView view, String fileFingerprint) {
+        view.setFileFingerprint(fileFingerprint);
+        progressTrackingRepository.updateFileFingerprint(view.getId(), fileFingerprint);
+    }
+
+    /**
+     * Marks the job as finished with the given terminal status.
+     */
+    public void finishProgress(ProgressTrackingView view, String status) {
+        view.setStatus(status);
+        view.setEndTime(LocalDateTime.now());
+        updateProgress(view);
+    }
+
     @Transactional
     public void updateProgress(ProgressTrackingView view) {
         ProgressTrackingView viewToUpdate = progressTrackingRepository.findById(view.getId()).orElseThrow(() -> {
@@ -61,6 +98,10 @@ public class ProgressTrackingService {
             viewToUpdate.setInvalidRecordsCount(view.getInvalidRecordsCount());
         }
 
+        if (view.getSkippedRecordsCount() != null) {
+            viewToUpdate.setSkippedRecordsCount(view.getSkippedRecordsCount());
+        }
+
         if (view.getTotalRecordsCount() != null) {
             viewToUpdate.setTotalRecordsCount(view.getTotalRecordsCount());
         }
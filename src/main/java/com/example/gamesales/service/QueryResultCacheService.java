@@ -0,0 +1,120 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.cache.DateRangeResultCache;
+import com.example.gamesales.entity.QueryCacheStatsEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Results of /getTotalSales and /getGameSales, cached until an import commits rows into the date range they read.
+ * <p>
+ * Imports register the date_of_sale range of what they write in the transaction that writes it: direct batches per batch,
+ * staged jobs when they are published, upserts including the days of the rows they replace. Once that transaction commits,
+ * only the cached results overlapping the range are dropped, so dashboards over other dates keep being served from memory
+ * while an import runs. The ttl is off by default, game_sales is only written by imports.
+ */
+@Service
+@Slf4j
+public class QueryResultCacheService {
+
+    @Value("${com.example.gamesales.query.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${com.example.gamesales.query.cache.maxentries:1000}")
+    private int maxEntries;
+
+    @Value("${com.example.gamesales.query.cache.ttlms:0}")
+    private long ttlMillis;
+
+    private final GameSalesCountService gameSalesCountService;
+    private DateRangeResultCache cache;
+
+    @Autowired
+    public QueryResultCacheService(GameSalesCountService gameSalesCountService) {
+        this.gameSalesCountService = gameSalesCountService;
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = new DateRangeResultCache(maxEntries, TimeUnit.MILLISECONDS.toNanos(ttlMillis), System::nanoTime);
+    }
+
+    /**
+     * Cached result of the query identified by {@code key}, which reads the rows with {@code from <= date_of_sale <= to}.
+     * A null bound means the query is not bounded on that side.
+     */
+    public <T> T get(String key, LocalDateTime from, LocalDateTime to, Supplier<T> loader) {
+        return enabled ? cache.get(key, from, to, loader) : loader.get();
+    }
+
+    /**
+     * Drops the cached results overlapping the days once the current transaction commits.
+     */
+    public void registerImport(Collection<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        registerImport(Collections.min(days).atStartOfDay(), Collections.max(days).plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Drops the cached results and page counts overlapping {@code [from, to]} once the current transaction commits. Must be
+     * registered after the sales analytics engine's synchronization, so a result read right after the invalidation already sees the import.
+     */
+    public void registerImport(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(from, to);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    invalidate(from, to);
+                }
+            }
+        });
+    }
+
+    public QueryCacheStatsEntity getStats() {
+        QueryCacheStatsEntity stats = new QueryCacheStatsEntity();
+        stats.setEnabled(enabled);
+        stats.setEntries(cache.size());
+        stats.setMaxEntries(maxEntries);
+        stats.setTtlMillis(ttlMillis);
+        stats.setHits(cache.getHits());
+        stats.setMisses(cache.getMisses());
+        long lookups = stats.getHits() + stats.getMisses();
+        stats.setHitRatio(lookups == 0 ? 0 : (double) stats.getHits() / lookups);
+        stats.setEvictions(cache.getEvictions());
+        stats.setExpirations(cache.getExpirations());
+        stats.setInvalidations(cache.getInvalidations());
+        return stats;
+    }
+
+    private void invalidate(LocalDateTime from, LocalDateTime to) {
+        gameSalesCountService.invalidate(from, to);
+        if (!enabled) {
+            return;
+        }
+        int dropped = cache.invalidate(from, to);
+        if (dropped > 0) {
+            log.debug("dropped {} cached query results between {} and {}", dropped, from, to);
+        }
+    }
+}
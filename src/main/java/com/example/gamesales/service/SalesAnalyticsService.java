@@ -0,0 +1,384 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.analytics.SalesColumns;
+import com.example.gamesales.analytics.SalesDelta;
+import com.example.gamesales.analytics.SalesTotals;
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.entity.AnalyticsStatusEntity;
+import com.example.gamesales.entity.SalesTotalsEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional in-process engine for total sales queries over {@link SalesColumns}.
+ * <p>
+ * game_sales is loaded once from a consistent snapshot. Batches appended by imports afterwards go to a {@link SalesDelta}
+ * when their transaction commits, and the delta is merged into new columns in the background once it reaches
+ * {@code mergethreshold} rows. Upserts and staged publishes change rows the engine cannot patch. A staged publish triggers a reload,
+ * upsert batches only mark the engine stale and it is reloaded once when the job finishes, see {@link #reloadIfStale}.
+ * Loads and merges run one at a time on the engine's own thread. Until a load completes {@link #getTotals} returns null
+ * and callers fall back to SQL.
+ * <p>
+ * Write transactions hold the read lock of {@code snapshotLock} from their first write until they completed, a load takes the
+ * write lock only to open its snapshot. Every batch therefore either committed before the snapshot and is loaded from it,
+ * or commits after it and is appended to the delta, never both.
+ */
+@Service
+@Slf4j
+public class SalesAnalyticsService {
+    public static final String STATE_DISABLED = "DISABLED";
+    public static final String STATE_WARMING = "WARMING";
+    public static final String STATE_READY = "READY";
+    public static final String STATE_FAILED = "FAILED";
+
+    @Value("${com.example.gamesales.analytics.enabled:false}")
+    private boolean enabled;
+
+    @Value("${com.example.gamesales.analytics.mergethreshold:262144}")
+    private int mergeThreshold;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private ExecutorService engineExecutor;
+
+    // guarded by this
+    private String state = STATE_DISABLED;
+    private SalesColumns columns;
+    private SalesDelta delta;
+    private SalesDelta merging;
+    private boolean acceptingAppends;
+    private boolean loadPending;
+    // an upsert committed after the snapshot of the current columns or of the running load
+    private boolean stale;
+    private boolean mergePending;
+    private LocalDateTime loadedAt;
+    private long loadMillis;
+
+    @Autowired
+    public SalesAnalyticsService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            engineExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sales-analytics");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) {
+            requestReload();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Count and total sale price of the sales with {@code from <= date_of_sale <= to}, optionally of one game_no,
+     * or null while the engine is disabled, warming or failed.
+     */
+    public SalesTotalsEntity getTotals(LocalDateTime from, LocalDateTime to, Integer gameNo) {
+        if (!enabled) {
+            return null;
+        }
+        if (gameNo != null && (gameNo < Short.MIN_VALUE || gameNo > Short.MAX_VALUE)) {
+            // no such game can be loaded, the engine is either failed or the answer is empty
+            return isReady() ? new SalesTotalsEntity() : null;
+        }
+        long fromMicros = toMicros(from);
+        long toMicros = toMicros(to);
+        Short game = gameNo == null ? null : gameNo.shortValue();
+        SalesTotals totals = new SalesTotals();
+        SalesColumns snapshot;
+        SalesDelta mergingSnapshot;
+        synchronized (this) {
+            if (!STATE_READY.equals(state)) {
+                return null;
+            }
+            snapshot = columns;
+            mergingSnapshot = merging;
+            delta.addTotals(fromMicros, toMicros, game, totals);
+        }
+        // both are immutable once published
+        snapshot.addTotals(fromMicros, toMicros, game, totals);
+        if (mergingSnapshot != null) {
+            mergingSnapshot.addTotals(fromMicros, toMicros, game, totals);
+        }
+        SalesTotalsEntity salesTotalsEntity = new SalesTotalsEntity();
+        salesTotalsEntity.setSalesCount(totals.getCount());
+        salesTotalsEntity.setTotalSales(totals.getCount() > 0 ? totals.getSalePrice() : null);
+        return salesTotalsEntity;
+    }
+
+    /**
+     * Registers a batch written to game_sales in the current transaction: appended rows go to the delta once it commits,
+     * upserted rows mark the engine stale until {@link #reloadIfStale}.
+     */
+    public void registerWrite(GameSalesBatch batch, boolean upsert) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            log.warn("batch written outside of a transaction, reloading the sales analytics engine");
+            requestReload();
+            return;
+        }
+        snapshotLock.readLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        if (upsert) {
+                            markStale();
+                        } else {
+                            append(batch);
+                        }
+                    }
+                } finally {
+                    snapshotLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Reloads the engine once the current transaction commits, for writes the delta cannot express.
+     */
+    public void registerReload() {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            requestReload();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    requestReload();
+                }
+            }
+        });
+    }
+
+    /**
+     * Reloads the engine once after upsert batches marked it stale, called when an upsert job finishes, completed or not.
+     */
+    public synchronized void reloadIfStale() {
+        if (enabled && stale) {
+            requestReload();
+        }
+    }
+
+    public synchronized AnalyticsStatusEntity getStatus() {
+        AnalyticsStatusEntity status = new AnalyticsStatusEntity();
+        status.setState(state);
+        status.setLoadedAt(loadedAt);
+        status.setLoadMillis(loadMillis);
+        if (columns != null) {
+            status.setRows(columns.size());
+            status.setMemoryBytes(columns.getMemoryBytes());
+        }
+        if (delta != null) {
+            status.setDeltaRows(delta.size() + (merging == null ? 0 : merging.size()));
+            status.setMemoryBytes(status.getMemoryBytes() + delta.getMemoryBytes() + (merging == null ? 0 : merging.getMemoryBytes()));
+        }
+        return status;
+    }
+
+    private synchronized boolean isReady() {
+        return STATE_READY.equals(state);
+    }
+
+    private synchronized void append(GameSalesBatch batch) {
+        if (!acceptingAppends) {
+            // committed before the snapshot of the running load, or the engine is waiting for a reload anyway
+            return;
+        }
+        if (!delta.append(batch)) {
+            log.warn("game_no of a batch does not fit the sales analytics engine, reloading it");
+            requestReload();
+            return;
+        }
+        if (STATE_READY.equals(state) && delta.size() >= mergeThreshold && !mergePending) {
+            mergePending = true;
+            engineExecutor.execute(this::merge);
+        }
+    }
+
+    private synchronized void markStale() {
+        if (!stale && STATE_READY.equals(state)) {
+            log.info("sales analytics engine is stale until the running upsert import finishes, totals are read from the database meanwhile");
+        }
+        stale = true;
+        if (!STATE_FAILED.equals(state)) {
+            state = STATE_WARMING;
+        }
+        acceptingAppends = false;
+    }
+
+    private synchronized void requestReload() {
+        if (STATE_READY.equals(state)) {
+            log.info("sales analytics engine is reloading, totals are read from the database meanwhile");
+        }
+        state = STATE_WARMING;
+        acceptingAppends = false;
+        if (!loadPending) {
+            loadPending = true;
+            engineExecutor.execute(this::load);
+        }
+    }
+
+    private void load() {
+        synchronized (this) {
+            loadPending = false;
+            state = STATE_WARMING;
+            acceptingAppends = false;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            SalesColumns loaded = jdbcTemplate.execute(this::loadColumns);
+            synchronized (this) {
+                if (loadPending || stale) {
+                    // invalidated while loading, the queued load or the end of the upsert import replaces this one
+                    return;
+                }
+                columns = loaded;
+                merging = null;
+                loadMillis = (System.nanoTime() - startNanos) / 1_000_000;
+                loadedAt = LocalDateTime.now();
+                state = STATE_READY;
+                log.info("sales analytics engine loaded {} rows in {} ms, {} rows appended meanwhile, {} bytes", loaded.size(), loadMillis, delta.size(), loaded.getMemoryBytes());
+            }
+        } catch (Exception e) {
+            log.error("loading the sales analytics engine failed, totals are read from the database", e);
+            synchronized (this) {
+                if (!loadPending) {
+                    state = STATE_FAILED;
+                    acceptingAppends = false;
+                    columns = null;
+                    delta = null;
+                    merging = null;
+                }
+            }
+        }
+    }
+
+    private SalesColumns loadColumns(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        int isolation = connection.getTransactionIsolation();
+        connection.setAutoCommit(false);
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            snapshotLock.writeLock().lock();
+            try {
+                statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+                synchronized (this) {
+                    delta = new SalesDelta();
+                    acceptingAppends = true;
+                    stale = false;
+                }
+            } finally {
+                snapshotLock.writeLock().unlock();
+            }
+            int rows;
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM game_sales")) {
+                resultSet.next();
+                rows = resultSet.getInt(1);
+            }
+            long[] dateOfSaleMicros = new long[rows];
+            double[] salePrice = new double[rows];
+            short[] gameNo = new short[rows];
+            // streamed row by row, idx_date_of_sale_sale_price_game_no covers the query and returns it in date order
+            statement.setFetchSize(Integer.MIN_VALUE);
+            int row = 0;
+            try (ResultSet resultSet = statement.executeQuery("SELECT date_of_sale, sale_price, game_no FROM game_sales ORDER BY date_of_sale")) {
+                while (resultSet.next()) {
+                    int game = resultSet.getInt(3);
+                    if (game < Short.MIN_VALUE || game > Short.MAX_VALUE) {
+                        throw new IllegalStateException("game_no " + game + " does not fit the sales analytics engine");
+                    }
+                    dateOfSaleMicros[row] = toMicros(resultSet.getObject(1, LocalDateTime.class));
+                    salePrice[row] = resultSet.getDouble(2);
+                    gameNo[row] = (short) game;
+                    row++;
+                }
+            }
+            connection.commit();
+            return SalesColumns.build(dateOfSaleMicros, salePrice, gameNo, row);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+            connection.setTransactionIsolation(isolation);
+        }
+    }
+
+    private void merge() {
+        SalesColumns base;
+        SalesDelta frozen;
+        synchronized (this) {
+            mergePending = false;
+            if (!STATE_READY.equals(state) || delta.size() == 0) {
+                return;
+            }
+            base = columns;
+            frozen = delta;
+            merging = frozen;
+            delta = new SalesDelta();
+        }
+        SalesColumns merged;
+        try {
+            merged = base.merge(frozen);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            log.error("merging into the sales analytics engine failed, reloading it", e);
+            requestReload();
+            return;
+        }
+        synchronized (this) {
+            if (columns == base && merging == frozen) {
+                columns = merged;
+                merging = null;
+                log.debug("merged {} appended rows into the sales analytics engine, {} rows", frozen.size(), merged.size());
+            }
+        }
+    }
+
+    private static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1000;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (engineExecutor != null) {
+            engineExecutor.shutdownNow();
+        }
+    }
+}
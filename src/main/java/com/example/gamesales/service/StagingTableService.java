@@ -0,0 +1,107 @@
+package com.example.gamesales.service;
+
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.util.GameSalesUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Per-job staging tables for staged imports.
+ * <p>
+ * A staged job writes its batches into {@code game_sales_stage_<job id>}, created LIKE game_sales but without the secondary
+ * indexes, so batches neither pay for those indexes nor touch the live table. Once every batch is committed the rows are
+ * published with one set based INSERT ... SELECT, readers only ever see the whole import.
+ * <p>
+ * game_sales is not partitioned, so publishing by partition exchange does not apply here.
+ */
+@Service
+@Slf4j
+public class StagingTableService {
+    private static final String STAGING_TABLE_PREFIX = "game_sales_stage_";
+    private static final String COLUMNS = GameSalesConstants.GAME_SALES_COLUMNS;
+    private static final String UPSERT_COLUMNS = GameSalesConstants.GAME_SALES_UPSERT_COLUMNS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GameSalesRollupService gameSalesRollupService;
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final QueryResultCacheService queryResultCacheService;
+
+    @Autowired
+    public StagingTableService(JdbcTemplate jdbcTemplate, GameSalesRollupService gameSalesRollupService, SalesAnalyticsService salesAnalyticsService,
+                               QueryResultCacheService queryResultCacheService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gameSalesRollupService = gameSalesRollupService;
+        this.salesAnalyticsService = salesAnalyticsService;
+        this.queryResultCacheService = queryResultCacheService;
+    }
+
+    public static String getStagingTableName(Long progressTrackViewId) {
+        return STAGING_TABLE_PREFIX + progressTrackViewId;
+    }
+
+    /**
+     * Creates the staging table of the job, or keeps the existing one with its committed batches when the job is resumed.
+     */
+    public String createStagingTable(Long progressTrackViewId) {
+        String stagingTable = getStagingTableName(progressTrackViewId);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + stagingTable + " LIKE " + GameSalesConstants.GAME_SALES_TABLE);
+
+        List<String> secondaryIndexes = jdbcTemplate.queryForList(
+                "SELECT DISTINCT index_name FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name <> 'PRIMARY'",
+                String.class, stagingTable);
+        if (!secondaryIndexes.isEmpty()) {
+            jdbcTemplate.execute("ALTER TABLE " + stagingTable + " " + secondaryIndexes.stream()
+                    .map(index -> "DROP INDEX " + index)
+                    .collect(Collectors.joining(", ")));
+        }
+        return stagingTable;
+    }
+
+    /**
+     * Moves every staged row into game_sales and moves the job to {@code publishedStatus} in the same transaction,
+     * so a job can never be published twice. Rows of upsert jobs replace the stored rows with the same source id,
+     * in staging order so the last occurrence of a source id in the csv wins. The daily rollup is updated in the same transaction,
+     * cached query results of the published date range are dropped once it commits.
+     */
+    @Transactional
+    public int publish(Long progressTrackViewId, String stagingTable, String publishedStatus, boolean upsert) {
+        String sql = upsert
+                ? "INSERT INTO " + GameSalesConstants.GAME_SALES_TABLE + " (" + UPSERT_COLUMNS + ") SELECT " + UPSERT_COLUMNS + " FROM " + stagingTable + " ORDER BY id" + GameSalesConstants.GAME_SALES_ON_DUPLICATE_KEY_UPDATE
+                : "INSERT INTO " + GameSalesConstants.GAME_SALES_TABLE + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM " + stagingTable + " ORDER BY id";
+        Collection<LocalDate> upsertDays = upsert ? gameSalesRollupService.getStagedDays(stagingTable, true) : null;
+        int rows = jdbcTemplate.update(sql);
+        if (upsert) {
+            gameSalesRollupService.recountDays(upsertDays);
+        } else {
+            gameSalesRollupService.addStagingTable(stagingTable);
+        }
+        salesAnalyticsService.registerReload();
+        if (upsert) {
+            queryResultCacheService.registerImport(upsertDays);
+        } else {
+            jdbcTemplate.query("SELECT MIN(date_of_sale), MAX(date_of_sale) FROM " + stagingTable, rs -> {
+                if (rs.getTimestamp(1) != null) {
+                    queryResultCacheService.registerImport(GameSalesUtil.convertTimestampToLocalDateTime(rs.getTimestamp(1)),
+                            GameSalesUtil.convertTimestampToLocalDateTime(rs.getTimestamp(2)));
+                }
+            });
+        }
+        jdbcTemplate.update("UPDATE progress_tracking SET status = ?, end_time = ? WHERE id = ?",
+                publishedStatus, LocalDateTime.now(), progressTrackViewId);
+        log.info("published {} rows of import {} from {}", rows, progressTrackViewId, stagingTable);
+        return rows;
+    }
+
+    public void dropStagingTable(String stagingTable) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + stagingTable);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.gamesales.sink;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Runs another sink with bulk load session settings on the transaction's connection and restores them afterwards,
+ * so the connection goes back to the pool unchanged.
+ * <p>
+ * unique_checks is only turned off for rows without a source id. With it off InnoDB does not check uk_game_sales_source_id,
+ * so upserts would let duplicate source ids into the index.
+ */
+public class BulkSessionGameSalesSink implements GameSalesSink {
+    private static final String RESET_SESSION_SQL = "SET SESSION unique_checks = 1, foreign_key_checks = 1, bulk_insert_buffer_size = DEFAULT";
+
+    private final GameSalesSink delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final String bulkSessionSql;
+
+    public BulkSessionGameSalesSink(GameSalesSink delegate, JdbcTemplate jdbcTemplate, long bulkInsertBufferSize, boolean uniqueChecks) {
+        this.delegate = delegate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.bulkSessionSql = "SET SESSION unique_checks = " + (uniqueChecks ? 1 : 0) + ", foreign_key_checks = 0, bulk_insert_buffer_size = " + bulkInsertBufferSize;
+    }
+
+    @Override
+    public String getEngine() {
+        return delegate.getEngine();
+    }
+
+    @Override
+    public void write(GameSalesBatch batch, String tableName) {
+        jdbcTemplate.execute(bulkSessionSql);
+        try {
+            delegate.write(batch, tableName);
+        } finally {
+            jdbcTemplate.execute(RESET_SESSION_SQL);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.gamesales.sink;
+
+import com.example.gamesales.batch.GameSalesBatch;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Binds one batch row to the game_sales insert parameters starting at {@code firstIndex}: the 8 data columns,
+ * or {@code source_id, row_hash} followed by them.
+ */
+final class GameSalesRowBinder {
+    static final int COLUMN_COUNT = 8;
+    static final int SOURCE_COLUMN_COUNT = COLUMN_COUNT + 2;
+
+    private GameSalesRowBinder() {
+    }
+
+    static void bind(PreparedStatement ps, int firstIndex, GameSalesBatch batch, int row) throws SQLException {
+        ps.setInt(firstIndex, batch.getGameNo(row));
+        ps.setString(firstIndex + 1, batch.getGameName(row));
+        ps.setString(firstIndex + 2, batch.getGameCode(row));
+        ps.setInt(firstIndex + 3, batch.getType(row));
+        ps.setDouble(firstIndex + 4, batch.getCostPrice(row));
+        ps.setDouble(firstIndex + 5, batch.getTax(row));
+        ps.setDouble(firstIndex + 6, batch.getSalePrice(row));
+        ps.setObject(firstIndex + 7, batch.getDateOfSale(row));
+    }
+
+    /**
+     * Binds {@link #SOURCE_COLUMN_COUNT} parameters of an upsert row, source_id and row_hash are null for rows without a numeric csv id.
+     * Appends bind only the data columns, their source_id stays NULL so csv ids are never checked against the unique key.
+     */
+    static void bindWithSource(PreparedStatement ps, int firstIndex, GameSalesBatch batch, int row) throws SQLException {
+        if (batch.hasSourceId(row)) {
+            ps.setLong(firstIndex, batch.getSourceId(row));
+            ps.setLong(firstIndex + 1, batch.getRowHash(row));
+        } else {
+            ps.setNull(firstIndex, Types.BIGINT);
+            ps.setNull(firstIndex + 1, Types.BIGINT);
+        }
+        bind(ps, firstIndex + 2, batch, row);
+    }
+}
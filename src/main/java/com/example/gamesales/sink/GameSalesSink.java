@@ -0,0 +1,23 @@
+package com.example.gamesales.sink;
+
+import com.example.gamesales.batch.GameSalesBatch;
+
+/**
+ * Writes the valid rows of an import batch into game_sales, or into a staging table with the same columns.
+ * <p>
+ * Implementations are stateless Spring beans shared by all insert workers. {@link #write(GameSalesBatch, String)} is called inside the
+ * transaction of {@link com.example.gamesales.service.BatchInsertService#commitBatch}, so it must go through the
+ * transaction bound connection (i.e. the {@code JdbcTemplate}) for the rows to commit together with the checkpoint.
+ */
+public interface GameSalesSink {
+
+    /**
+     * Name of the engine as selected by the importEngine request parameter.
+     */
+    String getEngine();
+
+    /**
+     * @param tableName game_sales or the job's staging table, always generated by the application and never user input
+     */
+    void write(GameSalesBatch batch, String tableName);
+}
@@ -0,0 +1,184 @@
+package com.example.gamesales.sink;
+
+import com.example.gamesales.batch.GameSalesBatch;
+
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Renders the rows of a batch as tab separated lines in the default LOAD DATA format, one row at a time and only as far as
+ * the driver reads, so the data never exists as a whole file or string.
+ * <p>
+ * game_name and game_code are copied as raw utf-8 bytes with {@code \ TAB LF CR NUL} escaped, date_of_sale is formatted straight
+ * from its epoch micros.
+ */
+class GameSalesTsvInputStream extends InputStream {
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private final GameSalesBatch batch;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private int linePosition;
+    private int row;
+
+    GameSalesTsvInputStream(GameSalesBatch batch) {
+        this.batch = batch;
+    }
+
+    @Override
+    public int read() {
+        if (linePosition == lineLength && !nextLine()) {
+            return -1;
+        }
+        return line[linePosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int copied = 0;
+        while (copied < length) {
+            if (linePosition == lineLength && !nextLine()) {
+                break;
+            }
+            int count = Math.min(length - copied, lineLength - linePosition);
+            System.arraycopy(line, linePosition, target, offset + copied, count);
+            linePosition += count;
+            copied += count;
+        }
+        return copied == 0 ? -1 : copied;
+    }
+
+    private boolean nextLine() {
+        if (row == batch.size()) {
+            return false;
+        }
+        lineLength = 0;
+        linePosition = 0;
+        appendLong(batch.getGameNo(row));
+        append('\t');
+        appendEscaped(batch.getStringArea(), batch.getGameNameOffset(row), batch.getGameNameLength(row));
+        append('\t');
+        appendEscaped(batch.getStringArea(), batch.getGameCodeOffset(row), batch.getGameCodeLength(row));
+        append('\t');
+        appendLong(batch.getType(row));
+        append('\t');
+        appendDouble(batch.getCostPrice(row));
+        append('\t');
+        appendDouble(batch.getTax(row));
+        append('\t');
+        appendDouble(batch.getSalePrice(row));
+        append('\t');
+        appendDateTime(batch.getDateOfSaleMicros(row));
+        append('\n');
+        row++;
+        return true;
+    }
+
+    private void appendEscaped(byte[] source, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = source[i];
+            switch (b) {
+                case '\\':
+                    append('\\');
+                    append('\\');
+                    break;
+                case '\t':
+                    append('\\');
+                    append('t');
+                    break;
+                case '\n':
+                    append('\\');
+                    append('n');
+                    break;
+                case '\r':
+                    append('\\');
+                    append('r');
+                    break;
+                case 0:
+                    append('\\');
+                    append('0');
+                    break;
+                default:
+                    append(b);
+            }
+        }
+    }
+
+    private void appendDouble(double value) {
+        // shortest representation that reads back to the same double, like the jdbc path
+        String text = Double.toString(value);
+        for (int i = 0; i < text.length(); i++) {
+            append(text.charAt(i));
+        }
+    }
+
+    private void appendLong(long value) {
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            append('0' + (int) (value / divisor % 10));
+        }
+    }
+
+    /**
+     * {@code yyyy-MM-dd HH:mm:ss.SSSSSS} of epoch micros read as UTC, the inverse of the decoder's days-from-civil.
+     */
+    private void appendDateTime(long epochMicros) {
+        long epochSeconds = Math.floorDiv(epochMicros, MICROS_PER_SECOND);
+        int micros = (int) Math.floorMod(epochMicros, MICROS_PER_SECOND);
+        long days = Math.floorDiv(epochSeconds, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(epochSeconds, SECONDS_PER_DAY);
+
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        appendPadded(year, 4);
+        append('-');
+        appendPadded(month, 2);
+        append('-');
+        appendPadded(day, 2);
+        append(' ');
+        appendPadded(secondOfDay / 3600, 2);
+        append(':');
+        appendPadded(secondOfDay / 60 % 60, 2);
+        append(':');
+        appendPadded(secondOfDay % 60, 2);
+        append('.');
+        appendPadded(micros, 6);
+    }
+
+    private void appendPadded(long value, int width) {
+        long limit = 1;
+        for (int i = 1; i < width; i++) {
+            limit *= 10;
+        }
+        for (; limit > 1 && value < limit; limit /= 10) {
+            append('0');
+        }
+        appendLong(value);
+    }
+
+    private void append(int b) {
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, line.length * 2);
+        }
+        line[lineLength++] = (byte) b;
+    }
+}
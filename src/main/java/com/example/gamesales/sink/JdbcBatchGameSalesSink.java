@@ -0,0 +1,54 @@
+package com.example.gamesales.sink;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.exception.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Single-row INSERTs sent as one JDBC batch, the driver rewrites them into multi-row statements with rewriteBatchedStatements.
+ */
+@Component
+@Slf4j
+public class JdbcBatchGameSalesSink implements GameSalesSink {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcBatchGameSalesSink(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public String getEngine() {
+        return GameSalesConstants.IMPORT_ENGINE_JDBC;
+    }
+
+    @Override
+    public void write(GameSalesBatch batch, String tableName) {
+        String sql = "INSERT INTO " + tableName + " (" + GameSalesConstants.GAME_SALES_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try {
+            // columns are bound straight from the batch arrays, no intermediate Object[] per row
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int row) throws SQLException {
+                    GameSalesRowBinder.bind(ps, 1, batch, row);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new ValidationException("An error occurred when inserting Game Sales Records into table. Please contact admin.");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.gamesales.sink;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.exception.ValidationException;
+import com.mysql.cj.jdbc.JdbcStatement;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+
+/**
+ * MySQL {@code LOAD DATA LOCAL INFILE} fed from a {@link GameSalesTsvInputStream} through the driver's
+ * {@link JdbcStatement#setLocalInfileInputStream} hook, no temp file is written.
+ * Needs {@code allowLoadLocalInfile=true} on the jdbc url and {@code local_infile=ON} on the server.
+ * <p>
+ * With LOCAL the server turns data errors into warnings instead of failing the statement, rows are validated before they
+ * reach the sink so this does not hide bad csv data.
+ */
+@Component
+@Slf4j
+public class LoadDataGameSalesSink implements GameSalesSink {
+    // the file name is ignored by the driver once an input stream is set
+    private static final String LOAD_DATA_PREFIX = "LOAD DATA LOCAL INFILE 'game_sales.tsv' INTO TABLE ";
+    private static final String LOAD_DATA_FORMAT = " CHARACTER SET utf8mb4"
+            + " FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n'"
+            + " (" + GameSalesConstants.GAME_SALES_COLUMNS + ")";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public LoadDataGameSalesSink(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public String getEngine() {
+        return GameSalesConstants.IMPORT_ENGINE_LOAD_DATA;
+    }
+
+    @Override
+    public void write(GameSalesBatch batch, String tableName) {
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.unwrap(JdbcStatement.class).setLocalInfileInputStream(new GameSalesTsvInputStream(batch));
+                    return statement.executeUpdate(LOAD_DATA_PREFIX + tableName + LOAD_DATA_FORMAT);
+                }
+            });
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new ValidationException("An error occurred when loading Game Sales Records into table. Please contact admin.");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.gamesales.sink;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.exception.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
+
+/**
+ * Explicit multi-row {@code INSERT ... VALUES (...), (...)} statements of up to {@code rowsPerStatement} rows,
+ * independent of the driver's rewriteBatchedStatements setting.
+ */
+@Component
+@Slf4j
+public class MultiRowInsertGameSalesSink implements GameSalesSink {
+    private static final String INSERT_COLUMNS = " (" + GameSalesConstants.GAME_SALES_COLUMNS + ") VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // mysql allows 65535 placeholders per statement
+    @Value("${com.example.gamesales.import.multirow.rowsperstatement:1000}")
+    private int rowsPerStatement;
+
+    private String fullStatementSql;
+
+    @Autowired
+    public MultiRowInsertGameSalesSink(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        rowsPerStatement = Math.max(1, Math.min(rowsPerStatement, 65535 / GameSalesRowBinder.COLUMN_COUNT));
+        fullStatementSql = buildSql(GameSalesConstants.GAME_SALES_TABLE, rowsPerStatement);
+    }
+
+    @Override
+    public String getEngine() {
+        return GameSalesConstants.IMPORT_ENGINE_MULTIROW;
+    }
+
+    @Override
+    public void write(GameSalesBatch batch, String tableName) {
+        try {
+            for (int first = 0; first < batch.size(); first += rowsPerStatement) {
+                int rows = Math.min(rowsPerStatement, batch.size() - first);
+                // only full size statements into game_sales are cached, the last statement of a batch and staging tables are built on the fly
+                String sql = rows == rowsPerStatement && GameSalesConstants.GAME_SALES_TABLE.equals(tableName)
+                        ? fullStatementSql
+                        : buildSql(tableName, rows);
+                int firstRow = first;
+                jdbcTemplate.execute(sql, (PreparedStatement ps) -> {
+                    for (int i = 0; i < rows; i++) {
+                        GameSalesRowBinder.bind(ps, i * GameSalesRowBinder.COLUMN_COUNT + 1, batch, firstRow + i);
+                    }
+                    return ps.executeUpdate();
+                });
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new ValidationException("An error occurred when inserting Game Sales Records into table. Please contact admin.");
+        }
+    }
+
+    private static String buildSql(String tableName, int rows) {
+        StringBuilder sql = new StringBuilder(32 + INSERT_COLUMNS.length() + rows * (ROW_PLACEHOLDERS.length() + 2));
+        sql.append("INSERT INTO ").append(tableName).append(INSERT_COLUMNS);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.toString();
+    }
+}
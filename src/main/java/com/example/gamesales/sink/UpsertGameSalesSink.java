@@ -0,0 +1,118 @@
+package com.example.gamesales.sink;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.exception.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writer of upsert imports, keyed on the csv id stored in {@code game_sales.source_id}.
+ * <p>
+ * The stored row hashes of the batch's source ids are read first and rows whose hash did not change are dropped from the batch
+ * and counted as skipped, the remaining new or changed rows are written with multi-row
+ * {@code INSERT ... ON DUPLICATE KEY UPDATE} statements. Hashes are always read from game_sales, also when a staged job writes
+ * into its staging table.
+ * <p>
+ * Not selectable through importEngine, upsert imports use it instead of the requested jdbc or multirow engine.
+ */
+@Component
+@Slf4j
+public class UpsertGameSalesSink implements GameSalesSink {
+    private static final int COLUMN_COUNT = GameSalesRowBinder.SOURCE_COLUMN_COUNT;
+    private static final String INSERT_COLUMNS = " (" + GameSalesConstants.GAME_SALES_UPSERT_COLUMNS + ") VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String ON_DUPLICATE_KEY_UPDATE = GameSalesConstants.GAME_SALES_ON_DUPLICATE_KEY_UPDATE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${com.example.gamesales.import.multirow.rowsperstatement:1000}")
+    private int rowsPerStatement;
+
+    private String fullStatementSql;
+
+    @Autowired
+    public UpsertGameSalesSink(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        rowsPerStatement = Math.max(1, Math.min(rowsPerStatement, 65535 / COLUMN_COUNT));
+        fullStatementSql = buildSql(GameSalesConstants.GAME_SALES_TABLE, rowsPerStatement);
+    }
+
+    @Override
+    public String getEngine() {
+        return GameSalesConstants.IMPORT_ENGINE_UPSERT;
+    }
+
+    /**
+     * Drops the unchanged rows from {@code batch}, so after this call {@code batch.size()} is the number of rows written.
+     */
+    @Override
+    public void write(GameSalesBatch batch, String tableName) {
+        try {
+            retainChangedRows(batch);
+            for (int first = 0; first < batch.size(); first += rowsPerStatement) {
+                int rows = Math.min(rowsPerStatement, batch.size() - first);
+                String sql = rows == rowsPerStatement && GameSalesConstants.GAME_SALES_TABLE.equals(tableName)
+                        ? fullStatementSql
+                        : buildSql(tableName, rows);
+                int firstRow = first;
+                jdbcTemplate.execute(sql, (PreparedStatement ps) -> {
+                    for (int i = 0; i < rows; i++) {
+                        GameSalesRowBinder.bindWithSource(ps, i * COLUMN_COUNT + 1, batch, firstRow + i);
+                    }
+                    return ps.executeUpdate();
+                });
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new ValidationException("An error occurred when upserting Game Sales Records into table. Please contact admin.");
+        }
+    }
+
+    private void retainChangedRows(GameSalesBatch batch) {
+        Map<Long, Long> storedHashes = new HashMap<>(batch.size() * 2);
+        for (int first = 0; first < batch.size(); first += rowsPerStatement) {
+            int rows = Math.min(rowsPerStatement, batch.size() - first);
+            StringBuilder sql = new StringBuilder("SELECT source_id, row_hash FROM ").append(GameSalesConstants.GAME_SALES_TABLE).append(" WHERE source_id IN (");
+            Object[] sourceIds = new Object[rows];
+            for (int i = 0; i < rows; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+                sourceIds[i] = batch.getSourceId(first + i);
+            }
+            sql.append(')');
+            jdbcTemplate.query(sql.toString(), rs -> {
+                storedHashes.put(rs.getLong(1), rs.getLong(2));
+            }, sourceIds);
+        }
+        boolean[] keep = new boolean[batch.size()];
+        for (int row = 0; row < batch.size(); row++) {
+            Long storedHash = storedHashes.get(batch.getSourceId(row));
+            keep[row] = storedHash == null || storedHash != batch.getRowHash(row);
+        }
+        batch.retainRows(keep);
+    }
+
+    private static String buildSql(String tableName, int rows) {
+        StringBuilder sql = new StringBuilder(32 + INSERT_COLUMNS.length() + rows * (ROW_PLACEHOLDERS.length() + 2) + ON_DUPLICATE_KEY_UPDATE.length());
+        sql.append("INSERT INTO ").append(tableName).append(INSERT_COLUMNS);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.append(ON_DUPLICATE_KEY_UPDATE).toString();
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.gamesales.task;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.LongSupplier;
+
+/**
+ * AIMD feedback controller for the insert stage of one import job.
+ * <p>
+ * Insert workers take a slot before committing a batch and report its row count and latency when done. After every window of
+ * {@code inFlightLimit} batches the controller compares the average batch latency with the target latency and the window's
+ * rows per second with the previous window:
+ * <ul>
+ *     <li>latency above target, or throughput down after an increase: multiplicative decrease, the in-flight limit is halved,
+ *     or the batch size once the in-flight limit is at its minimum</li>
+ *     <li>otherwise additive increase, the batch size grows by {@code batchSizeStep} and, once it is at its maximum,
+ *     the in-flight limit grows by one</li>
+ * </ul>
+ * Both settings always stay within the configured bounds. When disabled the settings stay at their initial values.
+ */
+@Slf4j
+public class AdaptiveBatchController {
+    private static final double EWMA_WEIGHT = 0.2;
+    /** a throughput drop below this ratio of the previous window after an increase counts as congestion */
+    private static final double THROUGHPUT_DROP_RATIO = 0.9;
+
+    private final boolean enabled;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int batchSizeStep;
+    private final int minInFlight;
+    private final int maxInFlight;
+    private final long targetLatencyNanos;
+    private final LongSupplier nanoClock;
+
+    private volatile int batchSize;
+    private int inFlightLimit;
+    private int inFlight;
+
+    private long windowStartNanos;
+    private int windowBatches;
+    private long windowRows;
+    private long windowLatencyNanos;
+    private double previousWindowRowsPerSecond;
+    private boolean increasedLastWindow;
+
+    private double ewmaLatencyMillis;
+    private double ewmaRowsPerSecond;
+    private long adjustments;
+
+    public AdaptiveBatchController(boolean enabled, int initialBatchSize, int minBatchSize, int maxBatchSize, int minInFlight, int maxInFlight, long targetLatencyMillis) {
+        this(enabled, initialBatchSize, minBatchSize, maxBatchSize, minInFlight, maxInFlight, targetLatencyMillis, System::nanoTime);
+    }
+
+    AdaptiveBatchController(boolean enabled, int initialBatchSize, int minBatchSize, int maxBatchSize, int minInFlight, int maxInFlight, long targetLatencyMillis, LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.minBatchSize = Math.max(1, Math.min(minBatchSize, maxBatchSize));
+        this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+        this.batchSizeStep = this.minBatchSize;
+        this.minInFlight = Math.max(1, Math.min(minInFlight, maxInFlight));
+        this.maxInFlight = Math.max(this.minInFlight, maxInFlight);
+        this.targetLatencyNanos = targetLatencyMillis * 1_000_000L;
+        this.nanoClock = nanoClock;
+        this.windowStartNanos = nanoClock.getAsLong();
+        this.batchSize = clamp(initialBatchSize, this.minBatchSize, this.maxBatchSize);
+        // start at half the workers and let the controller find the rest
+        this.inFlightLimit = enabled ? Math.max(this.minInFlight, this.maxInFlight / 2) : this.maxInFlight;
+    }
+
+    /**
+     * Waits until fewer than the in-flight limit batches are being committed.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= inFlightLimit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Reports a committed batch and frees its slot.
+     */
+    public synchronized void release(int rows, long latencyNanos) {
+        inFlight--;
+        ewmaLatencyMillis = ewma(ewmaLatencyMillis, latencyNanos / 1_000_000d);
+        windowBatches++;
+        windowRows += rows;
+        windowLatencyNanos += latencyNanos;
+        if (windowBatches >= inFlightLimit) {
+            endWindow(nanoClock.getAsLong());
+        }
+        notifyAll();
+    }
+
+    /**
+     * Frees the slot of a batch that failed, without a latency sample.
+     */
+    public synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public synchronized int getInFlightLimit() {
+        return inFlightLimit;
+    }
+
+    public synchronized AdaptiveBatchSettings getSettings() {
+        AdaptiveBatchSettings settings = new AdaptiveBatchSettings();
+        settings.setEnabled(enabled);
+        settings.setBatchSize(batchSize);
+        settings.setMinBatchSize(minBatchSize);
+        settings.setMaxBatchSize(maxBatchSize);
+        settings.setInFlightLimit(inFlightLimit);
+        settings.setMinInFlight(minInFlight);
+        settings.setMaxInFlight(maxInFlight);
+        settings.setTargetLatencyMillis(targetLatencyNanos / 1_000_000L);
+        settings.setAverageLatencyMillis(ewmaLatencyMillis);
+        settings.setRowsPerSecond(ewmaRowsPerSecond);
+        settings.setAdjustments(adjustments);
+        return settings;
+    }
+
+    private void endWindow(long nowNanos) {
+        long elapsedNanos = Math.max(1, nowNanos - windowStartNanos);
+        double rowsPerSecond = windowRows * 1_000_000_000d / elapsedNanos;
+        long averageLatencyNanos = windowLatencyNanos / windowBatches;
+        ewmaRowsPerSecond = ewma(ewmaRowsPerSecond, rowsPerSecond);
+
+        if (enabled) {
+            boolean throughputDropped = increasedLastWindow && rowsPerSecond < previousWindowRowsPerSecond * THROUGHPUT_DROP_RATIO;
+            if (averageLatencyNanos > targetLatencyNanos || throughputDropped) {
+                decrease();
+                increasedLastWindow = false;
+            } else {
+                increasedLastWindow = increase();
+            }
+        }
+        previousWindowRowsPerSecond = rowsPerSecond;
+        windowStartNanos = nowNanos;
+        windowBatches = 0;
+        windowRows = 0;
+        windowLatencyNanos = 0;
+    }
+
+    private void decrease() {
+        int previousBatchSize = batchSize;
+        int previousInFlightLimit = inFlightLimit;
+        if (inFlightLimit > minInFlight) {
+            inFlightLimit = Math.max(minInFlight, inFlightLimit / 2);
+        } else {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+        }
+        logAdjustment(previousBatchSize, previousInFlightLimit);
+    }
+
+    private boolean increase() {
+        int previousBatchSize = batchSize;
+        int previousInFlightLimit = inFlightLimit;
+        if (batchSize < maxBatchSize) {
+            batchSize = Math.min(maxBatchSize, batchSize + batchSizeStep);
+        } else if (inFlightLimit < maxInFlight) {
+            inFlightLimit++;
+        }
+        return logAdjustment(previousBatchSize, previousInFlightLimit);
+    }
+
+    private boolean logAdjustment(int previousBatchSize, int previousInFlightLimit) {
+        if (batchSize == previousBatchSize && inFlightLimit == previousInFlightLimit) {
+            return false;
+        }
+        adjustments++;
+        log.debug("batch size {} -> {}, in-flight limit {} -> {}", previousBatchSize, batchSize, previousInFlightLimit, inFlightLimit);
+        return true;
+    }
+
+    private static double ewma(double current, double sample) {
+        return current == 0 ? sample : current + EWMA_WEIGHT * (sample - current);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
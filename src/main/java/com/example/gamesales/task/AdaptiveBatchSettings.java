@@ -0,0 +1,23 @@
+package com.example.gamesales.task;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Snapshot of an {@link AdaptiveBatchController}, returned by GET /import/{id}/settings.
+ */
+@Getter
+@Setter
+public class AdaptiveBatchSettings {
+    private boolean enabled;
+    private int batchSize;
+    private int minBatchSize;
+    private int maxBatchSize;
+    private int inFlightLimit;
+    private int minInFlight;
+    private int maxInFlight;
+    private long targetLatencyMillis;
+    private double averageLatencyMillis;
+    private double rowsPerSecond;
+    private long adjustments;
+}
@@ -1,28 +1,32 @@
 package com.example.gamesales.task;
 
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.GameSalesConstants;
 import com.example.gamesales.exception.BatchInsertException;
 import com.example.gamesales.service.BatchInsertService;
+import com.example.gamesales.sink.GameSalesSink;
 import com.example.gamesales.service.ProgressTrackingService;
-import com.example.gamesales.view.GameSalesView;
 import com.example.gamesales.view.ProgressTrackingView;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public class BatchInsertGameSalesTask implements Callable<Void> {
     private final BatchInsertService batchInsertService;
-    private final List<GameSalesView> batch;
-    private final AtomicInteger progressTracking;
+    private final GameSalesBatch batch;
+    private final GameSalesSink sink;
+    private final String targetTable;
+    private final ProgressAggregator progressAggregator;
     private final ProgressTrackingService progressTrackingService;
     private final ProgressTrackingView progressTrackingView;
 
-    public BatchInsertGameSalesTask(BatchInsertService batchInsertService, List<GameSalesView> batch, AtomicInteger progressTracking, ProgressTrackingService progressTrackingService, ProgressTrackingView progressTrackingView) {
+    public BatchInsertGameSalesTask(BatchInsertService batchInsertService, GameSalesBatch batch, GameSalesSink sink, String targetTable, ProgressAggregator progressAggregator, ProgressTrackingService progressTrackingService, ProgressTrackingView progressTrackingView) {
         this.batchInsertService = batchInsertService;
         this.batch = batch;
-        this.progressTracking = progressTracking;
+        this.sink = sink;
+        this.targetTable = targetTable;
+        this.progressAggregator = progressAggregator;
         this.progressTrackingService = progressTrackingService;
         this.progressTrackingView = progressTrackingView;
     }
@@ -30,15 +34,14 @@ public class BatchInsertGameSalesTask implements Callable<Void> {
     @Override
     public Void call() {
         try {
-            // batch insert
-            batchInsertService.batchInsertGameSales(batch);
-            // Update the progress tracking count after the batch insert completes
-            int validRecordsBatchSize = progressTracking.addAndGet(batch.size());
-            progressTrackingView.setTotalProcessedRecordsCount(validRecordsBatchSize);
-            progressTrackingService.updateProgress(progressTrackingView);
+            // valid rows, invalid records and the checkpoint of the batch are committed together
+            batchInsertService.commitBatch(batch, sink, targetTable, progressTrackingView.getId());
+            // counted in memory, progress_tracking is updated by the periodic flush
+            progressAggregator.record(batch.size(), batch.getInvalidRecords().size(), batch.getSkippedRecordsCount(), batch.getEndOffset());
         } catch (Exception e) {
             log.error("Batch insert failed", e);
-            progressTrackingView.setStatus("FAILED");
+            progressAggregator.applyTo(progressTrackingView);
+            progressTrackingView.setStatus(GameSalesConstants.STATUS_FAILED);
             progressTrackingService.updateProgress(progressTrackingView);
             throw new BatchInsertException(e.getMessage());
         }
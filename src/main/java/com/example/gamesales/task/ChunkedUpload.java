@@ -0,0 +1,164 @@
+package com.example.gamesales.task;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.BitSet;
+
+/**
+ * Chunks of one chunked upload, each stored as a numbered file of the upload directory.
+ * <p>
+ * A chunk is written to a temporary file and moved into place once complete, so a chunk file is never read half written
+ * and a retried chunk that was already stored is acknowledged without being written again. Completing the upload writes
+ * its chunk count to a marker file, the state of an upload interrupted by a restart is rebuilt from the directory.
+ */
+public class ChunkedUpload {
+    private static final String CHUNK_FILE_PREFIX = "chunk-";
+    private static final String COMPLETE_FILE = "complete";
+
+    private final Path directory;
+    private final BitSet receivedChunks = new BitSet();
+    /** -1 until the client completes the upload */
+    private int totalChunks = -1;
+
+    private ChunkedUpload(Path directory) {
+        this.directory = directory;
+    }
+
+    public static ChunkedUpload open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        ChunkedUpload upload = new ChunkedUpload(directory);
+        try (DirectoryStream<Path> chunkFiles = Files.newDirectoryStream(directory, CHUNK_FILE_PREFIX + "*[0-9]")) {
+            for (Path chunkFile : chunkFiles) {
+                upload.receivedChunks.set(Integer.parseInt(chunkFile.getFileName().toString().substring(CHUNK_FILE_PREFIX.length())));
+            }
+        }
+        Path completeFile = directory.resolve(COMPLETE_FILE);
+        if (Files.exists(completeFile)) {
+            upload.totalChunks = Integer.parseInt(new String(Files.readAllBytes(completeFile), StandardCharsets.US_ASCII).trim());
+        }
+        return upload;
+    }
+
+    /**
+     * Stores the chunk unless it was received before.
+     *
+     * @return false for a chunk that was already received, e.g. the retry of a chunk whose response was lost
+     * @throws IllegalArgumentException if the upload was completed with fewer chunks
+     */
+    public boolean addChunk(int chunkNumber, InputStream content, long maxChunkBytes) throws IOException {
+        synchronized (this) {
+            checkInRange(chunkNumber);
+            if (receivedChunks.get(chunkNumber)) {
+                return false;
+            }
+        }
+        Path tempFile = Files.createTempFile(directory, CHUNK_FILE_PREFIX + chunkNumber + "-", ".part");
+        try {
+            copy(content, tempFile, maxChunkBytes);
+            // checked again with the move under the lock, so complete() either sees the chunk or the chunk sees the chunk count
+            synchronized (this) {
+                checkInRange(chunkNumber);
+                try {
+                    Files.move(tempFile, getChunkFile(chunkNumber), StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // the same chunk was sent twice at the same time, the other request stored it
+                    return false;
+                }
+                receivedChunks.set(chunkNumber);
+                notifyAll();
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return true;
+    }
+
+    public synchronized void complete(int totalChunks) throws IOException {
+        if (receivedChunks.length() > totalChunks) {
+            throw new IllegalArgumentException(MessageFormat.format("chunk {0} was received but the upload has only {1} chunks.", receivedChunks.length() - 1, totalChunks));
+        }
+        if (this.totalChunks >= 0 && this.totalChunks != totalChunks) {
+            throw new IllegalArgumentException(MessageFormat.format("upload was already completed with {0} chunks.", this.totalChunks));
+        }
+        Files.write(directory.resolve(COMPLETE_FILE), String.valueOf(totalChunks).getBytes(StandardCharsets.US_ASCII));
+        this.totalChunks = totalChunks;
+        notifyAll();
+    }
+
+    /**
+     * Waits until the chunk is received.
+     *
+     * @return the chunk file, or null when the upload is complete and has fewer chunks
+     * @throws IOException if the chunk does not arrive within the timeout
+     */
+    public synchronized Path awaitChunk(int chunkNumber, long timeoutMillis) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!receivedChunks.get(chunkNumber)) {
+            if (totalChunks >= 0 && chunkNumber >= totalChunks) {
+                return null;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException(MessageFormat.format("chunk {0} was not received within {1} ms.", chunkNumber, timeoutMillis));
+            }
+            wait(remaining);
+        }
+        return getChunkFile(chunkNumber);
+    }
+
+    /**
+     * True once the job can start reading: chunk 0 was received or the upload was completed.
+     */
+    public synchronized boolean isReadable() {
+        return receivedChunks.get(0) || totalChunks >= 0;
+    }
+
+    public synchronized boolean isReceived(int chunkNumber) {
+        return receivedChunks.get(chunkNumber);
+    }
+
+    public synchronized int getReceivedChunksCount() {
+        return receivedChunks.cardinality();
+    }
+
+    public synchronized int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void checkInRange(int chunkNumber) {
+        if (totalChunks >= 0 && chunkNumber >= totalChunks) {
+            throw new IllegalArgumentException(MessageFormat.format("upload was completed with {0} chunks, chunk {1} is out of range.", totalChunks, chunkNumber));
+        }
+    }
+
+    private Path getChunkFile(int chunkNumber) {
+        return directory.resolve(CHUNK_FILE_PREFIX + chunkNumber);
+    }
+
+    private static void copy(InputStream content, Path target, long maxBytes) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        long written = 0;
+        try (OutputStream outputStream = Files.newOutputStream(target)) {
+            int read;
+            while ((read = content.read(buffer)) >= 0) {
+                written += read;
+                if (written > maxBytes) {
+                    throw new IOException(MessageFormat.format("chunk is larger than {0} bytes.", maxBytes));
+                }
+                outputStream.write(buffer, 0, read);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.gamesales.task;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The chunks of a {@link ChunkedUpload} read back to back as one stream, blocking until the next chunk is received,
+ * so an import parses the chunks that are already there while the client is still sending later ones.
+ */
+public class ChunkedUploadInputStream extends InputStream {
+    private final ChunkedUpload upload;
+    private final long chunkTimeoutMillis;
+    private int nextChunk;
+    private InputStream current;
+    private boolean endOfUpload;
+
+    public ChunkedUploadInputStream(ChunkedUpload upload, long chunkTimeoutMillis) {
+        this.upload = upload;
+        this.chunkTimeoutMillis = chunkTimeoutMillis;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (current != null || openNextChunk()) {
+            int read = current.read(buffer, offset, length);
+            if (read >= 0) {
+                return read;
+            }
+            closeCurrentChunk();
+        }
+        return -1;
+    }
+
+    /**
+     * Seeks within the chunk files instead of reading them, used to skip the committed prefix of a resumed import.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        while (current != null || openNextChunk()) {
+            long skipped = current.skip(n);
+            if (skipped > 0) {
+                return skipped;
+            }
+            closeCurrentChunk();
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrentChunk();
+        endOfUpload = true;
+    }
+
+    private boolean openNextChunk() throws IOException {
+        if (endOfUpload) {
+            return false;
+        }
+        Path chunkFile;
+        try {
+            chunkFile = upload.awaitChunk(nextChunk, chunkTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for chunk " + nextChunk);
+        }
+        if (chunkFile == null) {
+            endOfUpload = true;
+            return false;
+        }
+        current = Files.newInputStream(chunkFile);
+        nextChunk++;
+        return true;
+    }
+
+    private void closeCurrentChunk() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.gamesales.task;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.batch.GameSalesBatchPool;
+import com.example.gamesales.exception.BatchInsertException;
+import com.example.gamesales.service.BatchInsertService;
+import com.example.gamesales.service.ProgressTrackingService;
+import com.example.gamesales.sink.GameSalesSink;
+import com.example.gamesales.view.ProgressTrackingView;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded producer/consumer pipeline for a single csv import.
+ * The parser stage fills {@link GameSalesBatch} buffers taken from a pool and offers them into a bounded queue,
+ * insert workers drain the queue in parallel, commit each batch with its checkpoint and hand the buffers back to the pool,
+ * so memory use is capped by the pool size regardless of the file size.
+ * <p>
+ * Batch size and the number of batches committed at the same time are set by an {@link AdaptiveBatchController},
+ * pooled batches are sized for its maximum batch size and the parser stage cuts them at its current one.
+ */
+@Slf4j
+public class ImportPipeline {
+    private static final long OFFER_TIMEOUT_SECONDS = 1;
+
+    private final GameSalesBatch poisonPill = new GameSalesBatch(0);
+
+    private final ExecutorService executorService;
+    private final BatchInsertService batchInsertService;
+    private final GameSalesSink sink;
+    private final String targetTable;
+    private final ProgressTrackingService progressTrackingService;
+    private final ProgressTrackingView progressTrackingView;
+    private final GameSalesBatchPool batchPool;
+    private final BlockingQueue<GameSalesBatch> queue;
+    private final AdaptiveBatchController batchController;
+    private final int workers;
+    private final ProgressAggregator progressAggregator;
+    private final LongAdder[] ruleFailures;
+    private final AtomicBoolean aborted = new AtomicBoolean();
+    private final List<Future<Void>> futures = new ArrayList<>();
+
+    public ImportPipeline(ExecutorService executorService, BatchInsertService batchInsertService, GameSalesSink sink, String targetTable, ProgressTrackingService progressTrackingService, ProgressTrackingView progressTrackingView, ProgressAggregator progressAggregator, AdaptiveBatchController batchController, LongAdder[] ruleFailures, int queueCapacity, int parserThreads) {
+        this.executorService = executorService;
+        this.batchInsertService = batchInsertService;
+        this.sink = sink;
+        this.targetTable = targetTable;
+        this.progressTrackingService = progressTrackingService;
+        this.progressTrackingView = progressTrackingView;
+        this.batchController = batchController;
+        this.workers = batchController.getMaxInFlight();
+        // every parser thread and worker may hold one batch while the queue is full
+        this.batchPool = new GameSalesBatchPool(batchController.getMaxBatchSize(), queueCapacity + parserThreads + workers);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.progressAggregator = progressAggregator;
+        this.ruleFailures = ruleFailures;
+    }
+
+    public void start() {
+        for (int i = 0; i < workers; i++) {
+            futures.add(executorService.submit(new QueueConsumerTask(batch -> {
+                // workers above the current in-flight limit wait here with their batch
+                batchController.acquire();
+                boolean committed = false;
+                long startNanos = System.nanoTime();
+                try {
+                    new BatchInsertGameSalesTask(batchInsertService, batch, sink, targetTable, progressAggregator, progressTrackingService, progressTrackingView).call();
+                    committed = true;
+                } finally {
+                    if (committed) {
+                        batchController.release(batch.size() + batch.getInvalidRecords().size() + batch.getSkippedRecordsCount(), System.nanoTime() - startNanos);
+                    } else {
+                        batchController.release();
+                    }
+                    batchPool.release(batch);
+                }
+            })));
+        }
+    }
+
+    /**
+     * Takes an empty batch for the parser stage to fill, waiting while all pooled batches are queued or being inserted.
+     */
+    public GameSalesBatch acquireBatch() {
+        try {
+            GameSalesBatch batch;
+            while ((batch = batchPool.acquire(OFFER_TIMEOUT_SECONDS, TimeUnit.SECONDS)) == null) {
+                if (aborted.get()) {
+                    throw new BatchInsertException("import pipeline aborted, no batch available.");
+                }
+            }
+            return batch;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new BatchInsertException("interrupted while waiting for a batch.");
+        }
+    }
+
+    /**
+     * True once the parser stage should hand the batch over, at the controller's current batch size.
+     */
+    public boolean isBatchComplete(GameSalesBatch batch) {
+        int batchSize = batchController.getBatchSize();
+        return batch.isFull() || batch.size() >= batchSize || batch.getInvalidRecords().size() >= batchSize;
+    }
+
+    public AdaptiveBatchSettings getBatchSettings() {
+        return batchController.getSettings();
+    }
+
+    /**
+     * Validation rule failure counters of this job, shared by all parser threads.
+     */
+    public LongAdder[] getRuleFailures() {
+        return ruleFailures;
+    }
+
+    public void offerBatch(GameSalesBatch batch) {
+        if (batch.hasNothingToCommit()) {
+            batchPool.release(batch);
+        } else {
+            offer(batch);
+        }
+    }
+
+    /**
+     * Signals end of input to every worker and returns the futures of all workers, to be awaited by {@link UpdateProgressStatusTask}.
+     */
+    public List<Future<Void>> finish() {
+        for (int i = 0; i < workers; i++) {
+            offer(poisonPill);
+        }
+        return futures;
+    }
+
+    /**
+     * Stops all workers without waiting for queued batches, used when the parser stage fails.
+     */
+    public void abort() {
+        aborted.set(true);
+        queue.clear();
+    }
+
+    private void offer(GameSalesBatch batch) {
+        try {
+            while (!queue.offer(batch, OFFER_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                if (aborted.get()) {
+                    throw new BatchInsertException("import pipeline aborted, batch was not queued.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new BatchInsertException("interrupted while queueing batch.");
+        }
+    }
+
+    private interface BatchHandler {
+        void handle(GameSalesBatch batch) throws Exception;
+    }
+
+    private class QueueConsumerTask implements Callable<Void> {
+        private final BatchHandler handler;
+
+        QueueConsumerTask(BatchHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            try {
+                while (!aborted.get()) {
+                    GameSalesBatch batch = queue.poll(OFFER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    if (batch == poisonPill) {
+                        break;
+                    }
+                    if (batch != null) {
+                        handler.handle(batch);
+                    }
+                }
+            } catch (Exception e) {
+                // stop the parser stage and the other workers, the failure is surfaced through this future
+                abort();
+                throw e;
+            }
+            return null;
+        }
+    }
+}
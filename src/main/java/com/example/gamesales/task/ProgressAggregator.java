@@ -0,0 +1,137 @@
+package com.example.gamesales.task;
+
+import com.example.gamesales.view.ProgressTrackingView;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * In-memory record counts of one running import job.
+ * <p>
+ * Insert workers only add to {@link LongAdder}s, the counts reach progress_tracking through the periodic flush of
+ * {@link com.example.gamesales.service.ProgressAggregationService} and once more when the job closes the aggregator,
+ * so the progress row is written a fixed number of times per second whatever the number of batches.
+ */
+public class ProgressAggregator {
+    private final ProgressTrackingView progressTrackingView;
+    private final Consumer<ProgressAggregator> onClose;
+    private final int baseValidRecordsCount;
+    private final int baseInvalidRecordsCount;
+    private final int baseSkippedRecordsCount;
+    private final long baseProcessedBytes;
+    private final LongAdder validRecordsCount = new LongAdder();
+    private final LongAdder invalidRecordsCount = new LongAdder();
+    private final LongAdder skippedRecordsCount = new LongAdder();
+    /** end offset of the furthest committed batch */
+    private final LongAccumulator processedBytes;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean dirty;
+
+    /**
+     * Starts from the counts already on the view, i.e. what earlier runs of a resumed job committed.
+     */
+    public ProgressAggregator(ProgressTrackingView progressTrackingView, Consumer<ProgressAggregator> onClose) {
+        this.progressTrackingView = progressTrackingView;
+        this.onClose = onClose;
+        this.baseValidRecordsCount = valueOf(progressTrackingView.getTotalProcessedRecordsCount());
+        this.baseInvalidRecordsCount = valueOf(progressTrackingView.getInvalidRecordsCount());
+        this.baseSkippedRecordsCount = valueOf(progressTrackingView.getSkippedRecordsCount());
+        this.baseProcessedBytes = progressTrackingView.getProcessedBytes() == null ? 0 : progressTrackingView.getProcessedBytes();
+        this.processedBytes = new LongAccumulator(Math::max, baseProcessedBytes);
+    }
+
+    /**
+     * Adds the counts of a committed batch.
+     *
+     * @param endOffset offset in the source file right after the batch
+     */
+    public void record(int validRecords, int invalidRecords, int skippedRecords, long endOffset) {
+        validRecordsCount.add(validRecords);
+        invalidRecordsCount.add(invalidRecords);
+        skippedRecordsCount.add(skippedRecords);
+        processedBytes.accumulate(endOffset);
+        dirty = true;
+    }
+
+    public Long getProgressTrackViewId() {
+        return progressTrackingView.getId();
+    }
+
+    public int getValidRecordsCount() {
+        return baseValidRecordsCount + (int) validRecordsCount.sum();
+    }
+
+    public int getInvalidRecordsCount() {
+        return baseInvalidRecordsCount + (int) invalidRecordsCount.sum();
+    }
+
+    public int getSkippedRecordsCount() {
+        return baseSkippedRecordsCount + (int) skippedRecordsCount.sum();
+    }
+
+    /**
+     * Bytes of the source file up to the furthest committed batch. Exact for streaming imports, which commit in file order.
+     */
+    public long getProcessedBytes() {
+        return processedBytes.get();
+    }
+
+    /**
+     * Clears the dirty flag and returns whether anything was recorded since the last call. A batch recorded concurrently
+     * is either part of the counts read afterwards or sets the flag again for the next flush.
+     */
+    public boolean takeDirty() {
+        if (!dirty) {
+            return false;
+        }
+        dirty = false;
+        return true;
+    }
+
+    /**
+     * Records counted by this run per second since it started, records of earlier runs excluded.
+     */
+    public double getRecordsPerSecond() {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        return (validRecordsCount.sum() + invalidRecordsCount.sum() + skippedRecordsCount.sum()) * 1_000_000_000d / elapsedNanos;
+    }
+
+    /**
+     * Source file bytes committed by this run per second since it started.
+     */
+    public double getBytesPerSecond() {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        return (getProcessedBytes() - baseProcessedBytes) * 1_000_000_000d / elapsedNanos;
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Copies the current counts onto the job's view, before the view itself is saved.
+     */
+    public void applyTo(ProgressTrackingView view) {
+        view.setTotalProcessedRecordsCount(getValidRecordsCount());
+        view.setInvalidRecordsCount(getInvalidRecordsCount());
+        view.setSkippedRecordsCount(getSkippedRecordsCount());
+        view.setProcessedBytes(getProcessedBytes());
+    }
+
+    /**
+     * Stops the periodic flush, writes the final counts and copies them onto the view. Safe to call more than once.
+     */
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            onClose.accept(this);
+            applyTo(progressTrackingView);
+        }
+    }
+
+    private static int valueOf(Integer count) {
+        return count == null ? 0 : count;
+    }
+}
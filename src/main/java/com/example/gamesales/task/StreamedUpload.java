@@ -0,0 +1,68 @@
+package com.example.gamesales.task;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+
+/**
+ * Spool file of a raw body upload that is still being received. The request thread appends to the file and reports
+ * every write here, the import job follows the file through {@link StreamedUploadInputStream} instead of waiting for the upload to end.
+ */
+public class StreamedUpload {
+    private final Path path;
+    private long length;
+    private boolean complete;
+    private IOException failure;
+
+    public StreamedUpload(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public synchronized void append(long bytes) {
+        length += bytes;
+        notifyAll();
+    }
+
+    public synchronized void complete() {
+        complete = true;
+        notifyAll();
+    }
+
+    /**
+     * Ends the upload with an error, the import job reading it fails with the same error.
+     */
+    public synchronized void fail(IOException failure) {
+        this.failure = failure;
+        notifyAll();
+    }
+
+    /**
+     * Waits until the file is longer than {@code position}.
+     *
+     * @return the number of bytes of the file, or -1 once the upload is complete and {@code position} is at its end
+     * @throws IOException if the upload failed or no bytes arrive within the timeout
+     */
+    public synchronized long awaitLength(long position, long timeoutMillis) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            if (failure != null) {
+                throw new IOException("upload failed: " + failure.getMessage(), failure);
+            }
+            if (length > position) {
+                return length;
+            }
+            if (complete) {
+                return -1;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException(MessageFormat.format("no bytes of the upload were received within {0} ms.", timeoutMillis));
+            }
+            wait(remaining);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.gamesales.task;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the spool file of a {@link StreamedUpload} while it is written, blocking at its current end until more bytes arrive
+ * or the timeout passes.
+ */
+public class StreamedUploadInputStream extends InputStream {
+    private final StreamedUpload upload;
+    private final FileChannel channel;
+    private final long timeoutMillis;
+    private long position;
+
+    /**
+     * @param timeoutMillis how long a read waits for the next bytes of the upload before it fails
+     */
+    public StreamedUploadInputStream(StreamedUpload upload, long timeoutMillis) throws IOException {
+        this.upload = upload;
+        this.timeoutMillis = timeoutMillis;
+        this.channel = FileChannel.open(upload.getPath(), StandardOpenOption.READ);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        long available;
+        try {
+            available = upload.awaitLength(position, timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the upload");
+        }
+        if (available < 0) {
+            return -1;
+        }
+        int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, available - position)), position);
+        if (read > 0) {
+            position += read;
+        }
+        return Math.max(read, 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
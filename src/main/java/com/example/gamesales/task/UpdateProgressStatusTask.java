@@ -1,10 +1,12 @@
 package com.example.gamesales.task;
 
+import com.example.gamesales.constants.GameSalesConstants;
 import com.example.gamesales.service.ProgressTrackingService;
 import com.example.gamesales.view.ProgressTrackingView;
 
-import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -14,11 +16,30 @@ public class UpdateProgressStatusTask implements Callable<Void> {
     private final List<Future<Void>> futures;
     private final ProgressTrackingView progressTrackingView;
     private final ProgressTrackingService progressTrackingService;
+    private final ProgressAggregator progressAggregator;
+    private final Map<String, Runnable> finishingSteps = new LinkedHashMap<>();
 
     public UpdateProgressStatusTask(List<Future<Void>> futures, ProgressTrackingView progressTrackingView, ProgressTrackingService progressTrackingService) {
+        this(futures, progressTrackingView, progressTrackingService, null);
+    }
+
+    /**
+     * @param progressAggregator closed once every insert worker is done, so the final counts are on the view before its status changes
+     */
+    public UpdateProgressStatusTask(List<Future<Void>> futures, ProgressTrackingView progressTrackingView, ProgressTrackingService progressTrackingService, ProgressAggregator progressAggregator) {
         this.futures = futures;
         this.progressTrackingView = progressTrackingView;
         this.progressTrackingService = progressTrackingService;
+        this.progressAggregator = progressAggregator;
+    }
+
+    /**
+     * Adds a step run in order once every batch is committed and before the job is completed, e.g. publishing a staging table.
+     * The job reports {@code status} while the step runs.
+     */
+    public UpdateProgressStatusTask addFinishingStep(String status, Runnable step) {
+        finishingSteps.put(status, step);
+        return this;
     }
 
     @Override
@@ -27,17 +48,28 @@ public class UpdateProgressStatusTask implements Callable<Void> {
             try {
                 future.get();
             } catch (InterruptedException | ExecutionException e) {
-                progressTrackingView.setStatus("ERROR");
-                progressTrackingView.setEndTime(LocalDateTime.now());
-                progressTrackingService.updateProgress(progressTrackingView);
-                Thread.currentThread().interrupt();
+                closeProgressAggregator();
+                progressTrackingService.finishProgress(progressTrackingView, GameSalesConstants.STATUS_ERROR);
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
                 return null;
             }
         }
+        closeProgressAggregator();
+        for (Map.Entry<String, Runnable> step : finishingSteps.entrySet()) {
+            progressTrackingView.setStatus(step.getKey());
+            progressTrackingService.updateProgress(progressTrackingView);
+            step.getValue().run();
+        }
         // If all tasks are successful, update the progress to "COMPLETED"
-        progressTrackingView.setStatus("COMPLETED");
-        progressTrackingView.setEndTime(LocalDateTime.now());
-        progressTrackingService.updateProgress(progressTrackingView);
+        progressTrackingService.finishProgress(progressTrackingView, GameSalesConstants.STATUS_COMPLETED);
         return null;
     }
+
+    private void closeProgressAggregator() {
+        if (progressAggregator != null) {
+            progressAggregator.close();
+        }
+    }
 }
@@ -1,18 +1,42 @@
 package com.example.gamesales.util;
 
+import com.example.gamesales.binary.GameSalesBinaryFormat;
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.entity.GameSalesCursorEntity;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.Date;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public class GameSalesUtil {
+    private static final int DECOMPRESS_BUFFER_SIZE = 1 << 16;
 
     public static File multipartToFile(MultipartFile multipartFile) throws IOException {
         File file = new File(System.getProperty("java.io.tmpdir") + File.separator + multipartFile.getOriginalFilename());
@@ -20,6 +44,61 @@ public class GameSalesUtil {
         return file;
     }
 
+    public static File spoolToTempFile(MultipartFile multipartFile, Path directory) throws IOException {
+        return spoolToTempFile(multipartFile, directory, null);
+    }
+
+    /**
+     * Copies the upload into the directory, updating the digest with every byte copied when one is given.
+     */
+    public static File spoolToTempFile(MultipartFile multipartFile, Path directory, MessageDigest digest) throws IOException {
+        Files.createDirectories(directory);
+        Path path = Files.createTempFile(directory, "game-sales-import-", ".csv");
+        try (InputStream inputStream = digest == null ? multipartFile.getInputStream() : new DigestInputStream(multipartFile.getInputStream(), digest)) {
+            Files.copy(inputStream, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return path.toFile();
+    }
+
+    public static String toHex(byte[] bytes) {
+        return String.format("%0" + (bytes.length * 2) + "x", new BigInteger(1, bytes));
+    }
+
+    public static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length);
+            byte[] buffer = new byte[512];
+            while (!deflater.finished()) {
+                outputStream.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return outputStream.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static byte[] inflate(byte[] bytes) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[512];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && inflater.needsInput()) {
+                    throw new DataFormatException("truncated deflate data");
+                }
+                outputStream.write(buffer, 0, inflated);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
     public static String populateErrorMessage(String errorMessage, String appendedMessage) {
 
         if (StringUtils.isEmpty(errorMessage)) {
@@ -36,6 +115,62 @@ public class GameSalesUtil {
         return LocalDateTime.ofInstant(timestamp.toInstant(), ZoneId.systemDefault());
     }
 
+    /**
+     * Encodes a keyset position as an url safe token. The value comes last so it may contain any character.
+     */
+    public static String encodeCursor(GameSalesCursorEntity cursor) {
+        String position = cursor.getSortField() + "\n" + cursor.getSortDir() + "\n" + cursor.getId() + "\n" + cursor.getValue();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not made by {@link #encodeCursor(GameSalesCursorEntity)}
+     */
+    public static GameSalesCursorEntity decodeCursor(String token) {
+        String position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String[] parts = position.split("\n", 4);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("cursor has " + parts.length + " parts, expected 4");
+        }
+        GameSalesCursorEntity cursor = new GameSalesCursorEntity();
+        cursor.setSortField(parts[0]);
+        cursor.setSortDir(parts[1]);
+        cursor.setId(Long.parseLong(parts[2]));
+        cursor.setValue(parts[3]);
+        return cursor;
+    }
+
+    /**
+     * Parses the text of a sort column value, as written to a cursor, to the type the column is bound with.
+     */
+    public static Object parseSortValue(String column, String value) {
+        switch (column.toLowerCase()) {
+            case GameSalesConstants.ID:
+                return Long.valueOf(value);
+            case "game_no":
+            case GameSalesConstants.TYPE:
+                return Integer.valueOf(value);
+            case "cost_price":
+            case GameSalesConstants.TAX:
+            case "sale_price":
+                return Double.valueOf(value);
+            case GameSalesConstants.DATE_OF_SALE_COLUMN_NAME:
+                return LocalDateTime.parse(value);
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Days that lie completely inside {@code from <= t <= to} at the microsecond precision of date_of_sale,
+     * as the first such day and the day after the last one. Both are equal when no day is complete.
+     */
+    public static LocalDate[] getFullDays(LocalDateTime from, LocalDateTime to) {
+        LocalDate firstDay = from.toLocalTime().equals(LocalTime.MIDNIGHT) ? from.toLocalDate() : from.toLocalDate().plusDays(1);
+        LocalDate endDay = to.plus(1, ChronoUnit.MICROS).toLocalDate();
+        return new LocalDate[]{firstDay, endDay.isBefore(firstDay) ? firstDay : endDay};
+    }
+
     public static boolean isStringInArrayIgnoreCase(String input, String[] array) {
         if (input == null || array == null) {
             return false;
@@ -49,8 +184,80 @@ public class GameSalesUtil {
     }
 
     public static int getTotalRecordsInside(MultipartFile file) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
+        return getTotalRecordsInside(file, GameSalesConstants.COMPRESSION_NONE);
+    }
+
+    /**
+     * Counts the records of a compressed upload while inflating it as a stream, nothing is inflated to disk or memory.
+     */
+    public static int getTotalRecordsInside(MultipartFile file, String compression) throws IOException {
+        return getTotalRecordsInside(file, compression, GameSalesConstants.FILE_FORMAT_CSV);
+    }
+
+    /**
+     * Binary uploads are counted from their block headers.
+     */
+    public static int getTotalRecordsInside(MultipartFile file, String compression, String fileFormat) throws IOException {
+        if (GameSalesConstants.FILE_FORMAT_BINARY.equals(fileFormat)) {
+            try (InputStream inputStream = decompress(file.getInputStream(), compression)) {
+                return (int) GameSalesBinaryFormat.countRecords(inputStream);
+            }
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(decompress(file.getInputStream(), compression)))) {
             return (int) (reader.lines().count() - 1);
         }
     }
+
+    /**
+     * Compression of an upload by its magic bytes, gzip or a zlib (http deflate) stream, otherwise none.
+     */
+    public static String detectCompression(MultipartFile file) throws IOException {
+        byte[] head = new byte[2];
+        int length;
+        try (InputStream inputStream = file.getInputStream()) {
+            length = IOUtils.read(inputStream, head);
+        }
+        return detectCompression(head, length);
+    }
+
+    /**
+     * Format of the (inflated) upload by its magic bytes, binary or csv.
+     */
+    public static String detectFileFormat(MultipartFile file, String compression) throws IOException {
+        byte[] head = new byte[4];
+        int length;
+        try (InputStream inputStream = decompress(file.getInputStream(), compression)) {
+            length = IOUtils.read(inputStream, head);
+        }
+        return GameSalesBinaryFormat.hasMagic(head, length) ? GameSalesConstants.FILE_FORMAT_BINARY : GameSalesConstants.FILE_FORMAT_CSV;
+    }
+
+    public static String detectCompression(byte[] head, int length) {
+        if (length < 2) {
+            return GameSalesConstants.COMPRESSION_NONE;
+        }
+        int first = head[0] & 0xff;
+        int second = head[1] & 0xff;
+        if (first == 0x1f && second == 0x8b) {
+            return GameSalesConstants.COMPRESSION_GZIP;
+        }
+        // zlib header: deflate method, check bits make the first two bytes a multiple of 31
+        if ((first & 0x0f) == 8 && (first >> 4) <= 7 && ((first << 8) | second) % 31 == 0) {
+            return GameSalesConstants.COMPRESSION_DEFLATE;
+        }
+        return GameSalesConstants.COMPRESSION_NONE;
+    }
+
+    /**
+     * Wraps the stream to inflate it on the fly, closing the returned stream closes the given one.
+     */
+    public static InputStream decompress(InputStream inputStream, String compression) throws IOException {
+        if (GameSalesConstants.COMPRESSION_GZIP.equals(compression)) {
+            return new GZIPInputStream(inputStream, DECOMPRESS_BUFFER_SIZE);
+        }
+        if (GameSalesConstants.COMPRESSION_DEFLATE.equals(compression)) {
+            return new InflaterInputStream(new BufferedInputStream(inputStream, DECOMPRESS_BUFFER_SIZE));
+        }
+        return inputStream;
+    }
 }
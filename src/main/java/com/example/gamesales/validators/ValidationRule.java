@@ -0,0 +1,188 @@
+package com.example.gamesales.validators;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.InvalidRecordReason;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+/**
+ * One compiled row validation rule, configured as {@code field:operator[:argument]}, e.g. {@code gameName:maxlength:20}.
+ * <p>
+ * Operators: {@code min} and {@code max} (inclusive) for the numeric fields, {@code in} with {@code |} separated values for
+ * gameNo and type, {@code notblank} and {@code maxlength} for gameName and gameCode. Every rule reads its column straight from the
+ * batch arrays, nothing is boxed or decoded per row.
+ */
+public abstract class ValidationRule {
+    private final String name;
+    private final InvalidRecordReason reason;
+
+    private ValidationRule(String name, InvalidRecordReason reason) {
+        this.name = name;
+        this.reason = reason;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public InvalidRecordReason getReason() {
+        return reason;
+    }
+
+    /**
+     * True when the row passes the rule.
+     */
+    public abstract boolean test(GameSalesBatch batch, int row);
+
+    public static ValidationRule compile(String spec) {
+        String[] parts = spec.trim().split(":");
+        if (parts.length < 2 || parts.length > 3) {
+            throw invalidRule(spec, "expected field:operator[:argument]");
+        }
+        String field = parts[0].trim();
+        String operator = parts[1].trim().toLowerCase();
+        String argument = parts.length == 3 ? parts[2].trim() : null;
+        String name = spec.trim();
+        switch (field) {
+            case "gameNo":
+                return compileInt(name, InvalidRecordReason.GAME_NO, operator, argument, GameSalesBatch::getGameNo);
+            case "type":
+                return compileInt(name, InvalidRecordReason.TYPE, operator, argument, GameSalesBatch::getType);
+            case "costPrice":
+                return compileDouble(name, InvalidRecordReason.COST_PRICE, operator, argument, GameSalesBatch::getCostPrice);
+            case "tax":
+                return compileDouble(name, InvalidRecordReason.TAX, operator, argument, GameSalesBatch::getTax);
+            case "salePrice":
+                return compileDouble(name, InvalidRecordReason.SALE_PRICE, operator, argument, GameSalesBatch::getSalePrice);
+            case "gameName":
+                return compileString(name, InvalidRecordReason.GAME_NAME, operator, argument, GameSalesBatch::isGameNameBlank, GameSalesBatch::getGameNameCharCount);
+            case "gameCode":
+                return compileString(name, InvalidRecordReason.GAME_CODE, operator, argument, GameSalesBatch::isGameCodeBlank, GameSalesBatch::getGameCodeCharCount);
+            default:
+                throw invalidRule(spec, "unknown field " + field);
+        }
+    }
+
+    private interface IntColumn {
+        int get(GameSalesBatch batch, int row);
+    }
+
+    private interface DoubleColumn {
+        double get(GameSalesBatch batch, int row);
+    }
+
+    private interface BlankCheck {
+        boolean isBlank(GameSalesBatch batch, int row);
+    }
+
+    private interface LengthColumn {
+        int length(GameSalesBatch batch, int row);
+    }
+
+    private static ValidationRule compileInt(String name, InvalidRecordReason reason, String operator, String argument, IntColumn column) {
+        switch (operator) {
+            case "min": {
+                int min = parseInt(name, argument);
+                return new ValidationRule(name, reason) {
+                    @Override
+                    public boolean test(GameSalesBatch batch, int row) {
+                        return column.get(batch, row) >= min;
+                    }
+                };
+            }
+            case "max": {
+                int max = parseInt(name, argument);
+                return new ValidationRule(name, reason) {
+                    @Override
+                    public boolean test(GameSalesBatch batch, int row) {
+                        return column.get(batch, row) <= max;
+                    }
+                };
+            }
+            case "in": {
+                if (argument == null) {
+                    throw invalidRule(name, "in needs | separated values");
+                }
+                int[] allowed = Arrays.stream(argument.split("\\|")).mapToInt(value -> parseInt(name, value.trim())).sorted().toArray();
+                return new ValidationRule(name, reason) {
+                    @Override
+                    public boolean test(GameSalesBatch batch, int row) {
+                        return Arrays.binarySearch(allowed, column.get(batch, row)) >= 0;
+                    }
+                };
+            }
+            default:
+                throw invalidRule(name, "operator " + operator + " is not supported for this field");
+        }
+    }
+
+    private static ValidationRule compileDouble(String name, InvalidRecordReason reason, String operator, String argument, DoubleColumn column) {
+        if (argument == null) {
+            throw invalidRule(name, operator + " needs a value");
+        }
+        double bound;
+        try {
+            bound = Double.parseDouble(argument);
+        } catch (NumberFormatException e) {
+            throw invalidRule(name, argument + " is not a number");
+        }
+        // NaN compares false either way, so it fails both min and max rules
+        switch (operator) {
+            case "min":
+                return new ValidationRule(name, reason) {
+                    @Override
+                    public boolean test(GameSalesBatch batch, int row) {
+                        return column.get(batch, row) >= bound;
+                    }
+                };
+            case "max":
+                return new ValidationRule(name, reason) {
+                    @Override
+                    public boolean test(GameSalesBatch batch, int row) {
+                        return column.get(batch, row) <= bound;
+                    }
+                };
+            default:
+                throw invalidRule(name, "operator " + operator + " is not supported for this field");
+        }
+    }
+
+    private static ValidationRule compileString(String name, InvalidRecordReason reason, String operator, String argument, BlankCheck blankCheck, LengthColumn length) {
+        switch (operator) {
+            case "notblank":
+                return new ValidationRule(name, reason) {
+                    @Override
+                    public boolean test(GameSalesBatch batch, int row) {
+                        return !blankCheck.isBlank(batch, row);
+                    }
+                };
+            case "maxlength": {
+                int maxLength = parseInt(name, argument);
+                return new ValidationRule(name, reason) {
+                    @Override
+                    public boolean test(GameSalesBatch batch, int row) {
+                        return length.length(batch, row) <= maxLength;
+                    }
+                };
+            }
+            default:
+                throw invalidRule(name, "operator " + operator + " is not supported for this field");
+        }
+    }
+
+    private static int parseInt(String name, String argument) {
+        if (argument == null) {
+            throw invalidRule(name, "a value is missing");
+        }
+        try {
+            return Integer.parseInt(argument);
+        } catch (NumberFormatException e) {
+            throw invalidRule(name, argument + " is not an integer");
+        }
+    }
+
+    private static IllegalArgumentException invalidRule(String spec, String problem) {
+        return new IllegalArgumentException(MessageFormat.format("invalid validation rule \"{0}\": {1}", spec, problem));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.gamesales.validators;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.entity.ValidationRuleStatsEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Row validation rules compiled from configuration, evaluated in their configured order.
+ * <p>
+ * By default evaluation stops at the first failing rule of a row, so cheap and selective rules should come first. With
+ * {@code collectAllReasons} every rule runs and the reason mask names every failing field. Failures are counted per rule in
+ * {@link LongAdder}s, for the application and for the job whose counters are passed in.
+ */
+public class ValidationRuleSet {
+    private final ValidationRule[] rules;
+    private final boolean collectAllReasons;
+    private final LongAdder[] totalFailures;
+
+    public ValidationRuleSet(List<ValidationRule> rules, boolean collectAllReasons) {
+        this.rules = rules.toArray(new ValidationRule[0]);
+        this.collectAllReasons = collectAllReasons;
+        this.totalFailures = newCounters();
+    }
+
+    public static ValidationRuleSet compile(String[] specs, boolean collectAllReasons) {
+        List<ValidationRule> rules = new ArrayList<>();
+        for (String spec : specs) {
+            if (!spec.trim().isEmpty()) {
+                rules.add(ValidationRule.compile(spec));
+            }
+        }
+        return new ValidationRuleSet(rules, collectAllReasons);
+    }
+
+    /**
+     * Failure counters of one job, to be passed to {@link #evaluate(GameSalesBatch, int, LongAdder[])}.
+     */
+    public LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[rules.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * @param jobFailures counters from {@link #newCounters()}, or null
+     * @return the InvalidRecordReason bits of the failing rules, 0 for a valid row
+     */
+    public int evaluate(GameSalesBatch batch, int row, LongAdder[] jobFailures) {
+        int reasons = 0;
+        for (int i = 0; i < rules.length; i++) {
+            ValidationRule rule = rules[i];
+            if (!rule.test(batch, row)) {
+                totalFailures[i].increment();
+                if (jobFailures != null) {
+                    jobFailures[i].increment();
+                }
+                reasons |= rule.getReason().getBit();
+                if (!collectAllReasons) {
+                    break;
+                }
+            }
+        }
+        return reasons;
+    }
+
+    public List<ValidationRuleStatsEntity> getStats() {
+        return getStats(totalFailures);
+    }
+
+    public List<ValidationRuleStatsEntity> getStats(LongAdder[] failures) {
+        List<ValidationRuleStatsEntity> stats = new ArrayList<>(rules.length);
+        for (int i = 0; i < rules.length; i++) {
+            ValidationRuleStatsEntity ruleStats = new ValidationRuleStatsEntity();
+            ruleStats.setRule(rules[i].getName());
+            ruleStats.setReason(rules[i].getReason().name());
+            ruleStats.setFailures(failures[i].sum());
+            stats.add(ruleStats);
+        }
+        return stats;
+    }
+}
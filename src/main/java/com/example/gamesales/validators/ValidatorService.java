@@ -1,11 +1,14 @@
 package com.example.gamesales.validators;
 
+import com.example.gamesales.batch.GameSalesBatch;
 import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.constants.InvalidRecordReason;
+import com.example.gamesales.entity.GameSalesCursorEntity;
 import com.example.gamesales.entity.GameSalesParamsEntity;
 import com.example.gamesales.entity.TotalSalesParamsEntity;
+import com.example.gamesales.entity.ValidationRuleStatsEntity;
 import com.example.gamesales.exception.ValidationException;
 import com.example.gamesales.util.GameSalesUtil;
-import com.example.gamesales.view.GameSalesView;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -13,31 +16,64 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.compare.ComparableUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @Slf4j
 public class ValidatorService {
     private static final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
+    @Value("${com.example.gamesales.import.validation.rules:gameNo:min:1,gameName:notblank,gameName:maxlength:20,gameCode:notblank,gameCode:maxlength:5,type:in:1|2,costPrice:min:0,costPrice:max:100,tax:min:0,salePrice:min:0}")
+    private String[] validationRuleSpecs;
+
+    @Value("${com.example.gamesales.import.validation.collectallreasons:false}")
+    private boolean collectAllReasons;
+
+    private ValidationRuleSet validationRules;
+
+    @PostConstruct
+    public void init() {
+        // an invalid rule fails startup instead of letting every row through
+        validationRules = ValidationRuleSet.compile(validationRuleSpecs, collectAllReasons);
+        log.info("compiled {} validation rules, collectAllReasons={}", validationRules.getStats().size(), collectAllReasons);
+    }
+
     public int validateCsvFile(MultipartFile csvFile) {
         if (Objects.isNull(csvFile) || csvFile.isEmpty()) {
             logAndThrowValidationException("csv file is empty.");
 
         }
-        if (!StringUtils.endsWithIgnoreCase(csvFile.getOriginalFilename(), ".csv")) {
-            logAndThrowValidationException("file input extension is not .csv");
+        String fileName = StringUtils.lowerCase(StringUtils.removeEndIgnoreCase(StringUtils.removeEndIgnoreCase(csvFile.getOriginalFilename(), ".gz"), ".deflate"));
+        if (!StringUtils.endsWithAny(fileName, ".csv", ".gsb")) {
+            logAndThrowValidationException("file input extension is not .csv or .gsb, optionally followed by .gz or .deflate");
         }
 
         int totalRecordsCount = 0;
         try {
-            totalRecordsCount = GameSalesUtil.getTotalRecordsInside(csvFile);
+            // the magic bytes decide, a .csv upload may still have been compressed by the client
+            String compression = GameSalesUtil.detectCompression(csvFile);
+            if (StringUtils.endsWithIgnoreCase(csvFile.getOriginalFilename(), ".gz") && !GameSalesConstants.COMPRESSION_GZIP.equals(compression)) {
+                logAndThrowValidationException("csv file has a .gz extension but is not gzip compressed.");
+            }
+            if (StringUtils.endsWithIgnoreCase(csvFile.getOriginalFilename(), ".deflate") && !GameSalesConstants.COMPRESSION_DEFLATE.equals(compression)) {
+                logAndThrowValidationException("csv file has a .deflate extension but is not deflate compressed.");
+            }
+            String fileFormat = GameSalesUtil.detectFileFormat(csvFile, compression);
+            if (StringUtils.endsWith(fileName, ".gsb") && !GameSalesConstants.FILE_FORMAT_BINARY.equals(fileFormat)) {
+                logAndThrowValidationException("file has a .gsb extension but is not a game sales binary file.");
+            }
+            totalRecordsCount = GameSalesUtil.getTotalRecordsInside(csvFile, compression, fileFormat);
             if (totalRecordsCount <= 0) {
                 logAndThrowValidationException("csv file contains 0 records");
             }
@@ -48,6 +84,57 @@ public class ValidatorService {
         return totalRecordsCount;
     }
 
+    public void validateImportMode(String importMode) {
+        if (!StringUtils.equalsAnyIgnoreCase(importMode, GameSalesConstants.IMPORT_MODE_STREAMING, GameSalesConstants.IMPORT_MODE_PARALLEL)) {
+            String invalidImportMode = MessageFormat.format("parameter importMode:{0} is invalid. It should be either {1} or {2}", importMode, GameSalesConstants.IMPORT_MODE_STREAMING, GameSalesConstants.IMPORT_MODE_PARALLEL);
+            logAndThrowValidationException(invalidImportMode);
+        }
+    }
+
+    public void validateImportEngine(String importEngine) {
+        if (!StringUtils.equalsAny(importEngine, GameSalesConstants.IMPORT_ENGINE_JDBC, GameSalesConstants.IMPORT_ENGINE_MULTIROW, GameSalesConstants.IMPORT_ENGINE_LOAD_DATA)) {
+            String invalidImportEngine = MessageFormat.format("parameter importEngine:{0} is invalid. It should be one of {1}, {2} or {3}", importEngine,
+                    GameSalesConstants.IMPORT_ENGINE_JDBC, GameSalesConstants.IMPORT_ENGINE_MULTIROW, GameSalesConstants.IMPORT_ENGINE_LOAD_DATA);
+            logAndThrowValidationException(invalidImportEngine);
+        }
+    }
+
+    public void validateWriteMode(String writeMode, String importEngine) {
+        if (!StringUtils.equalsAny(writeMode, GameSalesConstants.WRITE_MODE_APPEND, GameSalesConstants.WRITE_MODE_UPSERT)) {
+            String invalidWriteMode = MessageFormat.format("parameter writeMode:{0} is invalid. It should be either {1} or {2}", writeMode, GameSalesConstants.WRITE_MODE_APPEND, GameSalesConstants.WRITE_MODE_UPSERT);
+            logAndThrowValidationException(invalidWriteMode);
+        }
+        if (GameSalesConstants.WRITE_MODE_UPSERT.equals(writeMode) && GameSalesConstants.IMPORT_ENGINE_LOAD_DATA.equals(importEngine)) {
+            String upsertNotSupported = MessageFormat.format("parameter writeMode:{0} is not supported with importEngine:{1}", writeMode, importEngine);
+            logAndThrowValidationException(upsertNotSupported);
+        }
+    }
+
+    public void validatePublishMode(String publishMode) {
+        if (!StringUtils.equalsAny(publishMode, GameSalesConstants.PUBLISH_MODE_DIRECT, GameSalesConstants.PUBLISH_MODE_STAGED)) {
+            String invalidPublishMode = MessageFormat.format("parameter publishMode:{0} is invalid. It should be either {1} or {2}", publishMode, GameSalesConstants.PUBLISH_MODE_DIRECT, GameSalesConstants.PUBLISH_MODE_STAGED);
+            logAndThrowValidationException(invalidPublishMode);
+        }
+    }
+
+    /**
+     * Maps the Content-Encoding of a streamed csv body to the compression it is read with.
+     */
+    public String validateContentEncoding(String contentEncoding) {
+        if (StringUtils.isBlank(contentEncoding) || StringUtils.equalsIgnoreCase(contentEncoding, "identity")) {
+            return GameSalesConstants.COMPRESSION_NONE;
+        }
+        if (StringUtils.equalsAnyIgnoreCase(contentEncoding, "gzip", "x-gzip")) {
+            return GameSalesConstants.COMPRESSION_GZIP;
+        }
+        if (StringUtils.equalsIgnoreCase(contentEncoding, "deflate")) {
+            return GameSalesConstants.COMPRESSION_DEFLATE;
+        }
+        String invalidContentEncoding = MessageFormat.format("Content-Encoding:{0} is not supported. It should be either gzip, deflate or identity", contentEncoding);
+        logAndThrowValidationException(invalidContentEncoding);
+        return null;
+    }
+
     public GameSalesParamsEntity validateGetGameSalesRequest(String params, String sortField, String sortDir) {
         GameSalesParamsEntity gameSalesParamsEntity = null;
         if (StringUtils.isNotBlank(params)) {
@@ -70,6 +157,41 @@ public class ValidatorService {
         return gameSalesParamsEntity;
     }
 
+    public void validatePagination(String pagination) {
+        if (!StringUtils.equalsAnyIgnoreCase(pagination, GameSalesConstants.PAGINATION_OFFSET, GameSalesConstants.PAGINATION_KEYSET)) {
+            String invalidPagination = MessageFormat.format("parameter pagination:{0} is invalid. It should be either {1} or {2}", pagination, GameSalesConstants.PAGINATION_OFFSET, GameSalesConstants.PAGINATION_KEYSET);
+            logAndThrowValidationException(invalidPagination);
+        }
+    }
+
+    public void validateCountStrategy(String countStrategy) {
+        if (!StringUtils.equalsAnyIgnoreCase(countStrategy, GameSalesConstants.COUNT_STRATEGY_NONE, GameSalesConstants.COUNT_STRATEGY_EXACT, GameSalesConstants.COUNT_STRATEGY_ESTIMATE)) {
+            String invalidCountStrategy = MessageFormat.format("parameter countStrategy:{0} is invalid. It should be one of {1}, {2} or {3}", countStrategy,
+                    GameSalesConstants.COUNT_STRATEGY_NONE, GameSalesConstants.COUNT_STRATEGY_EXACT, GameSalesConstants.COUNT_STRATEGY_ESTIMATE);
+            logAndThrowValidationException(invalidCountStrategy);
+        }
+    }
+
+    /**
+     * Decodes the cursor of a keyset page, it is only valid for the sort it was issued for.
+     */
+    public GameSalesCursorEntity validateCursor(String cursor, String sortField, String sortDir) {
+        GameSalesCursorEntity gameSalesCursorEntity = null;
+        try {
+            gameSalesCursorEntity = GameSalesUtil.decodeCursor(cursor);
+            GameSalesUtil.parseSortValue(gameSalesCursorEntity.getSortField(), gameSalesCursorEntity.getValue());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            log.error(e.getMessage(), e);
+            logAndThrowValidationException(MessageFormat.format("parameter cursor:{0} is invalid.", cursor));
+        }
+        if (!StringUtils.equalsIgnoreCase(gameSalesCursorEntity.getSortField(), sortField) || !StringUtils.equalsIgnoreCase(gameSalesCursorEntity.getSortDir(), sortDir)) {
+            String cursorSortMismatch = MessageFormat.format("parameter cursor was issued for sortField:{0} sortDir:{1}, it cannot be used with sortField:{2} sortDir:{3}",
+                    gameSalesCursorEntity.getSortField(), gameSalesCursorEntity.getSortDir(), sortField, sortDir);
+            logAndThrowValidationException(cursorSortMismatch);
+        }
+        return gameSalesCursorEntity;
+    }
+
     public TotalSalesParamsEntity validateTotalSalesRequest(String params) {
         TotalSalesParamsEntity totalSalesParamsEntity;
         validateParamsNotEmpty(params);
@@ -165,15 +287,32 @@ public class ValidatorService {
     }
 
 
-    public boolean isValidData(GameSalesView view) {
-        boolean gameNo = view.getGameNo() > 0;
-        boolean gameName = StringUtils.isNotBlank(view.getGameName()) && view.getGameName().length() <= 20;
-        boolean gameCode = StringUtils.isNotBlank(view.getGameCode()) && view.getGameCode().length() <= 5;
-        boolean type = view.getType() == 1 || view.getType() == 2;
-        boolean costPrice = view.getCostPrice() >= 0 && view.getCostPrice() <= 100;
-        boolean tax = view.getTax() >= 0;
-        boolean salePrice = view.getSalePrice() >= 0;
-        boolean dateOfSale = view.getDateOfSale() != null;
-        return gameNo && gameName && gameCode && type && costPrice && tax && salePrice && dateOfSale;
+    public int getInvalidReasons(GameSalesBatch batch, int row) {
+        return getInvalidReasons(batch, row, null);
+    }
+
+    /**
+     * {@link InvalidRecordReason} bits of the configured rules the row fails, 0 for a valid row.
+     * Unless {@code collectallreasons} is set evaluation stops at the first failing rule.
+     *
+     * @param jobFailures per rule failure counters of the job from {@link #newRuleFailureCounters()}, or null
+     */
+    public int getInvalidReasons(GameSalesBatch batch, int row, LongAdder[] jobFailures) {
+        return validationRules.evaluate(batch, row, jobFailures);
+    }
+
+    public LongAdder[] newRuleFailureCounters() {
+        return validationRules.newCounters();
+    }
+
+    /**
+     * Failures per rule since the application started.
+     */
+    public List<ValidationRuleStatsEntity> getValidationRuleStats() {
+        return validationRules.getStats();
+    }
+
+    public List<ValidationRuleStatsEntity> getValidationRuleStats(LongAdder[] jobFailures) {
+        return validationRules.getStats(jobFailures);
     }
 }
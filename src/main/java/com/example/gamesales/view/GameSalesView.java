@@ -1,6 +1,7 @@
 package com.example.gamesales.view;
 
 import com.example.gamesales.serializer.CustomLocalDateTimeSerializer;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Getter;
 import lombok.Setter;
@@ -22,6 +23,13 @@ public class GameSalesView {
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "game_sales_seq")
     @SequenceGenerator(name = "game_sales_seq", sequenceName = "game_sales_seq")
     private Long id;
+    /** csv id of the row, only set by upsert imports */
+    @JsonIgnore
+    @Column(unique = true)
+    private Long sourceId;
+    /** hash of the stored columns, see GameSalesBatch#getRowHash */
+    @JsonIgnore
+    private Long rowHash;
     @Column(nullable = false)
     private int gameNo;
     @Column(nullable = false)
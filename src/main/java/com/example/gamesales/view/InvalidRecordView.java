@@ -20,8 +20,15 @@ public class InvalidRecordView {
     private ProgressTrackingView progressTrackView;
     @Column(nullable = false)
     private Long invalidRecordRowId;
+    /** the record as it is in the csv file, deflate compressed when {@link #compressed} */
+    @Lob
     @Column(nullable = false)
-    private String invalidRecordRowText;
+    private byte[] rawLine;
+    @Column(nullable = false)
+    private Boolean compressed;
+    /** InvalidRecordReason bits */
+    @Column(nullable = false)
+    private Integer reasonMask;
     @Column(nullable = false)
     private LocalDateTime createdOn;
 }
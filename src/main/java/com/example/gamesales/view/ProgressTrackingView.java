@@ -1,5 +1,6 @@
 package com.example.gamesales.view;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
@@ -23,10 +24,35 @@ public class ProgressTrackingView {
     private Integer totalRecordsCount;
     private Integer totalProcessedRecordsCount;
     private Integer invalidRecordsCount;
+    /** rows of upsert imports that were already stored unchanged */
+    private Integer skippedRecordsCount;
     private LocalDateTime startTime;
     private LocalDateTime endTime;
     private String status;
+    private String importMode;
+    private String importEngine;
+    private String publishMode;
+    private String writeMode;
+    private Boolean bulkLoad;
+    /** sha-256 of the uploaded file, an upload matching a completed or running job is not imported again */
+    private String fileFingerprint;
+    /** compression of the spooled upload, compressed uploads are inflated while they are parsed */
+    private String compression;
+    /** csv or binary, binary uploads skip text parsing */
+    private String fileFormat;
+    /** the file is sent in chunks after the job is created, its chunks are stored in the source file path directory */
+    private Boolean chunkedUpload;
+    /** the file was sent as the raw request body and parsed while it was received, its fingerprint is set once it was received completely */
+    private Boolean streamedUpload;
+    /** size of the csv, the Content-Length of a streamed upload, null when unknown */
+    private Long totalBytes;
+    /** bytes of the csv up to the last committed batch */
+    private Long processedBytes;
+    /** spooled copy of the upload, kept until the job completes so an interrupted job can be resumed */
+    @JsonIgnore
+    private String sourceFilePath;
 
+    @JsonIgnore
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "progressTrackView")
     private List<InvalidRecordView> invalidRecordViewList;
 }
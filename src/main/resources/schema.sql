@@ -1,8 +1,10 @@
-drop table if exists game_sales, progress_tracking, invalid_record;
+drop table if exists import_checkpoint, game_sales_daily, game_sales_daily_pending, game_sales, invalid_record, progress_tracking;
 -- create game_sales table
 CREATE TABLE `game_sales`
 (
     `id`           bigint       NOT NULL AUTO_INCREMENT,
+    `source_id`    bigint       DEFAULT NULL,
+    `row_hash`     bigint       DEFAULT NULL,
     `cost_price`   double       NOT NULL,
     `date_of_sale` datetime(6)  NOT NULL,
     `game_code`    varchar(255) NOT NULL,
@@ -12,6 +14,7 @@ CREATE TABLE `game_sales`
     `tax`          double       NOT NULL,
     `type`         int          NOT NULL,
     PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_game_sales_source_id` (`source_id`),
     KEY `idx_date_of_sale` (`date_of_sale`),
     KEY `idx_date_of_sale_sale_price` (`date_of_sale`, `sale_price`),
     KEY `idx_date_of_sale_sale_price_game_no` (`date_of_sale`, `sale_price`, `game_no`)
@@ -19,17 +22,55 @@ CREATE TABLE `game_sales`
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_0900_ai_ci;
 
+-- daily rollup of game_sales for total sales queries, maintained by imports
+CREATE TABLE `game_sales_daily`
+(
+    `day`         date   NOT NULL,
+    `game_no`     int    NOT NULL,
+    `sales_count` bigint NOT NULL,
+    `sale_price`  double NOT NULL,
+    `cost_price`  double NOT NULL,
+    `tax`         double NOT NULL,
+    PRIMARY KEY (`day`, `game_no`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_0900_ai_ci;
+
+-- days written by upsert batches whose rollup rows are recounted when the job finishes
+CREATE TABLE `game_sales_daily_pending`
+(
+    `day` date NOT NULL,
+    PRIMARY KEY (`day`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_0900_ai_ci;
+
 -- create progress_tracking table
 CREATE TABLE `progress_tracking`
 (
     `id`                            bigint NOT NULL AUTO_INCREMENT,
     `end_time`                      datetime(6)  DEFAULT NULL,
     `invalid_records_count`         int          DEFAULT NULL,
+    `skipped_records_count`         int          DEFAULT NULL,
     `start_time`                    datetime(6)  DEFAULT NULL,
     `status`                        varchar(255) DEFAULT NULL,
     `total_processed_records_count` int          DEFAULT NULL,
     `total_records_count`           int          DEFAULT NULL,
-    PRIMARY KEY (`id`)
+    `import_mode`                   varchar(32)   DEFAULT NULL,
+    `import_engine`                 varchar(32)   DEFAULT NULL,
+    `publish_mode`                  varchar(32)   DEFAULT NULL,
+    `write_mode`                    varchar(32)   DEFAULT NULL,
+    `bulk_load`                     bit(1)        DEFAULT NULL,
+    `source_file_path`              varchar(1024) DEFAULT NULL,
+    `file_fingerprint`              char(64)      DEFAULT NULL,
+    `compression`                   varchar(16)   DEFAULT NULL,
+    `file_format`                   varchar(16)   DEFAULT NULL,
+    `chunked_upload`                bit(1)        DEFAULT NULL,
+    `streamed_upload`               bit(1)        DEFAULT NULL,
+    `total_bytes`                   bigint        DEFAULT NULL,
+    `processed_bytes`               bigint        DEFAULT NULL,
+    PRIMARY KEY (`id`),
+    KEY `idx_progress_tracking_file_fingerprint` (`file_fingerprint`)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_0900_ai_ci;
@@ -41,14 +82,35 @@ CREATE TABLE `invalid_record`
     `created_on`              datetime(6)  NOT NULL,
     `progress_track_view_id`  bigint       NOT NULL,
     `invalid_record_row_id`   bigint       NOT NULL,
-    `invalid_record_row_text` varchar(255) NOT NULL,
+    `raw_line`                mediumblob   NOT NULL,
+    `compressed`              bit(1)       NOT NULL,
+    `reason_mask`             int          NOT NULL,
     PRIMARY KEY (`id`),
-    KEY `fk_progress_track_view_id` (`progress_track_view_id`),
+    KEY `fk_progress_track_view_id` (`progress_track_view_id`, `reason_mask`),
     CONSTRAINT `fk_progress_track_view_id` FOREIGN KEY (`progress_track_view_id`) REFERENCES `progress_tracking` (`id`)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_0900_ai_ci;
 
+-- create import checkpoint table, one row per committed batch of an import job
+CREATE TABLE `import_checkpoint`
+(
+    `id`                     bigint NOT NULL AUTO_INCREMENT,
+    `progress_track_view_id` bigint NOT NULL,
+    `first_record_number`    bigint NOT NULL,
+    `last_record_number`     bigint NOT NULL,
+    `start_offset`           bigint NOT NULL,
+    `end_offset`             bigint NOT NULL,
+    `valid_records_count`    int    NOT NULL,
+    `invalid_records_count`  int    NOT NULL,
+    `skipped_records_count`  int    NOT NULL DEFAULT 0,
+    PRIMARY KEY (`id`),
+    KEY `idx_import_checkpoint_job` (`progress_track_view_id`, `first_record_number`),
+    CONSTRAINT `fk_import_checkpoint_job` FOREIGN KEY (`progress_track_view_id`) REFERENCES `progress_tracking` (`id`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_0900_ai_ci;
+
 -- create sequences
 drop table if exists prog_trk_seq;
 CREATE TABLE `prog_trk_seq`
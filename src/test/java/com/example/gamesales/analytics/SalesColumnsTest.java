@@ -0,0 +1,73 @@
+package com.example.gamesales.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SalesColumnsTest {
+    private static final int ROWS = 2000;
+
+    @Test
+    void rangeTotalsMatchAScanAfterMerging() {
+        Random random = new Random(42);
+        long[] dates = new long[ROWS];
+        double[] prices = new double[ROWS];
+        short[] games = new short[ROWS];
+        for (int row = 0; row < ROWS; row++) {
+            // few distinct dates, so ranges start and end in the middle of equal dates
+            dates[row] = random.nextInt(500) * 1_000_000L;
+            prices[row] = random.nextInt(10_000) / 100.0;
+            games[row] = (short) (random.nextInt(5) - 2);
+        }
+        int loaded = ROWS / 2;
+        Integer[] order = new Integer[loaded];
+        for (int i = 0; i < loaded; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(dates[a], dates[b]));
+        long[] sortedDates = new long[loaded];
+        double[] loadedPrices = new double[loaded];
+        short[] loadedGames = new short[loaded];
+        for (int i = 0; i < loaded; i++) {
+            sortedDates[i] = dates[order[i]];
+            loadedPrices[i] = prices[order[i]];
+            loadedGames[i] = games[order[i]];
+        }
+        SalesColumns columns = SalesColumns.build(sortedDates, loadedPrices, loadedGames, loaded);
+        SalesDelta delta = new SalesDelta();
+        for (int row = loaded; row < ROWS; row++) {
+            delta.append(dates[row], prices[row], games[row]);
+        }
+        SalesColumns merged = columns.merge(delta);
+        assertEquals(ROWS, merged.size());
+
+        for (int query = 0; query < 200; query++) {
+            long from = random.nextInt(520) * 1_000_000L - 10_000_000L;
+            long to = from + random.nextInt(200) * 1_000_000L;
+            Short game = query % 3 == 0 ? null : (short) (random.nextInt(7) - 3);
+
+            long expectedCount = 0;
+            double expectedTotal = 0;
+            for (int row = 0; row < ROWS; row++) {
+                if (dates[row] >= from && dates[row] <= to && (game == null || games[row] == game)) {
+                    expectedCount++;
+                    expectedTotal += prices[row];
+                }
+            }
+
+            SalesTotals split = new SalesTotals();
+            columns.addTotals(from, to, game, split);
+            delta.addTotals(from, to, game, split);
+            assertEquals(expectedCount, split.getCount());
+            assertEquals(expectedTotal, split.getSalePrice(), 1e-6);
+
+            SalesTotals whole = new SalesTotals();
+            merged.addTotals(from, to, game, whole);
+            assertEquals(expectedCount, whole.getCount());
+            assertEquals(expectedTotal, whole.getSalePrice(), 1e-6);
+        }
+    }
+}
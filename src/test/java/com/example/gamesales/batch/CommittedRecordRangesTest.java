@@ -0,0 +1,74 @@
+package com.example.gamesales.batch;
+
+import com.example.gamesales.entity.ImportCheckpointEntity;
+import com.example.gamesales.parser.CsvRecordReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommittedRecordRangesTest {
+
+    @Test
+    void mergesOutOfOrderCheckpointsIntoPrefixAndRanges() {
+        CommittedRecordRanges ranges = CommittedRecordRanges.of(Arrays.asList(
+                checkpoint(11, 20, 500, 1000),
+                checkpoint(41, 50, 2000, 2500),
+                checkpoint(1, 10, 20, 500),
+                checkpoint(21, 25, 1000, 1250)));
+
+        assertTrue(ranges.hasCommittedPrefix());
+        assertEquals(26, ranges.getResumeRecordNumber());
+        assertEquals(1250, ranges.getResumeOffset());
+        assertTrue(ranges.contains(25));
+        assertFalse(ranges.contains(26));
+        assertFalse(ranges.contains(40));
+        assertTrue(ranges.contains(41));
+        assertTrue(ranges.contains(50));
+        assertFalse(ranges.contains(51));
+        assertEquals(35, ranges.getValidRecordsCount());
+    }
+
+    @Test
+    void withoutFirstRecordTheJobStartsFromTheHeader() {
+        CommittedRecordRanges ranges = CommittedRecordRanges.of(Collections.singletonList(checkpoint(5, 9, 200, 400)));
+        assertFalse(ranges.hasCommittedPrefix());
+        assertEquals(1, ranges.getResumeRecordNumber());
+        assertTrue(ranges.contains(7));
+        assertFalse(CommittedRecordRanges.none().contains(1));
+    }
+
+    @Test
+    void readerResumesAtOffsetWithAbsoluteNumbering() throws Exception {
+        String header = "id,game_no\n";
+        String first = "1,77\n";
+        String csv = header + first + "2,78\n\n3,79";
+        int offset = header.length() + first.length();
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        CsvRecordReader reader = new CsvRecordReader(new ByteArrayInputStream(bytes, offset, bytes.length - offset), offset, 2);
+
+        assertTrue(reader.next());
+        assertEquals(2, reader.getRecordNumber());
+        assertEquals(offset + 5, reader.getNextRecordOffset());
+        assertTrue(reader.next());
+        assertEquals(3, reader.getRecordNumber());
+        assertEquals(bytes.length, reader.getNextRecordOffset());
+        assertFalse(reader.next());
+    }
+
+    private ImportCheckpointEntity checkpoint(long first, long last, long startOffset, long endOffset) {
+        ImportCheckpointEntity checkpoint = new ImportCheckpointEntity();
+        checkpoint.setFirstRecordNumber(first);
+        checkpoint.setLastRecordNumber(last);
+        checkpoint.setStartOffset(startOffset);
+        checkpoint.setEndOffset(endOffset);
+        checkpoint.setValidRecordsCount((int) (last - first + 1));
+        return checkpoint;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.gamesales.batch;
+
+import com.example.gamesales.view.GameSalesView;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class GameSalesBatchTest {
+
+    @Test
+    void rowHashIgnoresSourceIdAndTracksEveryColumn() {
+        GameSalesBatch batch = new GameSalesBatch(3);
+        batch.addRow(view(1L, "name", 77.0));
+        batch.addRow(view(2L, "name", 77.0));
+        batch.addRow(view(1L, "name", 77.5));
+
+        assertEquals(batch.getRowHash(0), batch.getRowHash(1));
+        assertNotEquals(batch.getRowHash(0), batch.getRowHash(2));
+    }
+
+    @Test
+    void retainRowsCompactsKeptRowsAndCountsTheRestAsSkipped() {
+        GameSalesBatch batch = new GameSalesBatch(3);
+        batch.addRow(view(1L, "first", 1.0));
+        batch.addRow(view(2L, "second", 2.0));
+        batch.addRow(view(3L, "third", 3.0));
+        long thirdHash = batch.getRowHash(2);
+
+        batch.retainRows(new boolean[]{false, true, true});
+
+        assertEquals(2, batch.size());
+        assertEquals(1, batch.getSkippedRecordsCount());
+        assertEquals(2L, batch.getSourceId(0));
+        assertEquals("second", batch.getGameName(0));
+        assertEquals("third", batch.getGameName(1));
+        assertEquals(thirdHash, batch.getRowHash(1));
+    }
+
+    private GameSalesView view(Long sourceId, String gameName, double costPrice) {
+        GameSalesView view = new GameSalesView();
+        view.setSourceId(sourceId);
+        view.setGameNo(77);
+        view.setGameName(gameName);
+        view.setGameCode("code");
+        view.setType(1);
+        view.setCostPrice(costPrice);
+        view.setTax(0.09);
+        view.setSalePrice(83.93);
+        view.setDateOfSale(LocalDateTime.of(2024, 4, 19, 7, 31, 41));
+        return view;
+    }
+}
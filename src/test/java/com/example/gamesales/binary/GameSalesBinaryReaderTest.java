@@ -0,0 +1,91 @@
+package com.example.gamesales.binary;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameSalesBinaryReaderTest {
+
+    @Test
+    void rowsWrittenByTheWriterAreDecodedIntoBatches() throws IOException {
+        LocalDateTime dateOfSale = LocalDateTime.of(2024, 4, 19, 7, 31, 41, 123456000);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (GameSalesBinaryWriter writer = new GameSalesBinaryWriter(file, 2)) {
+            writer.write(1L, 77, "vwwsztutmcxiwmrywkjo", "tfqqf", 1, 77.00, 0.09, 83.93, dateOfSale);
+            writer.write(2L, 78, "vwwsztutmcxiwmrywkjo", "qqiqf", 2, 65.00, 0.09, 70.85, dateOfSale);
+            writer.write(null, 79, "a,b", "tfqqf", 1, 1.5, 0.0, 2.0, dateOfSale);
+        }
+        byte[] bytes = file.toByteArray();
+        assertEquals(3, GameSalesBinaryFormat.countRecords(new ByteArrayInputStream(bytes)));
+
+        GameSalesBinaryReader reader = new GameSalesBinaryReader(new ByteArrayInputStream(bytes));
+        reader.readMagic();
+        GameSalesBatch batch = new GameSalesBatch(3);
+        assertTrue(reader.nextBlock());
+        assertEquals(2, reader.getRowCount());
+        assertEquals(4, reader.getBlockOffset());
+        assertEquals(0, reader.decodeRow(0, batch));
+        assertEquals(1, reader.decodeRow(1, batch));
+        assertTrue(reader.nextBlock());
+        assertEquals(1, reader.getRowCount());
+        assertEquals(2, reader.decodeRow(0, batch));
+        assertFalse(reader.nextBlock());
+
+        assertEquals(1L, batch.getSourceId(0));
+        assertEquals("vwwsztutmcxiwmrywkjo", batch.getGameName(1));
+        assertEquals("qqiqf", batch.getGameCode(1));
+        assertEquals(2, batch.getType(1));
+        assertEquals(70.85, batch.getSalePrice(1));
+        assertEquals(dateOfSale, batch.getDateOfSale(1));
+        assertFalse(batch.hasSourceId(2));
+        assertEquals("a,b", batch.getGameName(2));
+        assertEquals(",79,\"a,b\",tfqqf,1,1.5,0.0,2.0,2024-04-19 07:31:41.123456", new String(reader.toCsvLine(0), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void corruptBlocksAreRejected() throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (GameSalesBinaryWriter writer = new GameSalesBinaryWriter(file)) {
+            writer.write(1L, 77, "name", "code", 1, 77.00, 0.09, 83.93, LocalDateTime.of(2024, 4, 19, 7, 31, 41));
+        }
+        byte[] bytes = file.toByteArray();
+
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        GameSalesBinaryReader truncatedReader = new GameSalesBinaryReader(new ByteArrayInputStream(truncated));
+        truncatedReader.readMagic();
+        assertThrows(IOException.class, truncatedReader::nextBlock);
+
+        // the game_name dictionary size follows the magic, the block header and the fixed columns of the only row
+        byte[] oversized = bytes.clone();
+        int dictionarySize = GameSalesBinaryFormat.MAGIC.length + GameSalesBinaryFormat.BLOCK_HEADER_SIZE + 48;
+        oversized[dictionarySize] = 0x7f;
+        oversized[dictionarySize + 1] = (byte) 0xff;
+        oversized[dictionarySize + 2] = (byte) 0xff;
+        oversized[dictionarySize + 3] = (byte) 0xff;
+        GameSalesBinaryReader oversizedReader = new GameSalesBinaryReader(new ByteArrayInputStream(oversized));
+        oversizedReader.readMagic();
+        assertThrows(IOException.class, oversizedReader::nextBlock);
+
+        // the game_code index of the only row is the last int of the file
+        bytes[bytes.length - 1] = 7;
+        GameSalesBinaryReader reader = new GameSalesBinaryReader(new ByteArrayInputStream(bytes));
+        reader.readMagic();
+        assertTrue(reader.nextBlock());
+        GameSalesBatch batch = new GameSalesBatch(1);
+        assertEquals(-1, reader.decodeRow(0, batch));
+        assertTrue(batch.isEmpty());
+
+        assertThrows(IOException.class, () -> new GameSalesBinaryReader(new ByteArrayInputStream("id,game_no\n".getBytes(StandardCharsets.UTF_8))).readMagic());
+    }
+}
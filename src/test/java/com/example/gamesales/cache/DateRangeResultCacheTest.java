@@ -0,0 +1,64 @@
+package com.example.gamesales.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DateRangeResultCacheTest {
+    private static final LocalDateTime JAN = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime FEB = LocalDateTime.of(2024, 2, 1, 0, 0);
+    private static final LocalDateTime MAR = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Test
+    void importsDropOnlyOverlappingResults() {
+        DateRangeResultCache cache = new DateRangeResultCache(10, 0, () -> 0L);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("jan", JAN, FEB.minusNanos(1000), loads::incrementAndGet);
+        cache.get("mar", MAR, null, loads::incrementAndGet);
+        cache.get("all", null, null, loads::incrementAndGet);
+        cache.get("jan", JAN, FEB.minusNanos(1000), loads::incrementAndGet);
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.getHits());
+
+        assertEquals(2, cache.invalidate(MAR.plusDays(3), MAR.plusDays(4)));
+        cache.get("jan", JAN, FEB.minusNanos(1000), loads::incrementAndGet);
+        cache.get("mar", MAR, null, loads::incrementAndGet);
+        assertEquals(4, loads.get());
+
+        // bounds are inclusive
+        assertEquals(1, cache.invalidate(FEB.minusNanos(1000), FEB));
+        assertEquals(3, cache.getInvalidations());
+    }
+
+    @Test
+    void resultLoadedDuringAnInvalidationIsNotCached() {
+        DateRangeResultCache cache = new DateRangeResultCache(10, 0, () -> 0L);
+        cache.get("jan", JAN, FEB, () -> {
+            cache.invalidate(MAR, MAR);
+            return "stale";
+        });
+        assertEquals("fresh", cache.get("jan", JAN, FEB, () -> "fresh"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedAndExpiredResults() {
+        AtomicLong clock = new AtomicLong();
+        DateRangeResultCache cache = new DateRangeResultCache(2, 100, clock::get);
+        cache.get("a", null, null, () -> "a");
+        cache.get("b", null, null, () -> "b");
+        cache.get("a", null, null, () -> "reloaded");
+        cache.get("c", null, null, () -> "c");
+        assertEquals(1, cache.getEvictions());
+        assertEquals("a", cache.get("a", null, null, () -> "reloaded"));
+        assertEquals("b2", cache.get("b", null, null, () -> "b2"));
+
+        clock.addAndGet(100);
+        assertEquals("a2", cache.get("a", null, null, () -> "a2"));
+        assertEquals(1, cache.getExpirations());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.gamesales.parser;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvChunkScannerTest {
+    private static final String CSV = "id,game_no,game_name,game_code,type,cost_price,tax,sale_price,date_of_sale\n"
+            + "1,77,vwwsztutmcxiwmrywkjo,tfqqf,1,77.00,0.09,83.93,\"2024-04-19 07:31:41.000000\"\n"
+            + "2,78,\"multi\nline\",qqiqf,1,65.00,0.09,70.85,\"2024-04-03 21:35:57.000000\"\n"
+            + "\n"
+            + "3,56,\"with \"\"quotes\"\"\",tbxmq,2,75.00,0.09,81.75,\"2024-04-17 18:44:49.000000\"\r\n"
+            + "4,56,csjrjuuqsuvvqqhllxgn,tjlem,2,98.00,0.09,106.82,\"2024-04-08 00:54:06.000000\"\n"
+            + "5,12,abc,abcde,1,1.00,0.09,1.09,\"2024-04-08 00:54:06.000000\"";
+
+    private static ExecutorService executorService;
+
+    @BeforeAll
+    static void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executorService.shutdown();
+    }
+
+    @Test
+    void chunksKeepStreamingRecordNumbersForEveryChunkSize() throws Exception {
+        List<String> expected = new ArrayList<>();
+        try (CSVParser parser = new CSVParser(new StringReader(CSV), CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+            for (CSVRecord record : parser) {
+                expected.add(record.getRecordNumber() + ":" + record.get(0) + ":" + record.get(2));
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(CSV.getBytes(StandardCharsets.UTF_8));
+        for (int chunkSize = 1; chunkSize <= CSV.length(); chunkSize++) {
+            assertEquals(expected, parseChunks(buffer, CsvChunkScanner.split(buffer, chunkSize, executorService)), "chunk size " + chunkSize);
+        }
+    }
+
+    private List<String> parseChunks(ByteBuffer buffer, List<CsvChunk> chunks) throws IOException {
+        List<String> actual = new ArrayList<>();
+        for (CsvChunk chunk : chunks) {
+            CsvRecordReader reader = new CsvRecordReader(buffer, chunk.getStart(), chunk.getEnd(), chunk.getFirstRecordNumber());
+            while (reader.next()) {
+                String line = GameSalesRecordDecoder.toLine(buffer, reader.getRecordStart(), reader.getRecordEnd());
+                try (CSVParser parser = new CSVParser(new StringReader(line), CSVFormat.DEFAULT)) {
+                    CSVRecord record = parser.iterator().next();
+                    actual.add(reader.getRecordNumber() + ":" + record.get(0) + ":" + record.get(2));
+                }
+            }
+        }
+        return actual;
+    }
+}
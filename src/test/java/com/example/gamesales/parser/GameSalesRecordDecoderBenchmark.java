@@ -0,0 +1,114 @@
+package com.example.gamesales.parser;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.view.GameSalesView;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/**
+ * Manual per-row parse throughput comparison, not run by surefire.
+ * Run the main method from the IDE, or with java on the test classpath after {@code mvn test-compile}.
+ */
+public class GameSalesRecordDecoderBenchmark {
+    private static final int ROWS = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        byte[] csv = generate(ROWS);
+        for (int round = 0; round < ROUNDS; round++) {
+            long commonsNanos = timeCommonsCsv(csv);
+            long decoderNanos = timeDecoder(csv);
+            System.out.printf("round %d: commons-csv %d ns/row, decoder %d ns/row, speedup %.1fx%n",
+                    round, commonsNanos / ROWS, decoderNanos / ROWS, (double) commonsNanos / decoderNanos);
+        }
+    }
+
+    /**
+     * The previous import path: commons-csv records, String fields and a formatter built per row.
+     */
+    private static long timeCommonsCsv(byte[] csv) throws IOException {
+        long start = System.nanoTime();
+        long checksum = 0;
+        try (CSVParser csvParser = new CSVParser(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8),
+                CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim())) {
+            for (CSVRecord csvRecord : csvParser) {
+                GameSalesView view = new GameSalesView();
+                view.setGameNo(Integer.parseInt(csvRecord.get(1)));
+                view.setGameName(csvRecord.get(2));
+                view.setGameCode(csvRecord.get(3));
+                view.setType(Integer.parseInt(csvRecord.get(4)));
+                view.setCostPrice(Double.parseDouble(csvRecord.get(5)));
+                view.setTax(Double.parseDouble(csvRecord.get(6)));
+                view.setSalePrice(Double.parseDouble(csvRecord.get(7)));
+                view.setDateOfSale(LocalDateTime.parse(csvRecord.get(8), DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS")));
+                checksum += view.getGameNo();
+            }
+        }
+        consume(checksum);
+        return System.nanoTime() - start;
+    }
+
+    private static long timeDecoder(byte[] csv) throws IOException {
+        long start = System.nanoTime();
+        long checksum = 0;
+        CsvRecordReader reader = new CsvRecordReader(new ByteArrayInputStream(csv));
+        reader.skipHeader();
+        GameSalesRecordDecoder decoder = new GameSalesRecordDecoder();
+        GameSalesBatch batch = new GameSalesBatch(2500);
+        while (reader.next()) {
+            int row = decoder.decode(reader.getBuffer(), reader.getRecordStart(), reader.getRecordEnd(), batch);
+            if (row < 0) {
+                GameSalesView view = new GameSalesView();
+                GameSalesRecordDecoder.decodeFallback(GameSalesRecordDecoder.toLine(reader.getBuffer(), reader.getRecordStart(), reader.getRecordEnd()), view);
+                row = batch.addRow(view);
+            }
+            checksum += batch.getGameNo(row);
+            if (batch.isFull()) {
+                batch.clear();
+            }
+        }
+        consume(checksum);
+        return System.nanoTime() - start;
+    }
+
+    private static byte[] generate(int rows) {
+        Random random = new Random(42);
+        StringBuilder csv = new StringBuilder("id,game_no,game_name,game_code,type,cost_price,tax,sale_price,date_of_sale\n");
+        for (int i = 1; i <= rows; i++) {
+            int costPrice = random.nextInt(100);
+            csv.append(i).append(',')
+                    .append(1 + random.nextInt(100)).append(',')
+                    .append(randomLetters(random, 20)).append(',')
+                    .append(randomLetters(random, 5)).append(',')
+                    .append(1 + random.nextInt(2)).append(',')
+                    .append(costPrice).append(".00,0.09,")
+                    .append(String.format("%.2f", costPrice * 1.09)).append(",\"2024-04-")
+                    .append(String.format("%02d %02d:%02d:%02d", 1 + random.nextInt(30), random.nextInt(24), random.nextInt(60), random.nextInt(60)))
+                    .append(".000000\"\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String randomLetters(Random random, int length) {
+        char[] letters = new char[length];
+        for (int i = 0; i < length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+
+    private static void consume(long checksum) {
+        if (checksum == 42) {
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.gamesales.parser;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.InvalidRecordReason;
+import com.example.gamesales.view.GameSalesView;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameSalesRecordDecoderTest {
+
+    @Test
+    void fastPathMatchesCommonsCsv() throws Exception {
+        String[] lines = {
+                "1,77,vwwsztutmcxiwmrywkjo,tfqqf,1,77.00,0.09,83.93,\"2024-04-19 07:31:41.000000\"",
+                "2, 78 , bvbtrclzpbldgvlqyxqn ,\"qqiqf\",1,65,0.0900,70.85,2024-04-03 21:35:57.123456",
+                "3,-56,\" spaced \",tbxmq,+2,.5,-0.09,1234567.891234,\"2024-12-31 23:59:59.999999\"  ",
+                "4,56,csjrjuuqsuvvqqhllxgn,tjlem,2,98.00,0.09,0.1,\"2024-02-29 00:00:00.000001\"",
+        };
+        GameSalesRecordDecoder decoder = new GameSalesRecordDecoder();
+        for (String line : lines) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            GameSalesBatch batch = new GameSalesBatch(1);
+            assertEquals(0, decoder.decode(ByteBuffer.wrap(bytes), 0, bytes.length, batch), line);
+            GameSalesView expected = new GameSalesView();
+            GameSalesRecordDecoder.decodeFallback(line, expected);
+            assertSameRow(expected, batch, 0);
+        }
+    }
+
+    @Test
+    void unusualRecordsAreLeftToTheFallback() {
+        String[] lines = {
+                "1,77,\"with \"\"escaped\"\" quotes\",tfqqf,1,77.00,0.09,83.93,\"2024-04-19 07:31:41.000000\"",
+                "1,77,name,code,1,7.7e1,0.09,83.93,\"2024-04-19 07:31:41.000000\"",
+                "1,77,name,code,1,77.00,0.09,83.93,\"2024-04-19T07:31:41\"",
+                "1,77,name,code,1,77.00,0.09,83.93,\"2024-02-30 07:31:41.000000\"",
+                "1,77,name,code,1,77.00,0.09,83.93",
+                "1,77,name,code,1,77.00,0.09,83.93,\"2024-04-19 07:31:41.000000\",extra",
+                "1,7a,name,code,1,77.00,0.09,83.93,\"2024-04-19 07:31:41.000000\"",
+                "1,77,name,code,1,+,0.09,83.93,\"2024-04-19 07:31:41.000000\"",
+                "1,77,name,code,1,77.00,-,83.93,\"2024-04-19 07:31:41.000000\"",
+        };
+        GameSalesRecordDecoder decoder = new GameSalesRecordDecoder();
+        for (String line : lines) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            GameSalesBatch batch = new GameSalesBatch(1);
+            assertEquals(-1, decoder.decode(ByteBuffer.wrap(bytes), 0, bytes.length, batch), line);
+            assertTrue(batch.isEmpty());
+        }
+    }
+
+    @Test
+    void readerSplitsRecordsAcrossBufferRefills() throws Exception {
+        String csv = "id,game_no,game_name,game_code,type,cost_price,tax,sale_price,date_of_sale\r\n"
+                + "1,77,\"a,b\nc\",tfqqf,1,77.00,0.09,83.93,\"2024-04-19 07:31:41.000000\"\r\n"
+                + "\r\n"
+                + "2,78,bvbtrclzpbldgvlqyxqn,qqiqf,1,65.00,0.09,70.85,\"2024-04-03 21:35:57.000000\"";
+        CsvRecordReader reader = new CsvRecordReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 8);
+        reader.skipHeader();
+        GameSalesRecordDecoder decoder = new GameSalesRecordDecoder();
+        GameSalesBatch batch = new GameSalesBatch(2);
+
+        assertTrue(reader.next());
+        assertEquals(1, reader.getRecordNumber());
+        assertEquals(0, decoder.decode(reader.getBuffer(), reader.getRecordStart(), reader.getRecordEnd(), batch));
+        assertEquals("a,b\nc", batch.getGameName(0));
+
+        assertTrue(reader.next());
+        assertEquals(2, reader.getRecordNumber());
+        assertEquals(csv.length(), reader.getNextRecordOffset());
+        assertEquals(1, decoder.decode(reader.getBuffer(), reader.getRecordStart(), reader.getRecordEnd(), batch));
+        assertEquals(70.85, batch.getSalePrice(1));
+        assertEquals(LocalDateTime.of(2024, 4, 3, 21, 35, 57), batch.getDateOfSale(1));
+
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void nonNumericIdIsKeptAsMissingSourceId() throws Exception {
+        String line = "x1,77,name,code,1,77.00,0.09,83.93,\"2024-04-19 07:31:41.000000\"";
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        GameSalesBatch batch = new GameSalesBatch(1);
+        assertEquals(0, new GameSalesRecordDecoder().decode(ByteBuffer.wrap(bytes), 0, bytes.length, batch));
+        assertFalse(batch.hasSourceId(0));
+
+        GameSalesView view = new GameSalesView();
+        GameSalesRecordDecoder.decodeFallback(line, view);
+        assertNull(view.getSourceId());
+    }
+
+    @Test
+    void fallbackReportsTheFieldsItCannotParse() {
+        GameSalesView view = new GameSalesView();
+        assertEquals(InvalidRecordReason.COST_PRICE.getBit() | InvalidRecordReason.DATE_OF_SALE.getBit(),
+                GameSalesRecordDecoder.decodeFallback("1,77,name,code,1,abc,0.09,83.93,\"2024-04-19T07:31:41\"", view));
+        assertEquals(InvalidRecordReason.MALFORMED_RECORD.getBit(),
+                GameSalesRecordDecoder.decodeFallback("1,77,name,code,1,77.00,0.09,83.93", new GameSalesView()));
+        assertEquals(InvalidRecordReason.MALFORMED_RECORD.getBit(),
+                GameSalesRecordDecoder.decodeFallback("1,77,\"broken\"quote,code,1,77.00,0.09,83.93,\"2024-04-19 07:31:41.000000\"", new GameSalesView()));
+    }
+
+    private void assertSameRow(GameSalesView expected, GameSalesBatch batch, int row) {
+        assertEquals(expected.getSourceId(), batch.getSourceId(row));
+        assertEquals(expected.getGameNo(), batch.getGameNo(row));
+        assertEquals(expected.getGameName(), batch.getGameName(row));
+        assertEquals(expected.getGameCode(), batch.getGameCode(row));
+        assertEquals(expected.getType(), batch.getType(row));
+        assertEquals(expected.getCostPrice(), batch.getCostPrice(row));
+        assertEquals(expected.getTax(), batch.getTax(row));
+        assertEquals(expected.getSalePrice(), batch.getSalePrice(row));
+        assertEquals(expected.getDateOfSale(), batch.getDateOfSale(row));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.gamesales.sink;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.view.GameSalesView;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GameSalesTsvInputStreamTest {
+
+    @Test
+    void rendersRowsInLoadDataFormat() throws Exception {
+        GameSalesBatch batch = new GameSalesBatch(3);
+        batch.addRow(view(77, "plain", "tfqqf", 83.93, LocalDateTime.of(2024, 4, 19, 7, 31, 41)));
+        batch.addRow(view(-5, "tab\there \\ new\nline", "ü", 0.1, LocalDateTime.of(2024, 2, 29, 0, 0, 0, 1000)));
+        batch.addRow(view(0, "", "x", 1234567.891234, LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999999000)));
+
+        String expected = "77\tplain\ttfqqf\t1\t77.0\t0.09\t83.93\t2024-04-19 07:31:41.000000\n"
+                + "-5\ttab\\there \\\\ new\\nline\tü\t1\t77.0\t0.09\t0.1\t2024-02-29 00:00:00.000001\n"
+                + "0\t\tx\t1\t77.0\t0.09\t1234567.891234\t1969-12-31 23:59:59.999999\n";
+        assertEquals(expected, readAll(new GameSalesTsvInputStream(batch), 7));
+        assertEquals(expected, readAll(new GameSalesTsvInputStream(batch), 1 << 16));
+    }
+
+    private String readAll(InputStream inputStream, int chunk) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[chunk];
+        int read;
+        while ((read = inputStream.read(buffer, 0, chunk)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private GameSalesView view(int gameNo, String gameName, String gameCode, double salePrice, LocalDateTime dateOfSale) {
+        GameSalesView view = new GameSalesView();
+        view.setGameNo(gameNo);
+        view.setGameName(gameName);
+        view.setGameCode(gameCode);
+        view.setType(1);
+        view.setCostPrice(77.0);
+        view.setTax(0.09);
+        view.setSalePrice(salePrice);
+        view.setDateOfSale(dateOfSale);
+        return view;
+    }
+}
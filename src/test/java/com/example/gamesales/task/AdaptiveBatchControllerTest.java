@@ -0,0 +1,84 @@
+package com.example.gamesales.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveBatchControllerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(5000);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void growsBatchSizeThenInFlightWhileUnderTargetLatency() throws Exception {
+        AdaptiveBatchController controller = controller(true, 1000);
+        assertEquals(2, controller.getInFlightLimit());
+
+        completeWindow(controller, 1000, FAST);
+        assertEquals(1500, controller.getBatchSize());
+        completeWindow(controller, 1500, FAST);
+        assertEquals(2000, controller.getBatchSize());
+        completeWindow(controller, 2000, FAST);
+        assertEquals(2000, controller.getBatchSize());
+        assertEquals(3, controller.getInFlightLimit());
+    }
+
+    @Test
+    void halvesInFlightThenBatchSizeAboveTargetLatency() throws Exception {
+        AdaptiveBatchController controller = controller(true, 2000);
+
+        completeWindow(controller, 2000, SLOW);
+        assertEquals(1, controller.getInFlightLimit());
+        assertEquals(2000, controller.getBatchSize());
+        completeWindow(controller, 2000, SLOW);
+        assertEquals(1000, controller.getBatchSize());
+        completeWindow(controller, 1000, SLOW);
+        completeWindow(controller, 500, SLOW);
+        assertEquals(500, controller.getBatchSize());
+        assertEquals(1, controller.getInFlightLimit());
+    }
+
+    @Test
+    void keepsInitialSettingsWhenDisabled() throws Exception {
+        AdaptiveBatchController controller = controller(false, 1000);
+        completeWindow(controller, 1000, SLOW);
+        completeWindow(controller, 1000, FAST);
+        assertEquals(1000, controller.getBatchSize());
+        assertEquals(4, controller.getInFlightLimit());
+        assertEquals(0, controller.getSettings().getAdjustments());
+    }
+
+    @Test
+    void backsOffWhenThroughputDropsAfterAnIncrease() throws Exception {
+        AdaptiveBatchController controller = controller(true, 1000);
+        completeWindow(controller, 1000, FAST);
+        assertEquals(1500, controller.getBatchSize());
+        // same latency but the bigger batches took four times as long overall
+        completeWindow(controller, 1500, FAST, 4 * FAST);
+        assertEquals(1, controller.getInFlightLimit());
+    }
+
+    private AdaptiveBatchController controller(boolean enabled, int initialBatchSize) {
+        return new AdaptiveBatchController(enabled, initialBatchSize, 500, 2000, 1, 4, 1000, clock::get);
+    }
+
+    private void completeWindow(AdaptiveBatchController controller, int rows, long latencyNanos) throws InterruptedException {
+        completeWindow(controller, rows, latencyNanos, latencyNanos);
+    }
+
+    private void completeWindow(AdaptiveBatchController controller, int rows, long latencyNanos, long elapsedNanos) throws InterruptedException {
+        int window = controller.getInFlightLimit();
+        for (int i = 0; i < window; i++) {
+            controller.acquire();
+        }
+        clock.addAndGet(elapsedNanos);
+        for (int i = 0; i < window; i++) {
+            controller.release(rows, latencyNanos);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.gamesales.task;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkedUploadTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void chunksAreReadInOrderWhileTheyArrive() throws Exception {
+        ChunkedUpload upload = ChunkedUpload.open(directory);
+        assertTrue(upload.addChunk(1, stream("c,d\n"), 1024));
+
+        CompletableFuture<String> read = CompletableFuture.supplyAsync(() -> {
+            try (InputStream inputStream = new ChunkedUploadInputStream(upload, 5000)) {
+                return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(upload.addChunk(0, stream("a,b\n"), 1024));
+        assertFalse(upload.addChunk(0, stream("retried\n"), 1024));
+        assertTrue(upload.addChunk(2, stream("e,f\n"), 1024));
+        upload.complete(3);
+
+        assertEquals("a,b\nc,d\ne,f\n", read.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void uploadStateIsRebuiltFromTheDirectory() throws Exception {
+        ChunkedUpload upload = ChunkedUpload.open(directory);
+        upload.addChunk(0, stream("a,b\n"), 1024);
+        upload.addChunk(1, stream("c,d\n"), 1024);
+        upload.complete(2);
+
+        ChunkedUpload reopened = ChunkedUpload.open(directory);
+        assertEquals(2, reopened.getReceivedChunksCount());
+        assertEquals(2, reopened.getTotalChunks());
+        try (InputStream inputStream = new ChunkedUploadInputStream(reopened, 1000)) {
+            // skips stop at the end of a chunk, like a short read
+            assertEquals(4, inputStream.skip(5));
+            assertEquals(1, inputStream.skip(1));
+            assertEquals(",d\n", IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void oversizedChunksAndMissingChunksFail() throws Exception {
+        ChunkedUpload upload = ChunkedUpload.open(directory);
+        assertThrows(IOException.class, () -> upload.addChunk(0, stream("too large"), 4));
+        assertFalse(upload.isReceived(0));
+        assertThrows(IOException.class, () -> IOUtils.toString(new ChunkedUploadInputStream(upload, 50), StandardCharsets.UTF_8));
+
+        upload.addChunk(3, stream("x"), 4);
+        assertThrows(IllegalArgumentException.class, () -> upload.complete(2));
+    }
+
+    @Test
+    void chunksBeyondTheCompletedCountAreRejected() throws Exception {
+        ChunkedUpload upload = ChunkedUpload.open(directory);
+        assertFalse(upload.isReadable());
+        upload.addChunk(1, stream("c,d\n"), 1024);
+        assertFalse(upload.isReadable());
+        upload.complete(2);
+        assertTrue(upload.isReadable());
+
+        assertThrows(IllegalArgumentException.class, () -> upload.addChunk(2, stream("e,f\n"), 1024));
+        assertFalse(upload.isReceived(2));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.gamesales.task;
+
+import com.example.gamesales.view.ProgressTrackingView;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProgressAggregatorTest {
+
+    @Test
+    void countsContinueFromTheViewAndReachItOnClose() {
+        ProgressTrackingView view = new ProgressTrackingView();
+        view.setTotalProcessedRecordsCount(100);
+        view.setInvalidRecordsCount(2);
+        view.setProcessedBytes(1000L);
+        AtomicInteger closeCalls = new AtomicInteger();
+        ProgressAggregator aggregator = new ProgressAggregator(view, closed -> closeCalls.incrementAndGet());
+
+        assertFalse(aggregator.takeDirty());
+        aggregator.record(50, 1, 0, 8000);
+        // batches of a parallel import commit out of file order
+        aggregator.record(25, 0, 5, 5000);
+        assertTrue(aggregator.takeDirty());
+        assertFalse(aggregator.takeDirty());
+        assertEquals(175, aggregator.getValidRecordsCount());
+        assertEquals(3, aggregator.getInvalidRecordsCount());
+        assertEquals(5, aggregator.getSkippedRecordsCount());
+        assertEquals(8000, aggregator.getProcessedBytes());
+        assertEquals(100, view.getTotalProcessedRecordsCount());
+
+        aggregator.close();
+        aggregator.close();
+        assertEquals(1, closeCalls.get());
+        assertEquals(175, view.getTotalProcessedRecordsCount());
+        assertEquals(3, view.getInvalidRecordsCount());
+        assertEquals(5, view.getSkippedRecordsCount());
+        assertEquals(8000, view.getProcessedBytes());
+    }
+}
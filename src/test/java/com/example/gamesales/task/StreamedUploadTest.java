@@ -0,0 +1,76 @@
+package com.example.gamesales.task;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamedUploadTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readerFollowsTheFileUntilTheUploadCompletes() throws Exception {
+        Path path = Files.createFile(directory.resolve("upload.csv"));
+        StreamedUpload upload = new StreamedUpload(path);
+        CompletableFuture<String> read = CompletableFuture.supplyAsync(() -> {
+            try (InputStream inputStream = new StreamedUploadInputStream(upload, 5000)) {
+                return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        append(upload, "a,b\n");
+        append(upload, "c,d\n");
+        upload.complete();
+
+        assertEquals("a,b\nc,d\n", read.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failedUploadFailsTheReader() throws Exception {
+        Path path = Files.createFile(directory.resolve("upload.csv"));
+        StreamedUpload upload = new StreamedUpload(path);
+        CompletableFuture<String> read = CompletableFuture.supplyAsync(() -> {
+            try (InputStream inputStream = new StreamedUploadInputStream(upload, 5000)) {
+                return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        append(upload, "a,b\n");
+        upload.fail(new IOException("connection reset"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> read.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getCause() instanceof IOException);
+    }
+
+    private void append(StreamedUpload upload, String data) throws IOException {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        Files.write(upload.getPath(), bytes, StandardOpenOption.APPEND);
+        upload.append(bytes.length);
+    }
+
+    @Test
+    void stalledUploadTimesOutTheReader() throws Exception {
+        Path path = Files.createFile(directory.resolve("upload.csv"));
+        StreamedUpload upload = new StreamedUpload(path);
+        append(upload, "a,b\n");
+
+        assertThrows(IOException.class, () -> IOUtils.toString(new StreamedUploadInputStream(upload, 50), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.gamesales.util;
+
+import com.example.gamesales.constants.GameSalesConstants;
+import com.example.gamesales.entity.GameSalesCursorEntity;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameSalesUtilTest {
+    private static final String CSV = "id,game_no,game_name,game_code,type,cost_price,tax,sale_price,date_of_sale\n"
+            + "1,77,vwwsztutmcxiwmrywkjo,tfqqf,1,77.00,0.09,83.93,\"2024-04-19 07:31:41.000000\"\n";
+
+    @Test
+    void cursorRoundTripsAnySortValue() {
+        GameSalesCursorEntity cursor = new GameSalesCursorEntity();
+        cursor.setSortField("game_name");
+        cursor.setSortDir(GameSalesConstants.SORT_DIR_ASC);
+        cursor.setId(42L);
+        cursor.setValue("name\nwith, separators");
+
+        String token = GameSalesUtil.encodeCursor(cursor);
+        assertFalse(token.contains("="));
+        GameSalesCursorEntity decoded = GameSalesUtil.decodeCursor(token);
+        assertEquals("game_name", decoded.getSortField());
+        assertEquals(GameSalesConstants.SORT_DIR_ASC, decoded.getSortDir());
+        assertEquals(42L, decoded.getId());
+        assertEquals("name\nwith, separators", decoded.getValue());
+
+        assertThrows(IllegalArgumentException.class, () -> GameSalesUtil.decodeCursor("not a cursor"));
+    }
+
+    @Test
+    void sortValuesAreParsedToTheColumnType() {
+        LocalDateTime dateOfSale = LocalDateTime.of(2024, 4, 19, 7, 31, 0, 123000);
+        assertEquals(dateOfSale, GameSalesUtil.parseSortValue("DATE_OF_SALE", dateOfSale.toString()));
+        assertEquals(83.93, GameSalesUtil.parseSortValue("sale_price", String.valueOf(83.93)));
+        assertEquals(77, GameSalesUtil.parseSortValue("game_no", "77"));
+        assertEquals(7L, GameSalesUtil.parseSortValue("id", "7"));
+    }
+
+    @Test
+    void fullDaysExcludePartialDaysAtTheEdges() {
+        LocalDateTime from = LocalDateTime.of(2024, 4, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 4, 30, 23, 59, 59, 999999000);
+        assertArrayEquals(new LocalDate[]{LocalDate.of(2024, 4, 1), LocalDate.of(2024, 5, 1)}, GameSalesUtil.getFullDays(from, to));
+
+        assertArrayEquals(new LocalDate[]{LocalDate.of(2024, 4, 2), LocalDate.of(2024, 4, 30)},
+                GameSalesUtil.getFullDays(from.plusHours(6), LocalDateTime.of(2024, 4, 30, 12, 0)));
+        // within a single day nothing is read from the rollup
+        LocalDate[] sameDay = GameSalesUtil.getFullDays(from.plusHours(6), from.plusHours(18));
+        assertEquals(sameDay[0], sameDay[1]);
+    }
+
+    @Test
+    void compressedUploadsAreDetectedAndInflated() throws IOException {
+        byte[] plain = CSV.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(gzip)) {
+            outputStream.write(plain);
+        }
+        ByteArrayOutputStream deflate = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new DeflaterOutputStream(deflate)) {
+            outputStream.write(plain);
+        }
+
+        assertEquals(GameSalesConstants.COMPRESSION_NONE, GameSalesUtil.detectCompression(plain, plain.length));
+        assertEquals(GameSalesConstants.COMPRESSION_GZIP, GameSalesUtil.detectCompression(gzip.toByteArray(), 2));
+        assertEquals(GameSalesConstants.COMPRESSION_DEFLATE, GameSalesUtil.detectCompression(deflate.toByteArray(), 2));
+        assertEquals(GameSalesConstants.COMPRESSION_NONE, GameSalesUtil.detectCompression(new byte[]{0x1f}, 1));
+
+        assertEquals(CSV, inflate(gzip.toByteArray(), GameSalesConstants.COMPRESSION_GZIP));
+        assertEquals(CSV, inflate(deflate.toByteArray(), GameSalesConstants.COMPRESSION_DEFLATE));
+        assertEquals(CSV, inflate(plain, GameSalesConstants.COMPRESSION_NONE));
+    }
+
+    private String inflate(byte[] bytes, String compression) throws IOException {
+        try (InputStream inputStream = GameSalesUtil.decompress(new ByteArrayInputStream(bytes), compression)) {
+            return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.gamesales.validators;
+
+import com.example.gamesales.batch.GameSalesBatch;
+import com.example.gamesales.constants.InvalidRecordReason;
+import com.example.gamesales.view.GameSalesView;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ValidationRuleSetTest {
+    private static final String[] RULES = {"gameNo:min:1", "type:in:1|2", "costPrice:max:100", "gameName:maxlength:5", "gameCode:notblank"};
+
+    @Test
+    void stopsAtTheFirstFailingRule() {
+        ValidationRuleSet rules = ValidationRuleSet.compile(RULES, false);
+        LongAdder[] jobFailures = rules.newCounters();
+        GameSalesBatch batch = new GameSalesBatch(3);
+        batch.addRow(row(1, 1, 50.0, "name", "code"));
+        batch.addRow(row(1, 3, 150.0, "name", "code"));
+        batch.addRow(row(1, 2, Double.NaN, "longer", " "));
+
+        assertEquals(0, rules.evaluate(batch, 0, jobFailures));
+        assertEquals(InvalidRecordReason.TYPE.getBit(), rules.evaluate(batch, 1, jobFailures));
+        assertEquals(InvalidRecordReason.COST_PRICE.getBit(), rules.evaluate(batch, 2, jobFailures));
+
+        assertEquals(0, jobFailures[0].sum());
+        assertEquals(1, jobFailures[1].sum());
+        assertEquals(1, jobFailures[2].sum());
+        assertEquals(0, jobFailures[3].sum());
+        assertEquals("type:in:1|2", rules.getStats().get(1).getRule());
+        assertEquals(1, rules.getStats().get(1).getFailures());
+    }
+
+    @Test
+    void collectsEveryFailingRuleWhenConfigured() {
+        ValidationRuleSet rules = ValidationRuleSet.compile(RULES, true);
+        GameSalesBatch batch = new GameSalesBatch(1);
+        batch.addRow(row(0, 2, 101.0, "longer", ""));
+
+        assertEquals(InvalidRecordReason.GAME_NO.getBit() | InvalidRecordReason.COST_PRICE.getBit()
+                        | InvalidRecordReason.GAME_NAME.getBit() | InvalidRecordReason.GAME_CODE.getBit(),
+                rules.evaluate(batch, 0, null));
+        assertEquals(1, rules.getStats().get(4).getFailures());
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ValidationRule.compile("price:min:0"));
+        assertThrows(IllegalArgumentException.class, () -> ValidationRule.compile("gameName:min:1"));
+        assertThrows(IllegalArgumentException.class, () -> ValidationRule.compile("tax:max"));
+        assertThrows(IllegalArgumentException.class, () -> ValidationRule.compile("type:in:1|x"));
+    }
+
+    private GameSalesView row(int gameNo, int type, double costPrice, String gameName, String gameCode) {
+        GameSalesView view = new GameSalesView();
+        view.setGameNo(gameNo);
+        view.setType(type);
+        view.setCostPrice(costPrice);
+        view.setTax(0.09);
+        view.setSalePrice(10.0);
+        view.setGameName(gameName);
+        view.setGameCode(gameCode);
+        view.setDateOfSale(LocalDateTime.of(2024, 4, 19, 7, 31, 41));
+        return view;
+    }
+}